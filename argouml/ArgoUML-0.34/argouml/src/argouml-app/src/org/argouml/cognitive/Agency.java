@@ -43,9 +43,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
@@ -101,6 +103,29 @@ public class Agency extends Observable { //implements java.io.Serialization
     private static Hashtable<String, Critic> singletonCritics = 
         new Hashtable<String, Critic>(40);
 
+    /**
+     * The dispatch table: the active critics of each design material class
+     * that has been critiqued. It is replaced by an empty table when the
+     * critics change, and filled again on demand, so that it is read
+     * without locking.
+     */
+    private static volatile Map<Class, CriticDispatch> dispatchTable =
+        new ConcurrentHashMap<Class, CriticDispatch>();
+
+    /**
+     * The dispatch of all the active critics, null until needed.
+     */
+    private static volatile CriticDispatch activeCritics;
+
+    /**
+     * Drops the dispatch table when a critic becomes active or inactive.
+     */
+    private static final Observer ACTIVITY_OBSERVER = new Observer() {
+        public void update(Observable o, Object arg) {
+            invalidateDispatch();
+        }
+    };
+
 
     /**
      * Construct a new Agency instance with the given ControlMech as the
@@ -165,6 +190,8 @@ public class Agency extends Observable { //implements java.io.Serialization
 	}
         if (!(cr instanceof CompoundCritic)) {
             critics.add(cr);
+            cr.addObserver(ACTIVITY_OBSERVER);
+            invalidateDispatch();
 	} else {
             for (Critic c : ((CompoundCritic) cr).getCriticList()) {
                 addCritic(c);
@@ -229,8 +256,10 @@ public class Agency extends Observable { //implements java.io.Serialization
             theCritics.add(cr);
             notifyStaticObservers(cr);
             LOG.debug("Registered: " + theCritics.toString());
-            cachedCritics.remove(clazz);
+            // the subclasses of clazz inherit the critic as well
+            cachedCritics.clear();
             addCritic(cr);
+            invalidateDispatch();
         }
     }
 
@@ -307,6 +336,33 @@ public class Agency extends Observable { //implements java.io.Serialization
     }
 
 
+    /**
+     * Return the entry of the dispatch table for a design material class,
+     * building it if needed.
+     *
+     * @param clazz the design material class
+     * @return the active critics of the class
+     */
+    private static CriticDispatch dispatchFor(Class clazz) {
+        Map<Class, CriticDispatch> table = dispatchTable;
+        CriticDispatch dispatch = table.get(clazz);
+        if (dispatch == null) {
+            dispatch = new CriticDispatch(criticsForClass(clazz));
+            // if the table has been dropped meanwhile, this entry is lost
+            table.put(clazz, dispatch);
+        }
+        return dispatch;
+    }
+
+    /**
+     * Drop the dispatch table, after a critic has been registered or has
+     * become active or inactive. It is built again on demand.
+     */
+    private static void invalidateDispatch() {
+        dispatchTable = new ConcurrentHashMap<Class, CriticDispatch>();
+        activeCritics = null;
+    }
+
     /**
      * Apply all critics that can be applied to the given
      * design material instance as appropriate for the given
@@ -323,9 +379,7 @@ public class Agency extends Observable { //implements java.io.Serialization
         Object dm,
         Designer d,
         long reasonCode) {
-        Class dmClazz = dm.getClass();
-        Collection<Critic> c = criticsForClass(dmClazz);
-        applyCritics(dm, d, c, reasonCode);
+        dispatchFor(dm.getClass()).apply(dm, d, reasonCode);
     }
 
     /**
@@ -333,9 +387,7 @@ public class Agency extends Observable { //implements java.io.Serialization
      * @param d the designer
      */
     public static void applyAllCritics(Object dm, Designer d) {
-        Class dmClazz = dm.getClass();
-        Collection<Critic> c = criticsForClass(dmClazz);
-        applyCritics(dm, d, c, -1L);
+        dispatchFor(dm.getClass()).apply(dm, d, -1L);
     }
 
     /**
@@ -352,18 +404,48 @@ public class Agency extends Observable { //implements java.io.Serialization
 
         for (Critic c : theCritics) {
             if (c.isActive() && c.matchReason(reasonCode)) {
-                try {
-                    c.critique(dm, d);
-                } catch (Exception ex) {
-                    LOG.error("Disabling critique due to exception\n"
-			      + c + "\n" + dm,
-			      ex);
-                    c.setEnabled(false);
-                }
+                applyCritic(c, dm, d);
             }
         }
     }
 
+    /**
+     * Apply a critic, and disable it if it fails.
+     *
+     * @param c the critic
+     * @param dm the design material
+     * @param d the designer
+     */
+    static void applyCritic(Critic c, Object dm, Designer d) {
+        try {
+            c.critique(dm, d);
+        } catch (Exception ex) {
+            LOG.error("Disabling critique due to exception\n"
+                    + c + "\n" + dm,
+                    ex);
+            c.setEnabled(false);
+        }
+    }
+
+    /**
+     * The priority with which a design material should be critiqued for
+     * the given reason: the highest priority of the active critics that
+     * are explicitly triggered by this reason. Critics without trigger
+     * match any reason, so they do not make a reason more urgent.
+     *
+     * @param reasonCode the reason code
+     * @return one of the ToDoItem priorities, LOW_PRIORITY if no active
+     *         critic is triggered by this reason
+     */
+    public static int priorityFor(long reasonCode) {
+        CriticDispatch dispatch = activeCritics;
+        if (dispatch == null) {
+            dispatch = new CriticDispatch(critics);
+            activeCritics = dispatch;
+        }
+        return dispatch.priorityFor(reasonCode);
+    }
+
     /**
      * Compute which critics should be active (i.e., they can be
      * applied by applyAllCritics) for a given Designer. <p>
@@ -0,0 +1,132 @@
+/* $Id$
+ *****************************************************************************
+ * Copyright (c) 2011 Contributors - see below
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    anonbnr
+ *****************************************************************************
+ */
+
+package org.argouml.cognitive;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The active critics of a design material class, flattened into an array
+ * and grouped by trigger mask. This is an entry of the dispatch table of
+ * the {@link Agency}: critiquing a design material for a reason is a single
+ * walk of the array, which skips the groups whose trigger does not match
+ * the reason.<p>
+ *
+ * The critics without trigger match any reason: they form the first group.
+ * A critic is in the array at most once, even if it is registered for
+ * several superclasses or interfaces of the class.<p>
+ *
+ * A dispatch is immutable, hence it can be read from several threads
+ * without locking. The Agency drops its dispatches when a critic is
+ * registered or becomes active or inactive, and builds new ones on demand.
+ */
+class CriticDispatch {
+
+    /**
+     * The active critics, grouped by trigger mask.
+     */
+    private final Critic[] critics;
+
+    /**
+     * The trigger mask of each group.
+     */
+    private final long[] masks;
+
+    /**
+     * The index after the last critic of each group.
+     */
+    private final int[] ends;
+
+    /**
+     * Build the dispatch of some critics.
+     *
+     * @param candidates the critics, active or not
+     */
+    CriticDispatch(Collection<Critic> candidates) {
+        Map<Long, List<Critic>> groups =
+            new LinkedHashMap<Long, List<Critic>>();
+        // the critics without trigger first
+        groups.put(0L, new ArrayList<Critic>());
+        int count = 0;
+        for (Critic c : new LinkedHashSet<Critic>(candidates)) {
+            if (c.isActive()) {
+                List<Critic> group = groups.get(c.getTriggerMask());
+                if (group == null) {
+                    group = new ArrayList<Critic>();
+                    groups.put(c.getTriggerMask(), group);
+                }
+                group.add(c);
+                count++;
+            }
+        }
+
+        critics = new Critic[count];
+        masks = new long[groups.size()];
+        ends = new int[groups.size()];
+        int g = 0;
+        int i = 0;
+        for (Map.Entry<Long, List<Critic>> group : groups.entrySet()) {
+            for (Critic c : group.getValue()) {
+                critics[i++] = c;
+            }
+            masks[g] = group.getKey();
+            ends[g++] = i;
+        }
+    }
+
+    /**
+     * Apply the active critics that match a reason to a design material.
+     *
+     * @param dm the design material
+     * @param d the designer
+     * @param reasonCode the reason, -1 for all the critics
+     */
+    void apply(Object dm, Designer d, long reasonCode) {
+        int start = 0;
+        for (int g = 0; g < masks.length; g++) {
+            if (masks[g] == 0 || (masks[g] & reasonCode) != 0) {
+                for (int i = start; i < ends[g]; i++) {
+                    Agency.applyCritic(critics[i], dm, d);
+                }
+            }
+            start = ends[g];
+        }
+    }
+
+    /**
+     * The highest priority of the active critics that are explicitly
+     * triggered by a reason.
+     *
+     * @param reasonCode the reason code
+     * @return one of the ToDoItem priorities, LOW_PRIORITY if no active
+     *         critic is triggered by this reason
+     */
+    int priorityFor(long reasonCode) {
+        int priority = ToDoItem.LOW_PRIORITY;
+        int start = 0;
+        for (int g = 0; g < masks.length; g++) {
+            if ((masks[g] & reasonCode) != 0) {
+                for (int i = start; i < ends[g]; i++) {
+                    priority = Math.min(priority, critics[i].getPriority());
+                }
+            }
+            start = ends[g];
+        }
+        return priority;
+    }
+}
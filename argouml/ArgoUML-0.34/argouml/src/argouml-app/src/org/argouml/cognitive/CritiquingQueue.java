@@ -0,0 +1,224 @@
+/* $Id$
+ *****************************************************************************
+ * Copyright (c) 2011 Contributors - see below
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    anonbnr
+ *****************************************************************************
+ */
+
+package org.argouml.cognitive;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A queue of design materials waiting to be critiqued, with the reason
+ * code and the priority of each of them.<p>
+ *
+ * A design material is at most once in the queue: adding it again does
+ * not enqueue it twice, but merges the reason codes of both requests and
+ * keeps the highest of both priorities. Within a priority, design
+ * materials are served in the order of their first request; higher
+ * priorities (i.e. {@link ToDoItem#HIGH_PRIORITY}) are served first.<p>
+ *
+ * Adding, finding, removing and polling a design material take constant
+ * time. This class is not synchronized: the Designer guards its queues
+ * with its own lock.
+ */
+class CritiquingQueue {
+
+    /**
+     * The number of priority levels, from HIGH_PRIORITY to LOW_PRIORITY.
+     */
+    private static final int LEVELS =
+        ToDoItem.LOW_PRIORITY - ToDoItem.HIGH_PRIORITY + 1;
+
+    /**
+     * The pending design materials and their reason code, per priority.
+     */
+    private final LinkedHashMap<Object, Long>[] levels;
+
+    /**
+     * The priority level of each pending design material.
+     */
+    private final Map<Object, Integer> index = new HashMap<Object, Integer>();
+
+    /**
+     * Construct an empty queue.
+     */
+    @SuppressWarnings("unchecked")
+    CritiquingQueue() {
+        levels = new LinkedHashMap[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            levels[i] = new LinkedHashMap<Object, Long>();
+        }
+    }
+
+    /**
+     * Add a design material to the queue, or merge the request with the
+     * pending one if the design material is already queued.
+     *
+     * @param dm the design material
+     * @param reasonCode the reason code of the request
+     * @param priority the priority of the request, one of the ToDoItem
+     *        priorities
+     * @return true if the design material was not queued yet
+     */
+    boolean add(Object dm, long reasonCode, int priority) {
+        int level = levelOf(priority);
+        Integer current = index.get(dm);
+        if (current == null) {
+            levels[level].put(dm, reasonCode);
+            index.put(dm, level);
+            return true;
+        }
+        long merged = levels[current].get(dm) | reasonCode;
+        if (level < current) {
+            // promoted: it is now served with the higher priority
+            levels[current].remove(dm);
+            levels[level].put(dm, merged);
+            index.put(dm, level);
+        } else {
+            levels[current].put(dm, merged);
+        }
+        return false;
+    }
+
+    /**
+     * Move all the requests of another queue to this one, merging the
+     * requests for the same design materials.
+     *
+     * @param other the queue to be emptied into this one
+     */
+    void addAll(CritiquingQueue other) {
+        for (int level = 0; level < LEVELS; level++) {
+            for (Map.Entry<Object, Long> e : other.levels[level].entrySet()) {
+                add(e.getKey(), e.getValue(),
+                        level + ToDoItem.HIGH_PRIORITY);
+            }
+        }
+        other.clear();
+    }
+
+    /**
+     * @param dm the design material
+     * @return true if the design material is queued
+     */
+    boolean contains(Object dm) {
+        return index.containsKey(dm);
+    }
+
+    /**
+     * @param dm the design material
+     * @return the merged reason codes of the requests for the design
+     *         material, or 0 if it is not queued
+     */
+    long getReasonCode(Object dm) {
+        Integer level = index.get(dm);
+        if (level == null) {
+            return 0L;
+        }
+        return levels[level].get(dm);
+    }
+
+    /**
+     * @param dm the design material to be removed
+     * @return true if the design material was queued
+     */
+    boolean remove(Object dm) {
+        Integer level = index.remove(dm);
+        if (level == null) {
+            return false;
+        }
+        levels[level].remove(dm);
+        return true;
+    }
+
+    /**
+     * Remove the next design material to be critiqued: the oldest request
+     * of the highest priority.
+     *
+     * @return the design material and its reason code, or null if the queue
+     *         is empty
+     */
+    Map.Entry<Object, Long> poll() {
+        for (LinkedHashMap<Object, Long> level : levels) {
+            if (!level.isEmpty()) {
+                Iterator<Map.Entry<Object, Long>> it =
+                    level.entrySet().iterator();
+                Map.Entry<Object, Long> first = it.next();
+                Map.Entry<Object, Long> polled =
+                    new Request(first.getKey(), first.getValue());
+                it.remove();
+                index.remove(polled.getKey());
+                return polled;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of queued design materials
+     */
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * @return true if no design material is queued
+     */
+    boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * Remove all the design materials from the queue.
+     */
+    void clear() {
+        for (LinkedHashMap<Object, Long> level : levels) {
+            level.clear();
+        }
+        index.clear();
+    }
+
+    private static int levelOf(int priority) {
+        if (priority < ToDoItem.HIGH_PRIORITY
+                || priority > ToDoItem.LOW_PRIORITY) {
+            return LEVELS - 1;
+        }
+        return priority - ToDoItem.HIGH_PRIORITY;
+    }
+
+    /**
+     * A polled request, detached from the queue.
+     */
+    private static class Request implements Map.Entry<Object, Long> {
+        private final Object dm;
+
+        private final Long reasonCode;
+
+        Request(Object theDM, Long theReasonCode) {
+            dm = theDM;
+            reasonCode = theReasonCode;
+        }
+
+        public Object getKey() {
+            return dm;
+        }
+
+        public Long getValue() {
+            return reasonCode;
+        }
+
+        public Long setValue(Long value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
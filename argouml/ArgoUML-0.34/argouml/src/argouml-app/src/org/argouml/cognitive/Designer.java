@@ -43,8 +43,16 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.swing.Action;
 import javax.swing.Icon;
@@ -122,6 +130,14 @@ public final class Designer
     public static final ConfigurationKey AUTO_CRITIQUE =
         Configuration.makeKey("cognitive", "autocritique");
 
+    /**
+     * The key to remember persistently whether the critiquing thread only
+     * critiques the changes of the model, instead of also sweeping the
+     * whole model periodically.
+     */
+    public static final ConfigurationKey INCREMENTAL_CRITIQUE =
+        Configuration.makeKey("cognitive", "incrementalcritique");
+
     ////////////////////////////////////////////////////////////////
     // instance variables
 
@@ -183,17 +199,23 @@ public final class Designer
     private int critiqueCPUPercent;
 
    /**
-     * dm's that should be critiqued ASAP.
+     * dm's that should be critiqued ASAP, with their reason codes.
      */
-    private List<Object> hotQueue;
-
-    private List<Long> hotReasonQueue;
+    private CritiquingQueue hotQueue;
 
-    private List<Object> addQueue;
+    /**
+     * dm's requested by critiqueASAP since the last critiquing round.
+     * Repeated requests for the same dm are merged.
+     */
+    private CritiquingQueue addQueue;
 
-    private List<Long> addReasonQueue;
+    /**
+     * The priority of each reason code requested since the active
+     * critics were last determined.
+     */
+    private Map<Long, Integer> reasonPriorities;
 
-    private List<Object> removeQueue;
+    private Set<Object> removeQueue;
 
     private static int longestAdd;
 
@@ -202,7 +224,19 @@ public final class Designer
     /**
      * dm's that should be critiqued relatively soon.
      */
-    private List<Object> warmQueue;
+    private Set<Object> warmQueue;
+
+    /**
+     * dm's already put in the warm queue since the last time it was
+     * started again from the critiquing root.
+     */
+    private Set<Object> warmVisited;
+
+    /**
+     * In incremental mode, true if the whole model is to be swept once,
+     * i.e. if the critiquing root has changed since the last sweep.
+     */
+    private boolean sweepPending;
 
     private ChildGenerator childGenerator;
 
@@ -212,6 +246,24 @@ public final class Designer
 
     private int critiqueLock;
 
+    /**
+     * The workers of the parallel critiquing mode, created when
+     * this mode is first used.
+     */
+    private ParallelCritiquer parallelCritiquer;
+
+    /**
+     * Whether the critics are applied by the workers of the parallel
+     * critiquing mode. Not persisted, see {@link #getParallelCritique()}.
+     */
+    private volatile boolean parallelCritique;
+
+    /**
+     * Read by the workers of the parallel critiquing mode while they
+     * critique, written by bulk updates of the model.
+     */
+    private ReadWriteLock modelLock;
+
     private static PropertyChangeSupport pcs;
 
     /**
@@ -246,19 +298,22 @@ public final class Designer
         critiquingInterval = 8000;
         critiqueCPUPercent = 10;
 
-        hotQueue = new ArrayList<Object>();
-        hotReasonQueue = new ArrayList<Long>();
-        addQueue = new ArrayList<Object>();
-        addReasonQueue = new ArrayList<Long>();
-        removeQueue = new ArrayList<Object>();
+        hotQueue = new CritiquingQueue();
+        addQueue = new CritiquingQueue();
+        reasonPriorities = new HashMap<Long, Integer>();
+        removeQueue = new LinkedHashSet<Object>();
         longestAdd = 0;
         longestHot = 0;
 
-        warmQueue = new ArrayList<Object>();
+        warmQueue = new LinkedHashSet<Object>();
+        warmVisited = new HashSet<Object>();
+        sweepPending = true;
 
         childGenerator = new EmptyChildGenerator();
 
         critiqueLock = 0;
+
+        modelLock = new ReentrantReadWriteLock();
     }
 
     /**
@@ -300,7 +355,6 @@ public final class Designer
                 long critiqueStartTime;
                 long cutoffTime;
                 int minWarmElements = 5;
-                int size;
 
                 // the critiquing thread should wait if disabled.
                 synchronized (this) {
@@ -316,6 +370,13 @@ public final class Designer
 
                 // why?
                 if (critiquingRoot != null
+//                      && getAutoCritique()
+                        && critiqueLock <= 0
+                        && getParallelCritique()) {
+                    critiqueStartTime = System.currentTimeMillis();
+                    critiqueInParallel(critiqueStartTime + 3000,
+                            minWarmElements);
+                } else if (critiquingRoot != null
 //                      && getAutoCritique()
                         && critiqueLock <= 0) {
 
@@ -324,53 +385,27 @@ public final class Designer
                         critiqueStartTime = System.currentTimeMillis();
                         cutoffTime = critiqueStartTime + 3000;
 
-                        size = addQueue.size();
-                        for (int i = 0; i < size; i++) {
-                            hotQueue.add(addQueue.get(i));
-                            hotReasonQueue.add(addReasonQueue.get(i));
-                        }
-                        addQueue.clear();
-                        addReasonQueue.clear();
-
-                        longestHot = Math.max(longestHot, hotQueue.size());
-                        agency.determineActiveCritics(this);
-
-                        while (hotQueue.size() > 0) {
-                            Object dm = hotQueue.get(0);
-                            Long reasonCode =
-                                    hotReasonQueue.get(0);
-                            hotQueue.remove(0);
-                            hotReasonQueue.remove(0);
-                            Agency.applyAllCritics(dm, theDesigner(),
-                                    reasonCode.longValue());
-                        }
+                        startCritiquingRound();
 
-                        size = removeQueue.size();
-                        for (int i = 0; i < size; i++) {
-                            warmQueue.remove(removeQueue.get(i));
+                        while (!hotQueue.isEmpty()) {
+                            Map.Entry<Object, Long> request = hotQueue.poll();
+                            critiqueForReason(request.getKey(),
+                                    request.getValue().longValue());
                         }
-                        removeQueue.clear();
 
-                        if (warmQueue.size() == 0) {
-                            warmQueue.add(critiquingRoot);
-                        }
                         while (warmQueue.size() > 0
                                 && (System.currentTimeMillis() < cutoffTime
                                         || minWarmElements > 0)) {
                             if (minWarmElements > 0) {
                                 minWarmElements--;
                             }
-                            Object dm = warmQueue.get(0);
-                            warmQueue.remove(0);
+                            Object dm = pollWarmQueue();
                             try {
                                 Agency.applyAllCritics(dm, theDesigner());
                                 java.util.Enumeration subDMs =
                                         childGenerator.gen(dm);
                                 while (subDMs.hasMoreElements()) {
-                                    Object nextDM = subDMs.nextElement();
-                                    if (!(warmQueue.contains(nextDM))) {
-                                        warmQueue.add(nextDM);
-                                    }
+                                    addToWarmQueue(subDMs.nextElement());
                                 }
                             } catch (InvalidElementException e) {
                                 // Don't let a transient error kill the thread
@@ -379,6 +414,7 @@ public final class Designer
                                         + "Ignoring for this pass.");
                             }
                         }
+                        endSweepIfDrained();
                     }
                 } else {
                     critiqueStartTime = System.currentTimeMillis();
@@ -392,7 +428,11 @@ public final class Designer
                 sleepDuration = Math.max(sleepDuration, 1000);
                 LOG.debug("sleepDuration= " + sleepDuration);
                 try {
-                    Thread.sleep(sleepDuration);
+                    if (getIncrementalCritique()) {
+                        awaitCritiquingRequests(sleepDuration);
+                    } else {
+                        Thread.sleep(sleepDuration);
+                    }
                 } catch (InterruptedException ignore) {
                     LOG.error("InterruptedException!!!", ignore);
                 }
@@ -402,6 +442,171 @@ public final class Designer
         }
     }
 
+    /**
+     * In incremental mode, wait until there is something to critique.
+     * While the whole model is being swept, the sweep goes on after the
+     * given duration, unless critiqueASAP wakes the critiquing thread up
+     * earlier. Otherwise only critiqueASAP, or a change of the critiquing
+     * state, wakes it up: an idle designer does not use any CPU.
+     *
+     * @param sleepDuration the pause between two steps of a sweep
+     * @throws InterruptedException if the critiquing thread is interrupted
+     */
+    private synchronized void awaitCritiquingRequests(long sleepDuration)
+        throws InterruptedException {
+        if (!addQueue.isEmpty() && critiquingRoot != null
+                && critiqueLock <= 0) {
+            return;
+        }
+        if (!warmQueue.isEmpty() || sweepPending) {
+            this.wait(sleepDuration);
+            return;
+        }
+        while ((addQueue.isEmpty() || critiquingRoot == null
+                || critiqueLock > 0)
+                && !sweepPending
+                && getIncrementalCritique()) {
+            this.wait();
+        }
+    }
+
+    /**
+     * Apply the critics concerned by a change of a design material: the
+     * Agency's dispatch table gives the active critics of the design
+     * material whose trigger matches the change.
+     *
+     * @param dm the design material
+     * @param reasonCode the reason code of the change
+     */
+    void critiqueForReason(Object dm, long reasonCode) {
+        Agency.applyAllCritics(dm, this, reasonCode);
+    }
+
+    /**
+     * Critique the hot queue, then the warm queue until the cutoff time,
+     * on the workers of the parallel critiquing mode. Unlike the
+     * sequential mode, the designer is only locked while the queues are
+     * read or updated, not while the critics are applied.
+     *
+     * @param cutoffTime the time after which the warm queue is left
+     * @param minWarmElements the number of warm design materials to
+     *        critique even after the cutoff time
+     */
+    private void critiqueInParallel(long cutoffTime, int minWarmElements) {
+        ParallelCritiquer critiquer;
+        List<Object> hot;
+        List<Long> hotReasons;
+        synchronized (this) {
+            if (parallelCritiquer == null) {
+                parallelCritiquer = new ParallelCritiquer(
+                        Runtime.getRuntime().availableProcessors() - 1);
+            }
+            critiquer = parallelCritiquer;
+
+            startCritiquingRound();
+
+            hot = new ArrayList<Object>(hotQueue.size());
+            hotReasons = new ArrayList<Long>(hotQueue.size());
+            while (!hotQueue.isEmpty()) {
+                Map.Entry<Object, Long> request = hotQueue.poll();
+                hot.add(request.getKey());
+                hotReasons.add(request.getValue());
+            }
+        }
+
+        critiquer.critique(this, hot, hotReasons, null);
+
+        while (true) {
+            List<Object> warm;
+            synchronized (this) {
+                if (warmQueue.size() == 0
+                        || (System.currentTimeMillis() >= cutoffTime
+                                && minWarmElements <= 0)) {
+                    endSweepIfDrained();
+                    break;
+                }
+                int n = Math.min(warmQueue.size(), critiquer.getBatchSize());
+                warm = new ArrayList<Object>(n);
+                for (int i = 0; i < n; i++) {
+                    warm.add(pollWarmQueue());
+                }
+            }
+            minWarmElements -= warm.size();
+
+            List<Object> subDMs =
+                critiquer.critique(this, warm, null, childGenerator);
+            synchronized (this) {
+                for (Object nextDM : subDMs) {
+                    addToWarmQueue(nextDM);
+                }
+            }
+        }
+    }
+
+    /**
+     * Start a critiquing round: move the requests of critiqueASAP to the
+     * hot queue, select the active critics, and take the requested dm's
+     * out of the warm queue. The warm queue is started again from the
+     * critiquing root once it is empty, except in incremental mode, where
+     * the model is only swept once after the critiquing root has changed.
+     * The caller holds the lock of this designer.
+     */
+    private void startCritiquingRound() {
+        hotQueue.addAll(addQueue);
+        longestHot = Math.max(longestHot, hotQueue.size());
+
+        agency.determineActiveCritics(this);
+        reasonPriorities.clear();
+
+        warmQueue.removeAll(removeQueue);
+        removeQueue.clear();
+
+        if (warmQueue.isEmpty()
+                && (sweepPending || !getIncrementalCritique())) {
+            warmVisited.clear();
+            addToWarmQueue(critiquingRoot);
+            sweepPending = false;
+        }
+    }
+
+    /**
+     * Forget the dm's put in the warm queue once it is drained: they are
+     * only needed until the end of the sweep, and in incremental mode the
+     * next sweep may not come before the critiquing root changes. The
+     * caller holds the lock of this designer.
+     */
+    private void endSweepIfDrained() {
+        if (warmQueue.isEmpty()) {
+            warmVisited.clear();
+        }
+    }
+
+    /**
+     * Add a dm to the warm queue, unless it has already been put in the
+     * warm queue since it was started again from the critiquing root.
+     * The caller holds the lock of this designer.
+     *
+     * @param dm the design material
+     */
+    private void addToWarmQueue(Object dm) {
+        if (warmVisited.add(dm)) {
+            warmQueue.add(dm);
+        }
+    }
+
+    /**
+     * Remove the oldest dm of the warm queue. The caller holds the lock
+     * of this designer.
+     *
+     * @return the design material
+     */
+    private Object pollWarmQueue() {
+        Iterator<Object> it = warmQueue.iterator();
+        Object dm = it.next();
+        it.remove();
+        return dm;
+    }
+
     /**
      * A modelelement has been changed.
      * Now we give it priority to be checked by the critics ASAP.
@@ -423,20 +628,19 @@ public final class Designer
             return;
         }
         LOG.debug("critiqueASAP:" + dm);
-        int addQueueIndex = addQueue.indexOf(dm);
-        if (addQueueIndex == -1) {
-            addQueue.add(dm);
-            Long reasonCodeObj = new Long(rCode);
-            addReasonQueue.add(reasonCodeObj);
-        } else {
-            Long reasonCodeObj =
-		addReasonQueue.get(addQueueIndex);
-            long rc = reasonCodeObj.longValue() | rCode;
-            Long newReasonCodeObj = new Long(rc);
-            addReasonQueue.set(addQueueIndex, newReasonCodeObj);
+        // repeated requests for the same dm are merged by the queue
+        Integer priority = reasonPriorities.get(rCode);
+        if (priority == null) {
+            priority = Agency.priorityFor(rCode);
+            reasonPriorities.put(rCode, priority);
         }
+        addQueue.add(dm, rCode, priority);
         removeQueue.add(dm);
         longestAdd = Math.max(longestAdd, addQueue.size());
+        if (getIncrementalCritique()) {
+            // wake the critiquing thread up
+            this.notifyAll();
+        }
     }
 
     /**
@@ -557,6 +761,77 @@ public final class Designer
 	}
     }
 
+    /**
+     * If parallel critiquing is on, the critiquing thread fans the
+     * critics out to a pool of worker threads, one per available
+     * processor but one, and the ToDoItems they post are added to the
+     * ToDoList in batches. This requires the critics to be reentrant.
+     * <p>
+     * This mode is off by default, and it is not a user setting: it is
+     * not persisted, and only code can turn it on. The workers are only
+     * excluded by the updates that hold the write lock of the
+     * {@link #getModelLock() model lock}, i.e. the reverse engineering
+     * import, while the edits of the user, their undo and redo update
+     * the model without it. Turn it on only while every update of the
+     * model holds the write lock, e.g. to critique a loaded project
+     * without a user interface.
+     *
+     * @return true if the critics are applied in parallel
+     */
+    public boolean getParallelCritique() {
+        return parallelCritique;
+    }
+
+    /**
+     * @see #getParallelCritique()
+     * @param b true to apply the critics in parallel, false to apply them
+     *          on the critiquing thread only
+     */
+    public void setParallelCritique(boolean b) {
+        parallelCritique = b;
+    }
+
+    /**
+     * If incremental critiquing is on, the model is swept once by the
+     * critiquing thread, then only the changed design materials are
+     * critiqued, as soon as they change, and only by the critics whose
+     * triggers match the change. The critiquing thread is idle as long as
+     * the model does not change.
+     *
+     * @return true if only the changes of the model are critiqued
+     */
+    public boolean getIncrementalCritique() {
+        return Configuration.getBoolean(Designer.INCREMENTAL_CRITIQUE, false);
+    }
+
+    /**
+     * @see #getIncrementalCritique()
+     * @param b true to critique the changes only, false to also sweep
+     *          the whole model periodically
+     */
+    public void setIncrementalCritique(boolean b) {
+        Configuration.setBoolean(Designer.INCREMENTAL_CRITIQUE, b);
+        synchronized (this) {
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * The workers of the parallel critiquing mode hold the read lock of
+     * this lock while they critique. Code that updates the model in bulk
+     * (e.g. an import) can hold its write lock, so that the critics never
+     * see a half updated model.
+     * <p>
+     * Only the reverse engineering import takes the write lock so far: the
+     * other updates of the model, e.g. the edits of the user and their
+     * undo and redo, do not exclude the critics.
+     *
+     * @return the model lock
+     */
+    public ReadWriteLock getModelLock() {
+        return modelLock;
+    }
+
     /**
      * Get the Critiquing interval.
      *
@@ -591,6 +866,7 @@ public final class Designer
     public static void enableCritiquing() {
         synchronized (theDesigner()) {
             theDesigner().critiqueLock--;
+            theDesigner().notifyAll();
         }
     }
 
@@ -601,11 +877,11 @@ public final class Designer
         synchronized (theDesigner()) {
             theDesigner().toDoList.removeAllElements(); //v71
             theDesigner().hotQueue.clear();
-            theDesigner().hotReasonQueue.clear();
             theDesigner().addQueue.clear();
-            theDesigner().addReasonQueue.clear();
             theDesigner().removeQueue.clear();
             theDesigner().warmQueue.clear();
+            theDesigner().warmVisited.clear();
+            theDesigner().sweepPending = true;
         }
         //clear out queues! @@@
     }
@@ -616,6 +892,8 @@ public final class Designer
     public static void setCritiquingRoot(Object d) {
         synchronized (theDesigner()) {
             critiquingRoot = d;
+            theDesigner().sweepPending = true;
+            theDesigner().notifyAll();
         }
         /* Don't clear everything here, breaks loading! */
     }
@@ -863,7 +1141,10 @@ public final class Designer
      * @param item the todo item
      */
     public void inform(ToDoItem item) {
-        toDoList.addElement(item);
+        // items posted by the parallel critiquing workers are batched
+        if (!ParallelCritiquer.collect(item)) {
+            toDoList.addElement(item);
+        }
     }
 
     /**
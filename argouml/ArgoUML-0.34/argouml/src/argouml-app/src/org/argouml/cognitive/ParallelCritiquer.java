@@ -0,0 +1,234 @@
+/* $Id$
+ *****************************************************************************
+ * Copyright (c) 2011 Contributors - see below
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    anonbnr
+ *****************************************************************************
+ */
+
+package org.argouml.cognitive;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.log4j.Logger;
+import org.argouml.model.InvalidElementException;
+import org.tigris.gef.util.ChildGenerator;
+
+/**
+ * Applies the critics to a batch of design materials on a pool of worker
+ * threads. This is the engine of the parallel critiquing mode of the
+ * {@link Designer}.<p>
+ *
+ * The batch is partitioned by design material: all the critics of a
+ * given design material are applied by the same worker, one after the
+ * other, so a critic never sees the same design material from two threads.
+ * Each worker holds the read lock of the Designer's model lock while it
+ * critiques its partition, so that bulk model updates holding the write
+ * lock (e.g. an import) never run in the middle of a partition.<p>
+ *
+ * The ToDoItems posted by the critics from a worker are not added to the
+ * ToDoList one by one: they are collected per partition, then added in
+ * one batch, with a single notification to the ToDoList listeners, once
+ * the whole batch has been critiqued.<p>
+ *
+ * Critics are singletons shared by all the workers, hence this mode
+ * requires the critics to be reentrant.
+ */
+class ParallelCritiquer {
+    /**
+     * Logger.
+     */
+    private static final Logger LOG =
+        Logger.getLogger(ParallelCritiquer.class);
+
+    /**
+     * Number of design materials taken from the warm queue per worker.
+     */
+    private static final int BATCH_PER_THREAD = 32;
+
+    /**
+     * Number of partitions per worker, so that a slow partition
+     * does not leave the other workers idle.
+     */
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    /**
+     * The ToDoItems posted from the current worker, null outside of
+     * the workers.
+     */
+    private static final ThreadLocal<List<ToDoItem>> POSTED_ITEMS =
+        new ThreadLocal<List<ToDoItem>>();
+
+    private final int threads;
+
+    private final ExecutorService pool;
+
+    /**
+     * Construct a critiquer with a pool of daemon worker threads.
+     *
+     * @param nThreads the number of worker threads
+     */
+    ParallelCritiquer(int nThreads) {
+        threads = Math.max(1, nThreads);
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "CritiquingThread-" + (++count));
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY - 1);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of warm design materials to critique per batch
+     */
+    int getBatchSize() {
+        return threads * BATCH_PER_THREAD;
+    }
+
+    /**
+     * Collect a ToDoItem posted by a critic, if the current thread is one
+     * of the workers.
+     *
+     * @param item the todo item
+     * @return true if the item has been collected, false if it is to be
+     *         posted as usual
+     */
+    static boolean collect(ToDoItem item) {
+        List<ToDoItem> posted = POSTED_ITEMS.get();
+        if (posted == null) {
+            return false;
+        }
+        posted.add(item);
+        return true;
+    }
+
+    /**
+     * Apply all critics to a batch of design materials, then post the
+     * resulting ToDoItems to the ToDoList of the designer in one batch.
+     * This returns once the whole batch has been critiqued.
+     *
+     * @param designer the designer
+     * @param dms the design materials
+     * @param reasonCodes the reason code of each design material,
+     *        or null to apply all the critics
+     * @param generator the generator of the children of the design
+     *        materials, or null if they are not needed
+     * @return the children of the design materials, in the order of
+     *         the batch
+     */
+    List<Object> critique(final Designer designer, final List<Object> dms,
+            final List<Long> reasonCodes, final ChildGenerator generator) {
+        List<Object> children = new ArrayList<Object>();
+        if (dms.isEmpty()) {
+            return children;
+        }
+
+        int partitions =
+            Math.min(dms.size(), threads * PARTITIONS_PER_THREAD);
+        List<Future<Partition>> futures =
+            new ArrayList<Future<Partition>>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            final int from = p * dms.size() / partitions;
+            final int to = (p + 1) * dms.size() / partitions;
+            futures.add(pool.submit(new Callable<Partition>() {
+                public Partition call() {
+                    return critiquePartition(designer,
+                            dms.subList(from, to),
+                            reasonCodes == null
+                                ? null : reasonCodes.subList(from, to),
+                            generator);
+                }
+            }));
+        }
+
+        List<ToDoItem> items = new ArrayList<ToDoItem>();
+        for (Future<Partition> future : futures) {
+            try {
+                Partition partition = future.get();
+                items.addAll(partition.items);
+                children.addAll(partition.children);
+            } catch (InterruptedException e) {
+                LOG.error("InterruptedException!!!", e);
+            } catch (ExecutionException e) {
+                LOG.error("Critiquing partition killed by exception",
+                        e.getCause());
+            }
+        }
+
+        designer.getToDoList().addElements(items);
+        return children;
+    }
+
+    /**
+     * Critique a partition of the batch, on a worker thread.
+     */
+    private Partition critiquePartition(Designer designer, List<Object> dms,
+            List<Long> reasonCodes, ChildGenerator generator) {
+        Partition partition = new Partition();
+        Lock lock = designer.getModelLock().readLock();
+        lock.lock();
+        POSTED_ITEMS.set(partition.items);
+        try {
+            for (int i = 0; i < dms.size(); i++) {
+                Object dm = dms.get(i);
+                try {
+                    if (reasonCodes == null) {
+                        Agency.applyAllCritics(dm, designer);
+                    } else {
+                        designer.critiqueForReason(dm,
+                                reasonCodes.get(i).longValue());
+                    }
+                    if (generator != null) {
+                        Enumeration subDMs = generator.gen(dm);
+                        while (subDMs.hasMoreElements()) {
+                            partition.children.add(subDMs.nextElement());
+                        }
+                    }
+                } catch (InvalidElementException e) {
+                    // Don't let a transient error kill the partition
+                    LOG.warn("Element " + dm
+                            + "caused an InvalidElementException.  "
+                            + "Ignoring for this pass.");
+                }
+            }
+        } finally {
+            POSTED_ITEMS.remove();
+            lock.unlock();
+        }
+        return partition;
+    }
+
+    /**
+     * The results of the critique of a partition.
+     */
+    private static class Partition {
+        private final List<ToDoItem> items = new ArrayList<ToDoItem>();
+
+        private final List<Object> children = new ArrayList<Object>();
+    }
+}
@@ -372,6 +372,11 @@ public class ToDoItem implements Serializable, WizardItem {
     }
 
     /*
+     * The offenders are part of the hash code, as they are part of the
+     * equality: otherwise all the items of a critic collide in the hash
+     * based indexes of the ToDoList. Their hash codes are summed, as the
+     * offenders are compared as sets.
+     *
      * @see java.lang.Object#hashCode()
      */
     @Override
@@ -382,6 +387,11 @@ public class ToDoItem implements Serializable, WizardItem {
         if (getPoster() != null) {
             code += getPoster().hashCode();
         }
+        for (Object dm : getOffenders()) {
+            if (dm != null) {
+                code += dm.hashCode();
+            }
+        }
         return code;
     }
 
@@ -39,27 +39,38 @@
 
 package org.argouml.cognitive;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.swing.event.EventListenerList;
 
 import org.apache.log4j.Logger;
 import org.argouml.i18n.Translator;
 import org.argouml.model.InvalidElementException;
+import org.argouml.model.Model;
 
 /**
  * Implements a list of ToDoItem's.
  * <p>
  * 
- * It spawns a "sweeper" thread that periodically goes through the list and
- * eliminates ToDoItem's that are no longer valid.
+ * It spawns a validity checking thread that eliminates the ToDoItem's that
+ * are no longer valid. The list listens to the model events of the offenders
+ * of its items: when an offender changes or is deleted, only the items of
+ * this offender are checked again.
  * <p>
  * 
  * One difficulty designers face is keeping track of all the myriad details of
@@ -82,23 +93,53 @@ import org.argouml.model.InvalidElementException;
  * @see Designer#inform
  * @author Jason Robbins
  */
-public class ToDoList extends Observable implements Runnable {
+public class ToDoList extends Observable
+    implements Runnable, PropertyChangeListener {
     /**
      * Logger.
      */
     private static final Logger LOG = Logger.getLogger(ToDoList.class);
 
     /**
-     * Number of seconds thread should sleep between passes
+     * Pending ToDoItems for the designer to consider, guarded by the
+     * index lock.
      */
-    private static final int SLEEP_SECONDS = 3;
+    private List<ToDoItem> items;
 
     /**
-     * Pending ToDoItems for the designer to consider.
+     * A read-only copy of the items, computed when needed and dropped when
+     * the list changes. See {@link #getToDoItemList()}.
      */
-    private List<ToDoItem> items;
+    private volatile List<ToDoItem> itemSnapshot;
+
+    /**
+     * The pending ToDoItems, with the offenders they were indexed under.
+     */
+    private Map<ToDoItem, Object[]> itemOffenders;
+
+    /**
+     * The pending ToDoItems of each offender, in the order of the list.
+     */
+    private Map<Object, Set<ToDoItem>> offenderIndex;
+
+    /**
+     * The pending ToDoItems of each poster, in the order of the list.
+     */
+    private Map<Poster, Set<ToDoItem>> posterIndex;
+
+    /**
+     * The pending ToDoItems without a model element offender, e.g. the
+     * items of diagrams. The list does not listen to their offenders, so
+     * they are checked whenever an offender changes.
+     */
+    private Set<ToDoItem> unwatchedItems;
 
-    private Set<ToDoItem> itemSet;
+    /**
+     * Guards the updates of the list and of its indexes, which are
+     * written together, and lets the readers of the indexes in
+     * concurrently.
+     */
+    private ReadWriteLock indexLock;
     
     /**
      * These are computed when needed. 
@@ -119,6 +160,12 @@ public class ToDoList extends Observable implements Runnable {
      */
     private Set<ResolvedCritic> resolvedItems;
 
+    /**
+     * The resolved critics, by critic and first offender, guarded by the
+     * lock of resolvedItems. See {@link #isResolved(ToDoItem)}.
+     */
+    private Map<String, List<ResolvedCritic>> resolvedIndex;
+
     /**
      * A Thread that keeps checking if the items on the list are still valid.
      */
@@ -141,17 +188,49 @@ public class ToDoList extends Observable implements Runnable {
      */
     private boolean isPaused;
     
+    /**
+     * Guards the pause state and the work of the validity checking thread.
+     */
     private Object pausedMutex = new Object();
 
+    /**
+     * Serializes the validity checks of the validity checking thread and
+     * of forceValidityCheck(). It is only taken with the model read lock
+     * held, never the other way around.
+     */
+    private Object checkMutex = new Object();
+
+    /**
+     * The offenders that have changed since their items were last checked.
+     */
+    private Set<Object> changedOffenders = new LinkedHashSet<Object>();
+
+    /**
+     * The offenders that have been added to or removed from the list since
+     * the model events were last (un)subscribed.
+     */
+    private Set<Object> offendersToWatch = new LinkedHashSet<Object>();
+
+    /**
+     * The offenders whose model events the list listens to. Only used by
+     * the validity checking thread.
+     */
+    private Set<Object> watchedOffenders = new HashSet<Object>();
+
     /**
      * Creates a new todolist. The only ToDoList is owned by the Designer.
      */
     ToDoList() {
 
-        items = Collections.synchronizedList(new ArrayList<ToDoItem>(100));
-        itemSet = Collections.synchronizedSet(new HashSet<ToDoItem>(100));
+        items = new ArrayList<ToDoItem>(100);
+        itemOffenders = new HashMap<ToDoItem, Object[]>(100);
+        offenderIndex = new LinkedHashMap<Object, Set<ToDoItem>>(100);
+        posterIndex = new LinkedHashMap<Poster, Set<ToDoItem>>();
+        unwatchedItems = new LinkedHashSet<ToDoItem>();
+        indexLock = new ReentrantReadWriteLock();
         resolvedItems = 
             Collections.synchronizedSet(new LinkedHashSet<ResolvedCritic>(100));
+        resolvedIndex = new HashMap<String, List<ResolvedCritic>>(100);
         listenerList = new EventListenerList();
         longestToDoList = 0;
         numNotValid = 0;
@@ -172,95 +251,214 @@ public class ToDoList extends Observable implements Runnable {
     }
 
     /**
-     * Entry point for validity checker thread. Periodically check to see if
-     * items on the list are still valid.
+     * Entry point for validity checker thread. Wait for the offenders of the
+     * items to change, then check to see if their items are still valid.
      */
     public void run() {
         final List<ToDoItem> removes = new ArrayList<ToDoItem>();
         
         while (true) {
+            List<Object> watch;
+            List<Object> changed;
 
-            // the validity checking thread should wait if disabled.
+            // the validity checking thread should wait if disabled, or
+            // until there is something to do.
             synchronized (pausedMutex) {
-                while (isPaused) {
+                while (isPaused || (changedOffenders.isEmpty()
+                        && offendersToWatch.isEmpty())) {
                     try {
                         pausedMutex.wait();
                     } catch (InterruptedException ignore) {
                         LOG.error("InterruptedException!!!", ignore);
                     }
                 }
+                watch = new ArrayList<Object>(offendersToWatch);
+                offendersToWatch.clear();
+                changed = new ArrayList<Object>(changedOffenders);
+                changedOffenders.clear();
             }
 
-            forceValidityCheck(removes);
-            removes.clear();
+            // The model event pump is not called with the mutex held: it
+            // may call propertyChange() from another thread meanwhile.
+            watchOffenders(watch, changed);
+            if (!changed.isEmpty()) {
+                checkValidity(itemsToCheck(changed), removes);
+                removes.clear();
+            }
+        }
+    }
+
+    /**
+     * Listen to the model events of the offenders that are on the list, and
+     * stop listening to those that are no longer on the list.
+     *
+     * @param watch the offenders that have been added or removed
+     * @param changed the offenders whose items are to be checked; the
+     *        offenders that are deleted before they are listened to are
+     *        added to it
+     */
+    private void watchOffenders(List<Object> watch, List<Object> changed) {
+        for (Object offender : watch) {
+            boolean listed;
+            indexLock.readLock().lock();
             try {
-                Thread.sleep(SLEEP_SECONDS * 1000);
-            } catch (InterruptedException ignore) {
-                LOG.error("InterruptedException!!!", ignore);
+                listed = offenderIndex.containsKey(offender);
+            } finally {
+                indexLock.readLock().unlock();
+            }
+
+            try {
+                if (listed && !watchedOffenders.contains(offender)) {
+                    if (Model.getFacade().isAUMLElement(offender)) {
+                        Model.getPump().addModelEventListener(this, offender);
+                        watchedOffenders.add(offender);
+                    }
+                } else if (!listed && watchedOffenders.remove(offender)) {
+                    Model.getPump().removeModelEventListener(this, offender);
+                }
+            } catch (InvalidElementException e) {
+                // deleted: its items are no longer valid
+                if (listed) {
+                    changed.add(offender);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param changed the offenders that have changed
+     * @return the items of these offenders, and the items whose offenders
+     *         are not listened to, e.g. the items of diagrams, which may
+     *         depend on any change
+     */
+    private List<ToDoItem> itemsToCheck(List<Object> changed) {
+        Set<ToDoItem> toCheck = new LinkedHashSet<ToDoItem>();
+        indexLock.readLock().lock();
+        try {
+            for (Object offender : changed) {
+                Set<ToDoItem> offenderItems = offenderIndex.get(offender);
+                if (offenderItems != null) {
+                    toCheck.addAll(offenderItems);
+                }
             }
+            toCheck.addAll(unwatchedItems);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return new ArrayList<ToDoItem>(toCheck);
+    }
+
+    /*
+     * Called by the model event pump when an offender of an item changes
+     * or is deleted.
+     *
+     * @see java.beans.PropertyChangeListener#propertyChange(java.beans.PropertyChangeEvent)
+     */
+    public void propertyChange(PropertyChangeEvent pce) {
+        synchronized (pausedMutex) {
+            changedOffenders.add(pce.getSource());
+            pausedMutex.notifyAll();
+        }
+    }
+
+    /**
+     * Have the validity checking thread listen to the model events of
+     * some offenders, or stop listening to them.
+     *
+     * @param offenders the offenders that have been added to or removed
+     *        from the list
+     */
+    private void watchLater(List<Object> offenders) {
+        if (offenders.isEmpty()) {
+            return;
+        }
+        synchronized (pausedMutex) {
+            offendersToWatch.addAll(offenders);
+            pausedMutex.notifyAll();
         }
     }
 
     /**
      * Check each ToDoItem on the list to see if it is still valid. If not, then
-     * remove that item. This is called automatically by the
-     * ValidityCheckingThread, and it can be called by the user pressing a
-     * button via forceValidityCheck().
+     * remove that item. This can be called by the user pressing a
+     * button; the ValidityCheckingThread only checks the items whose
+     * offenders have changed.
      */
     public void forceValidityCheck() {
         final List<ToDoItem> removes = new ArrayList<ToDoItem>();
-        forceValidityCheck(removes);
+        // a snapshot of the list, the check does not block it
+        checkValidity(getToDoItemList(), removes);
     }
 
     /**
-     * Check each ToDoItem on the list to see if it is still valid. If not, then
-     * remove that item. This is called automatically by the
-     * ValidityCheckingThread, and it can be called by the user pressing a
-     * button via forceValidityCheck().
+     * Check some ToDoItems to see if they are still valid. If not, then
+     * remove them. This is called by the ValidityCheckingThread and by
+     * forceValidityCheck().
      * <p>
      * 
      * <em>Warning: Fragile code!</em> No method that this method calls can
-     * synchronized the Designer, otherwise there will be deadlock.
+     * synchronized the Designer, otherwise there will be deadlock. It does
+     * not hold the monitor of the ToDoList either while it waits for the
+     * model lock, which may take as long as an import: the critiquing
+     * thread notifies the observers of the ToDoList with the Designer
+     * locked.
      * 
+     * @param toCheck the items to be checked
      * @param removes a list containing the items to be removed
      */
-    private synchronized void forceValidityCheck(
+    private void checkValidity(List<ToDoItem> toCheck,
             final List<ToDoItem> removes) {
-        synchronized (items) {
-            for (ToDoItem item : items) {
-                boolean valid;
-                try {
-                    valid = item.stillValid(designer);
-                } catch (InvalidElementException ex) {
-                    // If element has been deleted, it's no longer valid
-                    valid = false;
-                } catch (Exception ex) {
-                    valid = false;
-                    StringBuffer buf = new StringBuffer(
-                            "Exception raised in ToDo list cleaning");
-                    buf.append("\n");
-                    buf.append(item.toString());
-                    LOG.error(buf.toString(), ex);
-                }
-                if (!valid) {
-                    numNotValid++;
-                    removes.add(item);
-                }
+        Lock lock = null;
+        if (designer != null) {
+            // no bulk update of the model in the middle of the check
+            lock = designer.getModelLock().readLock();
+            lock.lock();
+        }
+        try {
+            synchronized (checkMutex) {
+                checkItems(toCheck, removes);
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
             }
         }
 
-        for (ToDoItem item : removes) {
-            removeE(item);
-            // History.TheHistory.addItemResolution(item,
-            // "no longer valid");
-            // ((ToDoItem)item).resolve("no longer valid");
-            // notifyObservers("removeElement", item);
+        if (removes.isEmpty()) {
+            return;
         }
-        recomputeAllOffenders();
-        recomputeAllPosters();
+        removeAllE(removes);
+        // History.TheHistory.addItemResolution(item,
+        // "no longer valid");
+        // ((ToDoItem)item).resolve("no longer valid");
+        // notifyObservers("removeElement", item);
         fireToDoItemsRemoved(removes);
     }
 
+    private void checkItems(List<ToDoItem> toCheck,
+            final List<ToDoItem> removes) {
+        for (ToDoItem item : toCheck) {
+            boolean valid;
+            try {
+                valid = item.stillValid(designer);
+            } catch (InvalidElementException ex) {
+                // If element has been deleted, it's no longer valid
+                valid = false;
+            } catch (Exception ex) {
+                valid = false;
+                StringBuffer buf = new StringBuffer(
+                        "Exception raised in ToDo list cleaning");
+                buf.append("\n");
+                buf.append(item.toString());
+                LOG.error(buf.toString(), ex);
+            }
+            if (!valid) {
+                numNotValid++;
+                removes.add(item);
+            }
+        }
+    }
+
     /**
      * Pause the validity checking thread.
      */
@@ -335,26 +533,38 @@ public class ToDoList extends Observable implements Runnable {
 
 
     /**
-     * Returns the List of the ToDoItems.  It is <em>mandatory</em> that
-     * code iterating over this list synchronize access to the list as described
-     * in {@link Collections#synchronizedList(List)}.
-     * <pre>
-     *  List<ToDoItem> list = toDoList.getToDoItemList();
-     *      ...
-     *  synchronized(list) {
-     *      for (ToDoItem item : list ) { // Must be in synchronized block
-     *      ....
-     *  }
-     * </pre>
-     * @see Collections#synchronizedList(List)
+     * Returns a snapshot of the ToDoItems: a read-only list that does not
+     * change when items are added to or removed from the ToDoList, so code
+     * iterating over it does not need to lock it. Synchronizing on it, as
+     * was required when it was the list itself, does not exclude the
+     * writers anymore; it is harmless, but no longer needed.
+     * <p>
+     * The snapshot is shared by the callers until the ToDoList changes, so
+     * reading the list several times in a row copies it only once.
+     *
      * @return the List of ToDo items.
      */
     public List<ToDoItem> getToDoItemList() {
-        return items;
+        List<ToDoItem> snapshot = itemSnapshot;
+        if (snapshot == null) {
+            indexLock.readLock().lock();
+            try {
+                snapshot = Collections.unmodifiableList(
+                        new ArrayList<ToDoItem>(items));
+                // set with the lock held, so that it is not reset by a
+                // writer before being set
+                itemSnapshot = snapshot;
+            } finally {
+                indexLock.readLock().unlock();
+            }
+        }
+        return snapshot;
     }
 
     /**
-     * Returns the set of ResolvedCritics.  It is <em>mandatory</em> that
+     * Returns the set of ResolvedCritics.  Resolved critics are to be added
+     * with {@link #addResolvedCritic(ResolvedCritic)}, which indexes them.
+     * It is <em>mandatory</em> that
      * code iterating over this set synchronize access to the set as described
      * in {@link Collections#synchronizedSet(Set)}.
      * <pre>
@@ -382,24 +592,18 @@ public class ToDoList extends Observable implements Runnable {
         // this method is running.
         ListSet all = allOffenders;
         if (all == null) {
-            int size = items.size();
-            all = new ListSet(size * 2);
-            synchronized (items) {
-                for (ToDoItem item : items) {
-                    all.addAll(item.getOffenders());
-                }
+            indexLock.readLock().lock();
+            try {
+                all = new ListSet(offenderIndex.size() * 2);
+                all.addAll(offenderIndex.keySet());
+            } finally {
+                indexLock.readLock().unlock();
             }
             allOffenders = all;
         }
         return all;
     }
 
-    private void addOffenders(ListSet newoffs) {
-        if (allOffenders != null) {
-            allOffenders.addAll(newoffs);
-        }
-    }
-
     /**
      * @return the set of all the posters
      */
@@ -408,23 +612,18 @@ public class ToDoList extends Observable implements Runnable {
         // this method is running.
         ListSet<Poster> all = allPosters;
         if (all == null) {
-            all = new ListSet<Poster>();
-            synchronized (items) {
-                for (ToDoItem item : items) {
-                    all.add(item.getPoster());
-                }
+            indexLock.readLock().lock();
+            try {
+                all = new ListSet<Poster>();
+                all.addAll(posterIndex.keySet());
+            } finally {
+                indexLock.readLock().unlock();
             }
             allPosters = all;
         }
         return all;
     }
 
-    private void addPosters(Poster newp) {
-        if (allPosters != null) {
-            allPosters.add(newp);
-        }
-    }
-
 
     /**
      * @return the list of Decisions (empty by default).
@@ -442,49 +641,74 @@ public class ToDoList extends Observable implements Runnable {
     }
 
     /*
-     * TODO: needs documenting, why synchronized?
+     * Add the items that are neither on the list nor resolved, and index
+     * them.
+     *
+     * Does not fire the ToDoListListeners, so that a batch of items
+     * can be notified at once.
+     *
+     * @return the items that have been added
      */
-    private void addE(ToDoItem item) {
-        /* skip any identical items already on the list */
-        if (itemSet.contains(item)) {
-            return;
+    private List<ToDoItem> addAllE(Collection<ToDoItem> newItems) {
+        List<ToDoItem> added = new ArrayList<ToDoItem>(newItems.size());
+        for (ToDoItem item : newItems) {
+            /* skip any identical items already on the list */
+            if (!contains(item) && !isResolved(item)) {
+                added.add(item);
+            }
+        }
+        if (added.isEmpty()) {
+            return added;
         }
 
-        if (item.getPoster() instanceof Critic) {
-            ResolvedCritic rc;
-            try {
-                rc = new ResolvedCritic((Critic) item.getPoster(), item
-                        .getOffenders(), false);
-                Iterator<ResolvedCritic> elems = resolvedItems.iterator();
-                // cat.debug("Checking for inhibitors " + rc);
-                while (elems.hasNext()) {
-                    if (elems.next().equals(rc)) {
-                        LOG.debug("ToDoItem not added because it was resolved");
-                        return;
-                    }
+        List<Object> newOffenders = new ArrayList<Object>();
+        indexLock.writeLock().lock();
+        try {
+            // items may have been added by another thread in the meantime
+            Set<ToDoItem> batch = new LinkedHashSet<ToDoItem>(added);
+            for (ToDoItem item : added) {
+                if (itemOffenders.containsKey(item)) {
+                    batch.remove(item);
+                } else {
+                    index(item, newOffenders);
                 }
-            } catch (UnresolvableException ure) {
             }
+            added = new ArrayList<ToDoItem>(batch);
+            items.addAll(added);
+            recomputeItemSnapshot();
+            longestToDoList = Math.max(longestToDoList, items.size());
+        } finally {
+            indexLock.writeLock().unlock();
         }
-
-        items.add(item);
-        itemSet.add(item);
-        longestToDoList = Math.max(longestToDoList, items.size());
-        addOffenders(item.getOffenders());
-        addPosters(item.getPoster());
-        // if (item.getPoster() instanceof Designer)
-        // History.TheHistory.addItem(item, "note: ");
-        // else
-        // History.TheHistory.addItemCritique(item);
-        notifyObservers("addElement", item);
-        fireToDoItemAdded(item);
+        watchLater(newOffenders);
+
+        for (ToDoItem item : added) {
+            // if (item.getPoster() instanceof Designer)
+            // History.TheHistory.addItem(item, "note: ");
+            // else
+            // History.TheHistory.addItemCritique(item);
+            notifyObservers("addElement", item);
+        }
+        return added;
     }
 
     /**
      * @param item the todo item to be added
      */
     public void addElement(ToDoItem item) {
-        addE(item);
+        if (!addAllE(Collections.singletonList(item)).isEmpty()) {
+            fireToDoItemAdded(item);
+        }
+    }
+
+    /**
+     * Add a batch of todo items. The listeners are notified once for
+     * the whole batch, instead of once per item.
+     *
+     * @param newItems the todo items to be added
+     */
+    public void addElements(List<ToDoItem> newItems) {
+        fireToDoItemsAdded(addAllE(newItems));
     }
 
     /**
@@ -493,11 +717,7 @@ public class ToDoList extends Observable implements Runnable {
     public void removeAll(ToDoList list) {
         List<ToDoItem> itemList = list.getToDoItemList();
         synchronized (itemList) {
-            for (ToDoItem item : itemList) {
-                removeE(item);
-            }
-            recomputeAllOffenders();
-            recomputeAllPosters();
+            removeAllE(itemList);
             fireToDoItemsRemoved(itemList);
         }
     }
@@ -508,8 +728,200 @@ public class ToDoList extends Observable implements Runnable {
      *         <code>false</code> otherwise
      */
     private boolean removeE(ToDoItem item) {
-        itemSet.remove(item);
-        return items.remove(item);
+        return removeAllE(Collections.singletonList(item));
+    }
+
+    /**
+     * Remove some items from the list and from its indexes. The list is
+     * walked once for the whole batch.
+     *
+     * @param oldItems the todo items to be removed
+     * @return <code>true</code> if one of the items was a component of this
+     *         list; <code>false</code> otherwise
+     */
+    private boolean removeAllE(Collection<ToDoItem> oldItems) {
+        List<Object> oldOffenders = new ArrayList<Object>();
+        boolean res;
+        indexLock.writeLock().lock();
+        try {
+            Set<ToDoItem> removed = new HashSet<ToDoItem>();
+            for (ToDoItem item : oldItems) {
+                if (itemOffenders.containsKey(item)) {
+                    unindex(item, oldOffenders);
+                    removed.add(item);
+                }
+            }
+            res = !removed.isEmpty() && items.removeAll(removed);
+            if (res) {
+                recomputeItemSnapshot();
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        watchLater(oldOffenders);
+        return res;
+    }
+
+    /**
+     * Add an item to the indexes. The caller holds the write lock.
+     *
+     * @param item the todo item
+     * @param newOffenders the offenders that were not on the list yet are
+     *        added to it
+     */
+    private void index(ToDoItem item, List<Object> newOffenders) {
+        Object[] offenders = item.getOffenders().toArray();
+        itemOffenders.put(item, offenders);
+        for (Object offender : offenders) {
+            Set<ToDoItem> offenderItems = offenderIndex.get(offender);
+            if (offenderItems == null) {
+                offenderItems = new LinkedHashSet<ToDoItem>();
+                offenderIndex.put(offender, offenderItems);
+                newOffenders.add(offender);
+                ListSet all = allOffenders;
+                if (all != null) {
+                    all.add(offender);
+                }
+            }
+            offenderItems.add(item);
+        }
+        if (!hasModelElement(offenders)) {
+            unwatchedItems.add(item);
+        }
+
+        Poster poster = item.getPoster();
+        Set<ToDoItem> posterItems = posterIndex.get(poster);
+        if (posterItems == null) {
+            posterItems = new LinkedHashSet<ToDoItem>();
+            posterIndex.put(poster, posterItems);
+            ListSet<Poster> all = allPosters;
+            if (all != null) {
+                all.add(poster);
+            }
+        }
+        posterItems.add(item);
+    }
+
+    /**
+     * Remove an item from the indexes. The caller holds the write lock.
+     *
+     * @param item the todo item
+     * @param oldOffenders the offenders that are no longer on the list are
+     *        added to it
+     */
+    private void unindex(ToDoItem item, List<Object> oldOffenders) {
+        for (Object offender : itemOffenders.remove(item)) {
+            Set<ToDoItem> offenderItems = offenderIndex.get(offender);
+            if (offenderItems != null) {
+                offenderItems.remove(item);
+                if (offenderItems.isEmpty()) {
+                    offenderIndex.remove(offender);
+                    oldOffenders.add(offender);
+                    recomputeAllOffenders();
+                }
+            }
+        }
+        unwatchedItems.remove(item);
+
+        Set<ToDoItem> posterItems = posterIndex.get(item.getPoster());
+        if (posterItems != null) {
+            posterItems.remove(item);
+            if (posterItems.isEmpty()) {
+                posterIndex.remove(item.getPoster());
+                recomputeAllPosters();
+            }
+        }
+    }
+
+    /**
+     * @param offenders the offenders of an item
+     * @return true if one of them is a model element, whose model events
+     *         the validity checking thread listens to
+     */
+    private static boolean hasModelElement(Object[] offenders) {
+        for (Object offender : offenders) {
+            if (Model.getFacade().isAUMLElement(offender)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param item the todo item
+     * @return true if the item is on the list
+     */
+    private boolean contains(ToDoItem item) {
+        indexLock.readLock().lock();
+        try {
+            return itemOffenders.containsKey(item);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if the designer has resolved the critic of an item for its
+     * offenders. A resolved critic matches the item if it has the same
+     * critic and if all its offenders are offenders of the item (see
+     * {@link ResolvedCritic#equals(Object)}), so it is found under its
+     * critic and either its first offender, which is then one of the
+     * offenders of the item, or no offender.
+     *
+     * @param item the todo item
+     * @return true if the item is not to be added
+     */
+    private boolean isResolved(ToDoItem item) {
+        if (!(item.getPoster() instanceof Critic)) {
+            return false;
+        }
+        ResolvedCritic rc;
+        try {
+            rc = new ResolvedCritic((Critic) item.getPoster(), item
+                    .getOffenders(), false);
+        } catch (UnresolvableException ure) {
+            return false;
+        }
+
+        synchronized (resolvedItems) {
+            // cat.debug("Checking for inhibitors " + rc);
+            if (isResolvedUnder(resolvedKey(rc.getCritic(), null), rc)) {
+                return true;
+            }
+            for (String offender : rc.getOffenderList()) {
+                if (offender != null && isResolvedUnder(
+                        resolvedKey(rc.getCritic(), offender), rc)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isResolvedUnder(String key, ResolvedCritic rc) {
+        List<ResolvedCritic> candidates = resolvedIndex.get(key);
+        if (candidates != null) {
+            for (ResolvedCritic candidate : candidates) {
+                if (candidate.equals(rc)) {
+                    LOG.debug("ToDoItem not added because it was resolved");
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param critic the name of a critic
+     * @param offender the id of an offender, or null
+     * @return the key of the resolved critics of this critic whose first
+     *         offender is this offender
+     */
+    private static String resolvedKey(String critic, String offender) {
+        if (offender == null) {
+            return String.valueOf(critic);
+        }
+        return critic + "\n" + offender;
     }
 
     /**
@@ -519,8 +931,6 @@ public class ToDoList extends Observable implements Runnable {
      */
     public boolean removeElement(ToDoItem item) {
         boolean res = removeE(item);
-        recomputeAllOffenders();
-        recomputeAllPosters();
         fireToDoItemRemoved(item);
         notifyObservers("removeElement", item);
         return res;
@@ -576,7 +986,26 @@ public class ToDoList extends Observable implements Runnable {
      *         otherwise
      */
     public boolean addResolvedCritic(ResolvedCritic rc) {
-        return resolvedItems.add(rc);
+        synchronized (resolvedItems) {
+            if (!resolvedItems.add(rc)) {
+                return false;
+            }
+            String first = null;
+            for (String offender : rc.getOffenderList()) {
+                if (offender != null) {
+                    first = offender;
+                    break;
+                }
+            }
+            String key = resolvedKey(rc.getCritic(), first);
+            List<ResolvedCritic> resolved = resolvedIndex.get(key);
+            if (resolved == null) {
+                resolved = new ArrayList<ResolvedCritic>(1);
+                resolvedIndex.put(key, resolved);
+            }
+            resolved.add(rc);
+            return true;
+        }
     }
 
     /**
@@ -584,12 +1013,24 @@ public class ToDoList extends Observable implements Runnable {
      */
     public void removeAllElements() {
         LOG.debug("removing all todo items");
-        List<ToDoItem> oldItems = new ArrayList<ToDoItem>(items);
-        items.clear();
-        itemSet.clear();
-
-        recomputeAllOffenders();
-        recomputeAllPosters();
+        List<ToDoItem> oldItems;
+        List<Object> oldOffenders;
+        indexLock.writeLock().lock();
+        try {
+            oldItems = new ArrayList<ToDoItem>(items);
+            oldOffenders = new ArrayList<Object>(offenderIndex.keySet());
+            items.clear();
+            recomputeItemSnapshot();
+            itemOffenders.clear();
+            offenderIndex.clear();
+            posterIndex.clear();
+            unwatchedItems.clear();
+            recomputeAllOffenders();
+            recomputeAllPosters();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        watchLater(oldOffenders);
         notifyObservers("removeAllElements");
         fireToDoItemsRemoved(oldItems);
     }
@@ -607,22 +1048,46 @@ public class ToDoList extends Observable implements Runnable {
      *         it.
      */
     public List<ToDoItem> elementListForOffender(Object offender) {
-        List<ToDoItem> offenderItems = new ArrayList<ToDoItem>();
-        synchronized (items) {
-            for (ToDoItem item : items) {
-                if (item.getOffenders().contains(offender)) {
-                    offenderItems.add(item);
-                }
+        indexLock.readLock().lock();
+        try {
+            Set<ToDoItem> offenderItems = offenderIndex.get(offender);
+            if (offenderItems == null) {
+                return new ArrayList<ToDoItem>();
             }
+            return new ArrayList<ToDoItem>(offenderItems);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param poster the poster
+     * @return A List of todo items posted by this poster. The list is a
+     *         private copy, as for {@link #elementListForOffender(Object)}.
+     */
+    public List<ToDoItem> elementListForPoster(Poster poster) {
+        indexLock.readLock().lock();
+        try {
+            Set<ToDoItem> posterItems = posterIndex.get(poster);
+            if (posterItems == null) {
+                return new ArrayList<ToDoItem>();
+            }
+            return new ArrayList<ToDoItem>(posterItems);
+        } finally {
+            indexLock.readLock().unlock();
         }
-        return offenderItems;
     }
 
     /**
      * @return the number of todo items
      */
     public int size() {
-        return items.size();
+        indexLock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            indexLock.readLock().unlock();
+        }
     }
 
     /**
@@ -630,7 +1095,19 @@ public class ToDoList extends Observable implements Runnable {
      * @return the ToDoItem at the given index
      */
     public ToDoItem get(int index) {
-        return items.get(index);
+        indexLock.readLock().lock();
+        try {
+            return items.get(index);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drop the snapshot of the items. The caller holds the write lock.
+     */
+    private void recomputeItemSnapshot() {
+        itemSnapshot = null;
     }
 
     /**
@@ -49,6 +49,7 @@ import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.locks.Lock;
 
 import org.argouml.application.api.Argo;
 import org.argouml.cognitive.Designer;
@@ -536,9 +537,13 @@ public abstract class ImportCommon implements ImportSettingsInternal {
         if (criticThreadWasOn) {
             Designer.theDesigner().setAutoCritique(false);
         }
+        // wait for the critics still running in parallel, if any
+        Lock modelLock = Designer.theDesigner().getModelLock().writeLock();
+        modelLock.lock();
         try {
             doImportInternal(files, monitor, progress);
         } finally {
+            modelLock.unlock();
             if (criticThreadWasOn) {
                 Designer.theDesigner().setAutoCritique(true);
             }
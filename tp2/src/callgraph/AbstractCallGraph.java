@@ -1,5 +1,8 @@
 package callgraph;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -30,7 +33,7 @@ import processors.BaseProcessor;
  * @author anonbnr
  * @author Amandine Paillard
  */
-public abstract class AbstractCallGraph {
+public abstract class AbstractCallGraph implements CallGraphBuilder {
 	
 	/* ATTRIBUTES */
 	private Set<String> methods = new HashSet<>();
@@ -134,6 +137,42 @@ public abstract class AbstractCallGraph {
 				this.addInvocation(source, destination, map.get(source).get(destination));
 	}
 	
+	/**
+	 * Adds delta to the number of invocations source -> destination.<br>
+	 * A negative delta retracts invocations: the invocation is removed
+	 * once its number of invocations drops to 0.
+	 * @param source the source of the invocation.
+	 * @param destination the destination of the invocation.
+	 * @param delta the number of invocations to add (or retract if negative).
+	 */
+	public void incrementInvocation(String source, String destination, int delta) {
+		Map<String, Integer> destinations = invocations.get(source);
+		int occurrences = delta;
+
+		if (destinations != null && destinations.containsKey(destination))
+			occurrences += destinations.get(destination);
+
+		if (occurrences > 0)
+			this.addInvocation(source, destination, occurrences);
+
+		else if (destinations != null) {
+			destinations.remove(destination);
+
+			if (destinations.isEmpty())
+				invocations.remove(source);
+		}
+	}
+
+	/**
+	 * Removes a method from the invocation member methods of the call graph.<br>
+	 * Its invocations are kept, they must be retracted separately.
+	 * @param method the invocation member method to remove.
+	 * @return true if the method had been removed.
+	 */
+	public boolean removeMethod(String method) {
+		return methods.remove(method);
+	}
+
 	/**
 	 * Checks if the provided strings designate the fully qualified names
 	 * of source and destination candidate methods of at least one invocation
@@ -148,19 +187,46 @@ public abstract class AbstractCallGraph {
 				invocations.get(source).containsKey(destination);
 	}
 	
+	/**
+	 * Builds the compact, integer-indexed representation of the call graph,
+	 * better suited to the queries on large call graphs.
+	 * @return the compact representation of the call graph.
+	 * @see CompactCallGraph
+	 */
+	public CompactCallGraph compact() {
+		CompactCallGraph.Builder builder = new CompactCallGraph.Builder();
+
+		for (String method: methods)
+			builder.addMethod(method);
+
+		for (String source: invocations.keySet())
+			for (Map.Entry<String, Integer> destination: invocations.get(source).entrySet())
+				builder.addInvocation(source, destination.getKey(), destination.getValue());
+
+		return builder.build();
+	}
+	
+	/**
+	 * Writes the invocations of the call graph to a writer, as they are
+	 * gone through, in the same format as toString().
+	 * @param writer the writer.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	public void write(Writer writer) throws IOException {
+		new TextCallGraphExporter().export(this, writer);
+	}
+	
 	// TOSTRING
 	@Override
 	public String toString() {
-		StringBuffer buf = new StringBuffer();
+		StringWriter writer = new StringWriter();
 		
-		for (String source: invocations.keySet()) {
-			buf.append(source + ":\n");
-			
-			for (String destination: invocations.get(source).keySet())
-				buf.append("  ---> " + destination + 
-						" (" + invocations.get(source).get(destination) + " fois)\n");
+		try {
+			this.write(writer);
+		} catch (IOException e) {
+			// a StringWriter does not throw IOExceptions
 		}
 		
-		return buf.toString();
+		return writer.toString();
 	}
 }
@@ -0,0 +1,28 @@
+package callgraph;
+
+/**
+ * A receiver of the methods and invocations found while parsing a project.<br>
+ * The map-based call graphs receive them directly, while a
+ * {@link CompactCallGraph.Builder} only buffers them as ints, so that the
+ * compact call graph of a project is built without a map-based one.
+ * @author anonbnr
+ * @author Amandine Paillard
+ * @see StaticCallGraph#extract(org.eclipse.jdt.core.dom.CompilationUnit, CallGraphBuilder)
+ */
+public interface CallGraphBuilder {
+
+	/**
+	 * Adds a method designating the source or destination
+	 * of an invocation in the call graph.
+	 * @param method an invocation member method.
+	 * @return true if the method had been added.
+	 */
+	boolean addMethod(String method);
+
+	/**
+	 * Adds one invocation source -> destination to the call graph.
+	 * @param source the source of the invocation.
+	 * @param destination the destination of the invocation.
+	 */
+	void addInvocation(String source, String destination);
+}
@@ -0,0 +1,147 @@
+package callgraph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * An abstract base class for all call graph exporters.<br>
+ * An exporter writes the methods and invocations of a call graph to a Writer
+ * as it goes through them, so that no representation of the whole output is ever
+ * built in memory. The exported call graph can be filtered by:
+ * <dl>
+ * <dt>package prefix</dt>
+ * <dd>Only the methods whose fully-qualified name starts with the prefix are
+ * exported, along with the invocations between two such methods</dd>
+ * <dt>minimum weight</dt>
+ * <dd>Only the invocations source -> destination occurring at least
+ * that number of times are exported</dd>
+ * </dl>
+ * 
+ * @author anonbnr
+ * @author Amandine Paillard
+ */
+public abstract class CallGraphExporter {
+	
+	/* ATTRIBUTES */
+	private String packagePrefix;
+	private int minWeight;
+	
+	/* CONSTRUCTORS */
+	public CallGraphExporter() {
+		this("", 1);
+	}
+	
+	public CallGraphExporter(String packagePrefix, int minWeight) {
+		this.setPackagePrefix(packagePrefix);
+		this.setMinWeight(minWeight);
+	}
+	
+	/* METHODS */
+	// getters & setters
+	public String getPackagePrefix() {return this.packagePrefix;}
+	public void setPackagePrefix(String packagePrefix) {this.packagePrefix = packagePrefix == null ? "" : packagePrefix;}
+	public int getMinWeight() {return this.minWeight;}
+	public void setMinWeight(int minWeight) {this.minWeight = minWeight;}
+	
+	// business logic
+	/**
+	 * Exports a call graph to an output stream, encoded in UTF-8.
+	 * The output stream is flushed but not closed.
+	 * @param graph the call graph to export.
+	 * @param out the output stream.
+	 * @throws IOException if the output stream cannot be written.
+	 */
+	public void export(AbstractCallGraph graph, OutputStream out) throws IOException {
+		export(graph, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * Exports a call graph to a writer.
+	 * The writer is flushed but not closed.
+	 * @param graph the call graph to export.
+	 * @param writer the writer.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	public void export(AbstractCallGraph graph, Writer writer) throws IOException {
+		export(graph.getMethods(), graph.getInvocations(), writer);
+	}
+	
+	/**
+	 * Exports the methods and the source -> destination -> inv invocations
+	 * of a call graph to a writer.
+	 * The writer is flushed but not closed.
+	 * @param methods the methods of the call graph.
+	 * @param invocations the invocations of the call graph.
+	 * @param writer the writer.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	public void export(Iterable<String> methods, 
+			Map<String, ? extends Map<String, ? extends Number>> invocations, 
+			Writer writer) throws IOException {
+		writeHeader(writer);
+		
+		for (String method: methods)
+			if (isExported(method))
+				writeMethod(writer, method);
+		
+		for (Map.Entry<String, ? extends Map<String, ? extends Number>> source: invocations.entrySet()) {
+			if (!isExported(source.getKey()))
+				continue;
+			
+			for (Map.Entry<String, ? extends Number> destination: source.getValue().entrySet())
+				if (isExported(destination.getKey()) && destination.getValue().longValue() >= minWeight)
+					writeInvocation(writer, source.getKey(), destination.getKey(), 
+							destination.getValue().longValue());
+		}
+		
+		writeFooter(writer);
+		writer.flush();
+	}
+	
+	/**
+	 * Checks if a method passes the package prefix filter.
+	 * @param method the fully-qualified name of the method.
+	 * @return true if the method is exported.
+	 */
+	protected boolean isExported(String method) {
+		return method.startsWith(packagePrefix);
+	}
+	
+	/**
+	 * Writes what comes before the methods and invocations.
+	 * @param writer the writer.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	protected void writeHeader(Writer writer) throws IOException {}
+	
+	/**
+	 * Writes a method of the call graph.
+	 * @param writer the writer.
+	 * @param method the fully-qualified name of the method.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	protected void writeMethod(Writer writer, String method) throws IOException {}
+	
+	/**
+	 * Writes an invocation source -> destination -> inv of the call graph.
+	 * @param writer the writer.
+	 * @param source the source of the invocation.
+	 * @param destination the destination of the invocation.
+	 * @param occurrences the number of invocations source -> destination.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	protected abstract void writeInvocation(Writer writer, String source, String destination, 
+			long occurrences) throws IOException;
+	
+	/**
+	 * Writes what comes after the methods and invocations.
+	 * @param writer the writer.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	protected void writeFooter(Writer writer) throws IOException {}
+}
@@ -0,0 +1,372 @@
+package callgraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import parsers.Parser;
+import processors.BaseProcessor;
+
+/**
+ * A compact, read-only representation of a call graph.<br>
+ * Every method is interned to an integer id (its index in the alphabetically
+ * sorted array of method names, found by binary search), and the invocations are stored in compressed sparse rows:
+ * the invocations of the method of id i are the entries offsets[i] to
+ * offsets[i+1] - 1 of the targets and weights arrays, sorted by target id.
+ * The same layout is kept for the reversed invocations, so that the callers
+ * of a method are found as fast as its callees.<br>
+ * An invocation costs two ints in each direction, instead of a map entry,
+ * a boxed counter and the strings of the call graph it was built from.<br>
+ * A compact call graph is built by a {@link Builder}, e.g. directly from the
+ * parse of a project with {@link #createCallGraph(String)}, without a map-based
+ * call graph.
+ * @author anonbnr
+ * @author Amandine Paillard
+ * @see CallGraphBuilder
+ */
+public class CompactCallGraph {
+
+	/* ATTRIBUTES */
+	private String[] names; // id -> method name, sorted: method name -> id by binary search
+
+	// source -> destinations
+	private int[] offsets;
+	private int[] targets;
+	private int[] weights;
+
+	// destination -> sources
+	private int[] reverseOffsets;
+	private int[] sources;
+	private int[] reverseWeights;
+
+	/* CONSTRUCTOR */
+	/**
+	 * builds the compact call graph of some invocations in compressed sparse rows.
+	 * @param names the method names, sorted.
+	 * @param offsets the offsets of the rows of the invocations, by source id.
+	 * @param targets the destination ids of the invocations, sorted in every row.
+	 * @param weights the numbers of invocations.
+	 */
+	private CompactCallGraph(String[] names, int[] offsets, int[] targets, int[] weights) {
+		int nbMethods = names.length;
+		this.names = names;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+
+		reverseOffsets = new int[nbMethods + 1];
+		sources = new int[targets.length];
+		reverseWeights = new int[targets.length];
+
+		for (int target: targets)
+			reverseOffsets[target + 1]++;
+
+		for (int i = 0; i < nbMethods; i++)
+			reverseOffsets[i + 1] += reverseOffsets[i];
+
+		// sources are visited in id order, so that every reversed row is sorted
+		int[] filled = Arrays.copyOf(reverseOffsets, nbMethods);
+
+		for (int source = 0; source < nbMethods; source++) {
+			for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+				int slot = filled[targets[e]]++;
+				sources[slot] = source;
+				reverseWeights[slot] = weights[e];
+			}
+		}
+	}
+
+	/**
+	 * creates the compact call graph of the whole project identified by its path.
+	 * The source files are parsed one at a time, and their invocations are buffered
+	 * as ints: no map-based call graph of the project is built.
+	 * @param projectPath the project path.
+	 * @return the compact call graph of the whole project.
+	 * @throws IOException if the content of a source file in the project cannot be read.
+	 */
+	public static CompactCallGraph createCallGraph(String projectPath) throws IOException {
+		Parser parser = new BaseProcessor(projectPath).getParser();
+		Builder builder = new Builder();
+
+		for (File sourceFile: parser.listJavaFilesForProject())
+			StaticCallGraph.extract(parser.parse(sourceFile), builder);
+
+		return builder.build();
+	}
+
+	/* METHODS */
+	// getters
+	/**
+	 * getter of the number of methods of the call graph.
+	 * @return the number of methods.
+	 */
+	public int getNumberOfMethods() {return names.length;}
+
+	/**
+	 * getter of the number of distinct invocations source -> destination of the call graph.
+	 * @return the number of invocations.
+	 */
+	public int getNumberOfInvocations() {return targets.length;}
+
+	/**
+	 * getter of the id of a method.
+	 * @param method the fully-qualified name of the method.
+	 * @return the id of the method, or -1 if it is not in the call graph.
+	 */
+	public int getId(String method) {
+		int id = Arrays.binarySearch(names, method);
+		return id < 0 ? -1 : id;
+	}
+
+	/**
+	 * getter of the name of a method.
+	 * @param id the id of the method.
+	 * @return the fully-qualified name of the method.
+	 */
+	public String getName(int id) {return names[id];}
+
+	// business logic
+	/**
+	 * Computes the fan-out of a method.
+	 * @param id the id of the method.
+	 * @return the number of distinct methods invoked by the method.
+	 */
+	public int getFanOut(int id) {
+		return offsets[id + 1] - offsets[id];
+	}
+
+	/**
+	 * Computes the fan-in of a method.
+	 * @param id the id of the method.
+	 * @return the number of distinct methods invoking the method.
+	 */
+	public int getFanIn(int id) {
+		return reverseOffsets[id + 1] - reverseOffsets[id];
+	}
+
+	/**
+	 * Provides the methods invoked by a method.
+	 * @param id the id of the method.
+	 * @return the ids of the invoked methods, sorted.
+	 */
+	public int[] getCallees(int id) {
+		return Arrays.copyOfRange(targets, offsets[id], offsets[id + 1]);
+	}
+
+	/**
+	 * Provides the methods invoking a method.
+	 * @param id the id of the method.
+	 * @return the ids of the invoking methods, sorted.
+	 */
+	public int[] getCallers(int id) {
+		return Arrays.copyOfRange(sources, reverseOffsets[id], reverseOffsets[id + 1]);
+	}
+
+	/**
+	 * Provides the number of invocations source -> destination.
+	 * @param source the id of the source method.
+	 * @param destination the id of the destination method.
+	 * @return the number of invocations, 0 if the source never invokes the destination.
+	 */
+	public int getWeight(int source, int destination) {
+		int e = Arrays.binarySearch(targets, offsets[source], offsets[source + 1], destination);
+		return e < 0 ? 0 : weights[e];
+	}
+
+	/**
+	 * Computes the methods reachable from a method through invocations,
+	 * the method included.
+	 * @param id the id of the method.
+	 * @return the set of ids of the reachable methods.
+	 */
+	public BitSet getReachableMethods(int id) {
+		BitSet reached = new BitSet(names.length);
+		int[] stack = new int[names.length];
+		int top = 0;
+
+		reached.set(id);
+		stack[top++] = id;
+
+		while (top > 0) {
+			int method = stack[--top];
+
+			for (int e = offsets[method]; e < offsets[method + 1]; e++) {
+				if (!reached.get(targets[e])) {
+					reached.set(targets[e]);
+					stack[top++] = targets[e];
+				}
+			}
+		}
+
+		return reached;
+	}
+
+	/**
+	 * Checks if a method can be reached from another one through invocations.
+	 * @param source the id of the source method.
+	 * @param destination the id of the destination method.
+	 * @return true if there is a path of invocations source -> ... -> destination.
+	 */
+	public boolean isReachable(int source, int destination) {
+		return getReachableMethods(source).get(destination);
+	}
+
+	/**
+	 * Provides the k methods invoking a method the most.
+	 * @param id the id of the invoked method.
+	 * @param k the maximum number of callers.
+	 * @return the ids of the top-k callers, by decreasing number of invocations.
+	 */
+	public int[] getTopCallers(int id, int k) {
+		// min-heap of the k best callers seen so far, on (weight, -id)
+		PriorityQueue<long[]> best = new PriorityQueue<>((a, b) ->
+			a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(b[0], a[0]));
+
+		for (int e = reverseOffsets[id]; e < reverseOffsets[id + 1]; e++) {
+			best.add(new long[] {sources[e], reverseWeights[e]});
+
+			if (best.size() > k)
+				best.poll();
+		}
+
+		int[] callers = new int[best.size()];
+
+		for (int i = callers.length - 1; i >= 0; i--)
+			callers[i] = (int) best.poll()[0];
+
+		return callers;
+	}
+
+	/**
+	 * Buffers the methods and invocations of a call graph being built, then
+	 * builds its compact representation. Every method is given a temporary id
+	 * when it is first added, and every invocation is buffered as three ints:
+	 * the ids of its source and destination, and its number of invocations.
+	 * The invocations added several times are summed up by build().
+	 */
+	public static class Builder implements CallGraphBuilder {
+
+		/* ATTRIBUTES */
+		private Map<String, Integer> ids = new HashMap<>(); // method name -> temporary id
+		private List<String> methods = new ArrayList<>(); // temporary id -> method name
+		private int[] invocations = new int[3 * 64]; // source, destination, number of invocations
+		private int size = 0; // number of ints used in invocations
+
+		/* METHODS */
+		@Override
+		public boolean addMethod(String method) {
+			int nbMethods = methods.size();
+			intern(method);
+			return methods.size() > nbMethods;
+		}
+
+		@Override
+		public void addInvocation(String source, String destination) {
+			addInvocation(source, destination, 1);
+		}
+
+		/**
+		 * Adds invocations source -> destination to the call graph.
+		 * @param source the source of the invocations.
+		 * @param destination the destination of the invocations.
+		 * @param occurrences the number of invocations source -> destination to add.
+		 */
+		public void addInvocation(String source, String destination, int occurrences) {
+			if (size + 3 > invocations.length)
+				invocations = Arrays.copyOf(invocations, invocations.length * 2);
+
+			invocations[size++] = intern(source);
+			invocations[size++] = intern(destination);
+			invocations[size++] = occurrences;
+		}
+
+		/**
+		 * Builds the compact call graph. The ids are reassigned in alphabetical
+		 * order of the methods, and the rows are sorted by destination id.
+		 * The builder must not be used afterwards.
+		 * @return the compact call graph.
+		 */
+		public CompactCallGraph build() {
+			int nbMethods = methods.size();
+			String[] names = methods.toArray(new String[nbMethods]);
+			Arrays.sort(names);
+
+			int[] remap = new int[nbMethods];
+
+			for (int id = 0; id < nbMethods; id++)
+				remap[id] = Arrays.binarySearch(names, methods.get(id));
+
+			ids = null;
+			methods = null;
+
+			// bucket the invocations by source: destination in the high int, weight in the low one
+			int nbInvocations = size / 3;
+			int[] rows = new int[nbMethods + 1];
+
+			for (int i = 0; i < size; i += 3)
+				rows[remap[invocations[i]] + 1]++;
+
+			for (int i = 0; i < nbMethods; i++)
+				rows[i + 1] += rows[i];
+
+			long[] row = new long[nbInvocations];
+			int[] filled = Arrays.copyOf(rows, nbMethods);
+
+			for (int i = 0; i < size; i += 3)
+				row[filled[remap[invocations[i]]]++] =
+					((long) remap[invocations[i + 1]] << 32) | (invocations[i + 2] & 0xffffffffL);
+
+			invocations = null;
+
+			// sort every row by destination, and sum up the repeated invocations
+			int[] offsets = new int[nbMethods + 1];
+			int[] targets = new int[nbInvocations];
+			int[] weights = new int[nbInvocations];
+			int e = 0;
+
+			for (int source = 0; source < nbMethods; source++) {
+				Arrays.sort(row, rows[source], rows[source + 1]);
+
+				for (int i = rows[source]; i < rows[source + 1]; i++) {
+					int target = (int) (row[i] >>> 32);
+					int weight = (int) row[i];
+
+					if (e > offsets[source] && targets[e - 1] == target)
+						weights[e - 1] += weight;
+					else {
+						targets[e] = target;
+						weights[e++] = weight;
+					}
+				}
+
+				offsets[source + 1] = e;
+			}
+
+			return new CompactCallGraph(names, offsets,
+					Arrays.copyOf(targets, e), Arrays.copyOf(weights, e));
+		}
+
+		/**
+		 * Gives a temporary id to a method, if it has none yet.
+		 * @param method the method name.
+		 * @return the temporary id of the method.
+		 */
+		private int intern(String method) {
+			Integer id = ids.get(method);
+
+			if (id == null) {
+				id = methods.size();
+				ids.put(method, id);
+				methods.add(method);
+			}
+
+			return id;
+		}
+	}
+}
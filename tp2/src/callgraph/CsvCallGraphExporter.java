@@ -0,0 +1,54 @@
+package callgraph;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A call graph exporter to an edge list in CSV format:
+ * one "source,destination,weight" line per invocation.
+ * @author anonbnr
+ * @author Amandine Paillard
+ */
+public class CsvCallGraphExporter extends CallGraphExporter {
+	
+	/* CONSTRUCTORS */
+	public CsvCallGraphExporter() {
+		super();
+	}
+	
+	public CsvCallGraphExporter(String packagePrefix, int minWeight) {
+		super(packagePrefix, minWeight);
+	}
+	
+	/* METHODS */
+	@Override
+	protected void writeHeader(Writer writer) throws IOException {
+		writer.write("source,destination,weight\n");
+	}
+	
+	@Override
+	protected void writeInvocation(Writer writer, String source, String destination, long occurrences)
+			throws IOException {
+		writeField(writer, source);
+		writer.write(',');
+		writeField(writer, destination);
+		writer.write("," + occurrences + "\n");
+	}
+	
+	/**
+	 * Writes a method name as a CSV field, quoted if needed.
+	 * @param writer the writer.
+	 * @param method the fully-qualified name of the method.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	private void writeField(Writer writer, String method) throws IOException {
+		if (method.indexOf(',') < 0 && method.indexOf('"') < 0 && method.indexOf('\n') < 0) {
+			writer.write(method);
+			return;
+		}
+		
+		writer.write('"');
+		writer.write(method.replace("\"", "\"\""));
+		writer.write('"');
+	}
+}
@@ -0,0 +1,70 @@
+package callgraph;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A call graph exporter to the DOT language of Graphviz.
+ * @author anonbnr
+ * @author Amandine Paillard
+ */
+public class DotCallGraphExporter extends CallGraphExporter {
+	
+	/* CONSTRUCTORS */
+	public DotCallGraphExporter() {
+		super();
+	}
+	
+	public DotCallGraphExporter(String packagePrefix, int minWeight) {
+		super(packagePrefix, minWeight);
+	}
+	
+	/* METHODS */
+	@Override
+	protected void writeHeader(Writer writer) throws IOException {
+		writer.write("digraph callgraph {\n");
+	}
+	
+	@Override
+	protected void writeMethod(Writer writer, String method) throws IOException {
+		writer.write("  ");
+		writeId(writer, method);
+		writer.write(";\n");
+	}
+	
+	@Override
+	protected void writeInvocation(Writer writer, String source, String destination, long occurrences)
+			throws IOException {
+		writer.write("  ");
+		writeId(writer, source);
+		writer.write(" -> ");
+		writeId(writer, destination);
+		writer.write(" [label=" + occurrences + ", weight=" + occurrences + "];\n");
+	}
+	
+	@Override
+	protected void writeFooter(Writer writer) throws IOException {
+		writer.write("}\n");
+	}
+	
+	/**
+	 * Writes a method name as a quoted DOT identifier.
+	 * @param writer the writer.
+	 * @param method the fully-qualified name of the method.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	private void writeId(Writer writer, String method) throws IOException {
+		writer.write('"');
+		
+		for (int i = 0; i < method.length(); i++) {
+			char c = method.charAt(i);
+			
+			if (c == '"' || c == '\\')
+				writer.write('\\');
+			
+			writer.write(c);
+		}
+		
+		writer.write('"');
+	}
+}
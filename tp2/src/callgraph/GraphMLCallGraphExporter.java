@@ -0,0 +1,75 @@
+package callgraph;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A call graph exporter to the GraphML format.<br>
+ * The nodes are identified by the fully-qualified names of the methods,
+ * and every edge holds its number of invocations in a "weight" data.
+ * @author anonbnr
+ * @author Amandine Paillard
+ */
+public class GraphMLCallGraphExporter extends CallGraphExporter {
+	
+	/* CONSTRUCTORS */
+	public GraphMLCallGraphExporter() {
+		super();
+	}
+	
+	public GraphMLCallGraphExporter(String packagePrefix, int minWeight) {
+		super(packagePrefix, minWeight);
+	}
+	
+	/* METHODS */
+	@Override
+	protected void writeHeader(Writer writer) throws IOException {
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+		writer.write("  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"int\"/>\n");
+		writer.write("  <graph id=\"callgraph\" edgedefault=\"directed\">\n");
+	}
+	
+	@Override
+	protected void writeMethod(Writer writer, String method) throws IOException {
+		writer.write("    <node id=\"");
+		writeEscaped(writer, method);
+		writer.write("\"/>\n");
+	}
+	
+	@Override
+	protected void writeInvocation(Writer writer, String source, String destination, long occurrences)
+			throws IOException {
+		writer.write("    <edge source=\"");
+		writeEscaped(writer, source);
+		writer.write("\" target=\"");
+		writeEscaped(writer, destination);
+		writer.write("\"><data key=\"weight\">" + occurrences + "</data></edge>\n");
+	}
+	
+	@Override
+	protected void writeFooter(Writer writer) throws IOException {
+		writer.write("  </graph>\n");
+		writer.write("</graphml>\n");
+	}
+	
+	/**
+	 * Writes a method name as an XML attribute value.
+	 * @param writer the writer.
+	 * @param method the fully-qualified name of the method.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	private void writeEscaped(Writer writer, String method) throws IOException {
+		for (int i = 0; i < method.length(); i++) {
+			char c = method.charAt(i);
+			
+			switch (c) {
+			case '<': writer.write("&lt;"); break;
+			case '>': writer.write("&gt;"); break;
+			case '&': writer.write("&amp;"); break;
+			case '"': writer.write("&quot;"); break;
+			default: writer.write(c);
+			}
+		}
+	}
+}
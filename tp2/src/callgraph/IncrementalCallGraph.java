@@ -0,0 +1,293 @@
+package callgraph;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import processors.BaseProcessor;
+
+/**
+ * A static call graph that is kept up to date incrementally.<br>
+ * The contribution of every source file of the project (the methods and
+ * invocations found in it) is stored on disk along with the modification time,
+ * the size and the hash of the file it was computed from. When the call graph
+ * is updated, only the new files and the files whose content changed are parsed
+ * again: the old contribution of such a file is retracted from the call graph
+ * and its new one is applied. The contributions of deleted files are retracted.<br>
+ * By default, the contributions are stored in a per-user cache directory, outside
+ * of the analyzed project, in a store named after the project's folder and the hash
+ * of its absolute path.
+ * @author anonbnr
+ * @author Amandine Paillard
+ * @see StaticCallGraph
+ */
+public class IncrementalCallGraph extends AbstractCallGraph {
+
+	/* ATTRIBUTES */
+	public static final String STORE_EXTENSION = ".callgraph";
+	public static final File DEFAULT_STORE_DIRECTORY =
+			new File(System.getProperty("user.home"), ".cache" + File.separator + "callgraph");
+
+	private BaseProcessor processor;
+	private File store; // the file in which the contributions are stored
+	private HashMap<String, FileContribution> contributions = new HashMap<>();
+	private Map<String, Integer> methodReferences = new HashMap<>(); // number of contributions per method
+
+	/* CONSTRUCTOR */
+	public IncrementalCallGraph(String projectPath, File store) {
+		this.processor = new BaseProcessor(projectPath);
+		this.store = store;
+	}
+
+	/* METHODS */
+	// getters
+	public File getStore() {return this.store;}
+
+	/**
+	 * creates or updates the incremental call graph of the project identified by its path,
+	 * whose contributions are stored in the default store directory.
+	 * @param projectPath the project path.
+	 * @return the up to date call graph of the whole project.
+	 * @throws IOException if the store or a source file in the project cannot be read or written.
+	 */
+	public static IncrementalCallGraph createCallGraph(String projectPath) throws IOException {
+		return createCallGraph(projectPath, defaultStore(projectPath));
+	}
+
+	/**
+	 * the store of a project in the default store directory.
+	 * @param projectPath the project path.
+	 * @return the store file of the project, named after its folder and the hash of its absolute path.
+	 */
+	public static File defaultStore(String projectPath) {
+		File project = new File(projectPath).getAbsoluteFile();
+		String name = project.getName() + "-"
+				+ hex(sha1(project.getPath().getBytes(StandardCharsets.UTF_8))).substring(0, 12);
+
+		return new File(DEFAULT_STORE_DIRECTORY, name + STORE_EXTENSION);
+	}
+
+	/**
+	 * creates or updates the incremental call graph of the project identified by its path.
+	 * @param projectPath the project path.
+	 * @param store the file in which the contributions are stored.
+	 * @return the up to date call graph of the whole project.
+	 * @throws IOException if the store or a source file in the project cannot be read or written.
+	 */
+	public static IncrementalCallGraph createCallGraph(String projectPath, File store) throws IOException {
+		IncrementalCallGraph graph = new IncrementalCallGraph(projectPath, store);
+		graph.load();
+
+		if (graph.update() > 0)
+			graph.save();
+
+		return graph;
+	}
+
+	// business logic
+	/**
+	 * Parses the new and modified source files of the project, and applies
+	 * their contributions to the call graph. The contributions of the deleted
+	 * source files are retracted.
+	 * @return the number of source files whose contribution changed.
+	 * @throws IOException if the content of a source file in the project cannot be read.
+	 */
+	public int update() throws IOException {
+		Set<String> deletedFiles = new HashSet<>(contributions.keySet());
+		int changes = 0;
+
+		for (File sourceFile: processor.getParser().listJavaFilesForProject()) {
+			String path = sourceFile.getAbsolutePath();
+			FileContribution previous = contributions.get(path);
+			deletedFiles.remove(path);
+
+			// cheap check first: the file has not been touched
+			if (previous != null && previous.lastModified == sourceFile.lastModified()
+					&& previous.length == sourceFile.length())
+				continue;
+
+			String hash = hash(sourceFile);
+
+			// the file has been touched, but its content is the same
+			if (previous != null && previous.hash.equals(hash)) {
+				previous.lastModified = sourceFile.lastModified();
+				previous.length = sourceFile.length();
+				changes++;
+				continue;
+			}
+
+			CompilationUnit cUnit = processor.getParser().parse(sourceFile);
+			StaticCallGraph partial = StaticCallGraph.createCallGraph(processor.getParser().getProjectPath(), cUnit);
+			FileContribution contribution = new FileContribution(sourceFile, hash, partial);
+
+			if (previous != null)
+				retract(previous);
+
+			apply(contribution);
+			contributions.put(path, contribution);
+			changes++;
+		}
+
+		for (String path: deletedFiles) {
+			retract(contributions.remove(path));
+			changes++;
+		}
+
+		return changes;
+	}
+
+	/**
+	 * Loads the contributions stored on disk, and rebuilds the call graph from them.
+	 * Nothing is loaded if the store does not exist, and an outdated, truncated or corrupt
+	 * store is discarded: the whole project will then be parsed by the next update.
+	 * @throws IOException if the store cannot be read.
+	 */
+	@SuppressWarnings("unchecked")
+	public void load() throws IOException {
+		if (!store.isFile())
+			return;
+
+		HashMap<String, FileContribution> stored;
+
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(store))) {
+			stored = (HashMap<String, FileContribution>) in.readObject();
+		} catch (ClassNotFoundException | ClassCastException | ObjectStreamException | EOFException e) {
+			// outdated or damaged store, the next update rebuilds it from the sources
+			store.delete();
+			return;
+		}
+
+		for (FileContribution contribution: contributions.values())
+			retract(contribution);
+
+		contributions = stored;
+
+		for (FileContribution contribution: contributions.values())
+			apply(contribution);
+	}
+
+	/**
+	 * Stores the contributions of the source files on disk.
+	 * @throws IOException if the store cannot be written.
+	 */
+	public void save() throws IOException {
+		File tmp = new File(store.getAbsolutePath() + ".tmp");
+		Files.createDirectories(store.getAbsoluteFile().getParentFile().toPath());
+
+		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(tmp))) {
+			out.writeObject(contributions);
+		}
+
+		Files.move(tmp.toPath(), store.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Adds the methods and invocations of a source file to the call graph.
+	 * @param contribution the contribution of the source file.
+	 */
+	private void apply(FileContribution contribution) {
+		for (String method: contribution.methods)
+			if (methodReferences.merge(method, 1, Integer::sum) == 1)
+				this.addMethod(method);
+
+		for (String source: contribution.invocations.keySet())
+			for (Map.Entry<String, Integer> destination: contribution.invocations.get(source).entrySet())
+				this.incrementInvocation(source, destination.getKey(), destination.getValue());
+	}
+
+	/**
+	 * Removes the methods and invocations of a source file from the call graph.
+	 * A method is only removed if no other source file refers to it.
+	 * @param contribution the contribution of the source file.
+	 */
+	private void retract(FileContribution contribution) {
+		for (String source: contribution.invocations.keySet())
+			for (Map.Entry<String, Integer> destination: contribution.invocations.get(source).entrySet())
+				this.incrementInvocation(source, destination.getKey(), -destination.getValue());
+
+		for (String method: contribution.methods) {
+			if (methodReferences.merge(method, -1, Integer::sum) <= 0) {
+				methodReferences.remove(method);
+				this.removeMethod(method);
+			}
+		}
+	}
+
+	/**
+	 * Computes the SHA-1 hash of the content of a source file.
+	 * @param sourceFile the source file.
+	 * @return the hexadecimal hash of the source file.
+	 * @throws IOException if the content of the source file cannot be read.
+	 */
+	private static String hash(File sourceFile) throws IOException {
+		return hex(sha1(Files.readAllBytes(sourceFile.toPath())));
+	}
+
+	/**
+	 * Computes the SHA-1 digest of some bytes.
+	 * @param content the bytes to digest.
+	 * @return the digest.
+	 */
+	private static byte[] sha1(byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not available", e);
+		}
+	}
+
+	/**
+	 * The hexadecimal form of a digest.
+	 * @param digest the digest.
+	 * @return the digest in hexadecimal.
+	 */
+	private static String hex(byte[] digest) {
+		StringBuilder buf = new StringBuilder();
+
+		for (byte b: digest)
+			buf.append(String.format("%02x", b));
+
+		return buf.toString();
+	}
+
+	/**
+	 * The methods and invocations found in a source file, along with
+	 * the state of the source file they were computed from.
+	 */
+	private static class FileContribution implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private long lastModified;
+		private long length;
+		private String hash;
+		private HashSet<String> methods;
+		private HashMap<String, HashMap<String, Integer>> invocations = new HashMap<>();
+
+		private FileContribution(File sourceFile, String hash, AbstractCallGraph partial) {
+			this.lastModified = sourceFile.lastModified();
+			this.length = sourceFile.length();
+			this.hash = hash;
+			this.methods = new HashSet<>(partial.getMethods());
+
+			for (String source: partial.getInvocations().keySet())
+				this.invocations.put(source, new HashMap<>(partial.getInvocations().get(source)));
+		}
+	}
+}
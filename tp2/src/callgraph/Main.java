@@ -1,6 +1,8 @@
 package callgraph;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 
 /**
  * Entry point for using the Static Call Graph (main method)
@@ -13,7 +15,22 @@ public class Main {
 		String pathToSource = args[0];
 		System.out.println("Here's the call graph of the " + pathToSource + " project.");
 		
-		StaticCallGraph graph = StaticCallGraph.createCallGraph(pathToSource);
-		System.out.println(graph);
+		// with --compact, only the compact call graph is built, and its size displayed
+		if (args.length > 1 && "--compact".equals(args[1])) {
+			CompactCallGraph compact = CompactCallGraph.createCallGraph(pathToSource);
+			System.out.println(compact.getNumberOfMethods() + " method(s), "
+					+ compact.getNumberOfInvocations() + " distinct invocation(s).");
+			return;
+		}
+		
+		// with --incremental, only the source files modified since the last run are parsed
+		AbstractCallGraph graph = args.length > 1 && "--incremental".equals(args[1]) ?
+				IncrementalCallGraph.createCallGraph(pathToSource) :
+				StaticCallGraph.createCallGraph(pathToSource);
+		graph.write(new BufferedWriter(new OutputStreamWriter(System.out)));
+		
+		CompactCallGraph compact = graph.compact();
+		System.out.println(compact.getNumberOfMethods() + " method(s), "
+				+ compact.getNumberOfInvocations() + " distinct invocation(s).");
 	}
 }
@@ -43,16 +43,26 @@ public class StaticCallGraph extends AbstractCallGraph {
 	 */
 	public static StaticCallGraph createCallGraph(String projectPath, CompilationUnit cUnit) {
 		StaticCallGraph graph = new StaticCallGraph(projectPath);
+		extract(cUnit, graph);
+		
+		return graph;
+	}
+	
+	/**
+	 * adds the methods declared in a compilation unit, and the invocations therein,
+	 * to a call graph being built.
+	 * @param cUnit the compilation unit.
+	 * @param builder the call graph being built.
+	 */
+	public static void extract(CompilationUnit cUnit, CallGraphBuilder builder) {
 		ClassDeclarationVisitor classVisitor = new ClassDeclarationVisitor();
 		
 		for(TypeDeclaration cls: classVisitor.getClasses(cUnit)){
 			MethodDeclarationVisitor methodVisitor = new MethodDeclarationVisitor();
 			
 			for(MethodDeclaration method: methodVisitor.getMethods(cls))
-				graph.addMethodAndInvocations(cls, method);
+				addMethodAndInvocations(builder, cls, method);
 		}
-		
-		return graph;
 	}
 	
 	/**
@@ -76,26 +86,28 @@ public class StaticCallGraph extends AbstractCallGraph {
 	
 	/**
 	 * Adds the method declared in the class and the methods invoked therein 
-	 * to the methods and invocations of the static call graph respectively.
+	 * to the methods and invocations of the call graph respectively.
+	 * @param builder the call graph being built
 	 * @param cls the class in which the method is declared
-	 * @param method the method to add along with the methods invoked within to the static call graph
-	 * @return true if the method and its invocations were added to the static call graph
+	 * @param method the method to add along with the methods invoked within to the call graph
+	 * @return true if the method and its invocations were added to the call graph
 	 */
-	private boolean addMethodAndInvocations(TypeDeclaration cls, MethodDeclaration method) {
+	private static boolean addMethodAndInvocations(CallGraphBuilder builder, TypeDeclaration cls, MethodDeclaration method) {
 		if(method.getBody() != null) {
 			String methodName = PackageDeclarationVisitor.getFullName(cls) + "::" + method.getName().toString();
-			this.addMethod(methodName);
+			builder.addMethod(methodName);
 			
 			MethodInvocationVisitor invocationVisitor = new MethodInvocationVisitor();
-			this.addInvocations(cls, method, methodName, invocationVisitor);
-			this.addSuperInvocations(methodName, invocationVisitor);
+			addInvocations(builder, cls, method, methodName, invocationVisitor);
+			addSuperInvocations(builder, methodName, invocationVisitor);
 		}
 		
 		return method.getBody() != null;
 	}
 	
 	/**
-	 * Adds the invoked methods within a method to the static call graph.
+	 * Adds the invoked methods within a method to the call graph.
+	 * @param builder the call graph being built.
 	 * @param cls the class declaring the method whose methods invoked therein 
 	 * will be added to the methods and invocations of the static call graph.
 	 * @param method the method whose methods invoked therein will be added to the
@@ -103,7 +115,7 @@ public class StaticCallGraph extends AbstractCallGraph {
 	 * @param methodName the method name.
 	 * @param invocationVisitor the invocations nodes visitor.
 	 */
-	private void addInvocations(TypeDeclaration cls, MethodDeclaration method, String methodName, MethodInvocationVisitor invocationVisitor) {
+	private static void addInvocations(CallGraphBuilder builder, TypeDeclaration cls, MethodDeclaration method, String methodName, MethodInvocationVisitor invocationVisitor) {
 		method.accept(invocationVisitor);
 		
 		for (MethodInvocation invocation: invocationVisitor.getMethods()) {
@@ -122,23 +134,24 @@ public class StaticCallGraph extends AbstractCallGraph {
 			else
 				invocationName = PackageDeclarationVisitor.getFullName(cls) + "::" + invocation.getName().toString();
 			
-			this.addMethod(invocationName);
-			this.addInvocation(methodName, invocationName);
+			builder.addMethod(invocationName);
+			builder.addInvocation(methodName, invocationName);
 		}
 	}
 	
 	/**
-	 * Adds the invoked super methods within a method to the static call graph.
+	 * Adds the invoked super methods within a method to the call graph.
+	 * @param builder the call graph being built.
 	 * @param methodName the name of the method whose super methods invoked therein
 	 * will be added to the static call graph
 	 * @param invocationVisitor the super methods invocations nodes visitor.
 	 */
-	private void addSuperInvocations(String methodName, MethodInvocationVisitor invocationVisitor) {
+	private static void addSuperInvocations(CallGraphBuilder builder, String methodName, MethodInvocationVisitor invocationVisitor) {
 		for (SuperMethodInvocation superInvocation: invocationVisitor.getSuperMethods()) {
 			
 			String superInvocationName = superInvocation.getName().getFullyQualifiedName();
-			this.addMethod(superInvocationName);
-			this.addInvocation(methodName, superInvocationName);
+			builder.addMethod(superInvocationName);
+			builder.addInvocation(methodName, superInvocationName);
 		}
 	}
 }
\ No newline at end of file
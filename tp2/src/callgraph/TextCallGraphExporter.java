@@ -0,0 +1,42 @@
+package callgraph;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A call graph exporter to the plain text format of the call graphs' displays:
+ * every source method followed by its invocations, one per line.
+ * @author anonbnr
+ * @author Amandine Paillard
+ */
+public class TextCallGraphExporter extends CallGraphExporter {
+	
+	/* ATTRIBUTES */
+	private String lastSource; // the source whose invocations are being written
+	
+	/* CONSTRUCTORS */
+	public TextCallGraphExporter() {
+		super();
+	}
+	
+	public TextCallGraphExporter(String packagePrefix, int minWeight) {
+		super(packagePrefix, minWeight);
+	}
+	
+	/* METHODS */
+	@Override
+	protected void writeHeader(Writer writer) throws IOException {
+		lastSource = null;
+	}
+	
+	@Override
+	protected void writeInvocation(Writer writer, String source, String destination, long occurrences)
+			throws IOException {
+		if (!source.equals(lastSource)) {
+			writer.write(source + ":\n");
+			lastSource = source;
+		}
+		
+		writer.write("  ---> " + destination + " (" + occurrences + " fois)\n");
+	}
+}
@@ -0,0 +1,43 @@
+package metrics;
+
+/**
+ * The metrics of a class, as stored in a MetricsTable.<br>
+ * It holds no reference to the AST of the class, only its fully qualified
+ * name and the numbers needed by the statistics. The metrics of the methods
+ * declared in the class are stored contiguously in the MetricsTable.
+ * @author anonbnr
+ * @author Amandine Paillard
+ * @see MetricsTable
+ */
+public class ClassMetrics {
+	
+	/* ATTRIBUTES */
+	private final int index; // the index of the class in the metrics table
+	private final String name;
+	private final int nbMethods; // methods and constructors declared in the class
+	private final int nbAttributes; // field declarations of the class
+	private final int firstMethod; // the index of its first method in the metrics table
+	
+	/* CONSTRUCTOR */
+	public ClassMetrics(int index, String name, int nbMethods, int nbAttributes, int firstMethod) {
+		this.index = index;
+		this.name = name;
+		this.nbMethods = nbMethods;
+		this.nbAttributes = nbAttributes;
+		this.firstMethod = firstMethod;
+	}
+	
+	/* METHODS */
+	// getters
+	public int getIndex() {return this.index;}
+	public String getName() {return this.name;}
+	public int getNbMethods() {return this.nbMethods;}
+	public int getNbAttributes() {return this.nbAttributes;}
+	public int getFirstMethod() {return this.firstMethod;}
+	
+	// TOSTRING
+	@Override
+	public String toString() {
+		return this.name;
+	}
+}
@@ -0,0 +1,46 @@
+package metrics;
+
+/**
+ * The metrics of a method, as stored in a MetricsTable.<br>
+ * It holds no reference to the AST of the method, only its name
+ * and the numbers needed by the statistics.
+ * @author anonbnr
+ * @author Amandine Paillard
+ * @see MetricsTable
+ */
+public class MethodMetrics {
+	
+	/* ATTRIBUTES */
+	private final int index; // the index of the method in the metrics table
+	private final String name;
+	private final int nbStatements; // -1 if the method has no body
+	private final int nbParameters;
+	
+	/* CONSTRUCTOR */
+	public MethodMetrics(int index, String name, int nbStatements, int nbParameters) {
+		this.index = index;
+		this.name = name;
+		this.nbStatements = nbStatements;
+		this.nbParameters = nbParameters;
+	}
+	
+	/* METHODS */
+	// getters
+	public int getIndex() {return this.index;}
+	public String getName() {return this.name;}
+	public int getNbStatements() {return this.nbStatements;}
+	public int getNbParameters() {return this.nbParameters;}
+	
+	/**
+	 * @return true if the method has a body.
+	 */
+	public boolean hasBody() {
+		return this.nbStatements >= 0;
+	}
+	
+	// TOSTRING
+	@Override
+	public String toString() {
+		return this.name;
+	}
+}
@@ -0,0 +1,185 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A table of the metrics of a project, filled in a single traversal of its ASTs
+ * by a MetricsVisitor. Every statistic of the project is computed from this table,
+ * without parsing or visiting the project again.
+ * @author anonbnr
+ * @author Amandine Paillard
+ * @see visitors.MetricsVisitor
+ */
+public class MetricsTable {
+	
+	/* ATTRIBUTES */
+	private List<ClassMetrics> classes = new ArrayList<>();
+	private List<MethodMetrics> methods = new ArrayList<>();
+	private Set<String> packages = new HashSet<>();
+	private long nbMethods = 0; // methods (not constructors) of all types
+	private long nbAttributes = 0; // attributes of all types
+	private long nbLines = 0;
+	private int maxNbParams = 0;
+	
+	/* METHODS */
+	// getters
+	public List<ClassMetrics> getClasses() {return this.classes;}
+	public List<MethodMetrics> getMethods() {return this.methods;}
+	public Set<String> getPackages() {return this.packages;}
+	
+	public long getNbClasses() {return this.classes.size();}
+	public long getNbMethods() {return this.nbMethods;}
+	public long getNbAttributes() {return this.nbAttributes;}
+	public long getNbPackages() {return this.packages.size();}
+	public long getNbLines() {return this.nbLines;}
+	public int getMaxNbParamsPerMethod() {return this.maxNbParams;}
+	
+	// table filling
+	/**
+	 * Adds a class to the table. Its methods must be added right after it.
+	 * @param name the fully qualified name of the class.
+	 * @param nbMethods the number of methods and constructors declared in the class.
+	 * @param nbAttributes the number of field declarations of the class.
+	 * @return the metrics of the class.
+	 */
+	public ClassMetrics addClass(String name, int nbMethods, int nbAttributes) {
+		ClassMetrics cls = new ClassMetrics(classes.size(), name, nbMethods, nbAttributes, methods.size());
+		classes.add(cls);
+		return cls;
+	}
+	
+	/**
+	 * Adds a method of the last added class to the table.
+	 * @param name the name of the method.
+	 * @param nbStatements the number of statements of the method, -1 if it has no body.
+	 * @param nbParameters the number of parameters of the method.
+	 * @return the metrics of the method.
+	 */
+	public MethodMetrics addMethod(String name, int nbStatements, int nbParameters) {
+		MethodMetrics method = new MethodMetrics(methods.size(), name, nbStatements, nbParameters);
+		methods.add(method);
+		return method;
+	}
+	
+	public void addPackage(String name) {this.packages.add(name);}
+	public void addMethods(long nbMethods) {this.nbMethods += nbMethods;}
+	public void addAttributes(long nbAttributes) {this.nbAttributes += nbAttributes;}
+	public void addLines(long nbLines) {this.nbLines += nbLines;}
+	public void addParams(int nbParams) {this.maxNbParams = Math.max(this.maxNbParams, nbParams);}
+	
+	// statistics
+	/**
+	 * The classes at the provided indexes.
+	 * @param indexes the indexes of the classes in the table.
+	 * @return the metrics of the classes, in the order of the indexes.
+	 */
+	public List<ClassMetrics> getClasses(int[] indexes) {
+		List<ClassMetrics> selected = new ArrayList<>(indexes.length);
+		
+		for (int index: indexes)
+			selected.add(this.classes.get(index));
+		
+		return selected;
+	}
+	
+	/**
+	 * The methods and constructors declared in a class.
+	 * @param cls the class.
+	 * @return the metrics of the methods of the class.
+	 */
+	public List<MethodMetrics> getMethods(ClassMetrics cls) {
+		return methods.subList(cls.getFirstMethod(), cls.getFirstMethod() + cls.getNbMethods());
+	}
+	
+	/**
+	 * The percentage of classes with the highest number of methods.
+	 * @param percentage the threshold percentage of classes between 0 (0%) and 1 (100%).
+	 * @return the percentage of classes with the highest number of methods.
+	 */
+	public List<ClassMetrics> getClassesWithHighestMethods(double percentage) {
+		TopK topK = new TopK((int) Math.floor(percentage * this.getNbClasses()));
+		
+		for (ClassMetrics cls: this.getClasses())
+			topK.offer(cls.getIndex(), cls.getNbMethods());
+		
+		return this.getClasses(topK.getIndexes());
+	}
+	
+	/**
+	 * The percentage of classes with the highest number of attributes.
+	 * @param percentage the threshold percentage of classes between 0 (0%) and 1 (100%).
+	 * @return the percentage of classes with the highest number of attributes.
+	 */
+	public List<ClassMetrics> getClassesWithHighestAttributes(double percentage) {
+		TopK topK = new TopK((int) Math.floor(percentage * this.getNbClasses()));
+		
+		for (ClassMetrics cls: this.getClasses())
+			topK.offer(cls.getIndex(), cls.getNbAttributes());
+		
+		return this.getClasses(topK.getIndexes());
+	}
+	
+	/**
+	 * The classes that are in both lists of classes, in the order of the first list.
+	 * @param first the first list of classes.
+	 * @param second the second list of classes.
+	 * @return the intersection of the two lists.
+	 */
+	public static List<ClassMetrics> intersection(List<ClassMetrics> first, List<ClassMetrics> second) {
+		Set<Integer> inSecond = new HashSet<>();
+		List<ClassMetrics> intersection = new ArrayList<>();
+		
+		for (ClassMetrics cls: second)
+			inSecond.add(cls.getIndex());
+		
+		for (ClassMetrics cls: first)
+			if (inSecond.contains(cls.getIndex()))
+				intersection.add(cls);
+		
+		return intersection;
+	}
+	
+	/**
+	 * The classes having methods more than a specified threshold.
+	 * @param nbMethods the number of methods threshold.
+	 * @return the classes with more than "nbMethods" methods. 
+	 */
+	public List<ClassMetrics> getClassesWithMoreMethodsThan(int nbMethods) {
+		return this.getClasses()
+				.stream()
+				.filter(cls -> cls.getNbMethods() > nbMethods)
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * The percentage of methods with the highest number of statements per class.
+	 * @param percentage the threshold percentage of methods.
+	 * @return the percentage of methods with the highest number of statements per class,
+	 * in the order the classes were visited.
+	 */
+	public Map<ClassMetrics, List<MethodMetrics>> getMethodsWithHighestStatements(double percentage) {
+		Map<ClassMetrics, List<MethodMetrics>> result = new LinkedHashMap<>();
+		
+		for (ClassMetrics cls: this.getClasses()) {
+			TopK topK = new TopK((int) Math.ceil(percentage * cls.getNbMethods()));
+			List<MethodMetrics> highest = new ArrayList<>();
+			
+			for (MethodMetrics method: this.getMethods(cls))
+				if (method.hasBody())
+					topK.offer(method.getIndex(), method.getNbStatements());
+			
+			for (int index: topK.getIndexes())
+				highest.add(this.methods.get(index));
+			
+			result.put(cls, highest);
+		}
+		
+		return result;
+	}
+}
@@ -0,0 +1,137 @@
+package metrics;
+
+import java.util.Arrays;
+
+/**
+ * A streaming selector of the k best elements of a sequence, by an int metric.<br>
+ * The elements are identified by their index in the sequence, and only the k best
+ * (index, metric) pairs seen so far are kept, packed into longs in a bounded min-heap:
+ * selecting the k best of n elements takes O(n log k) time and O(k) memory,
+ * instead of sorting the n elements.<br>
+ * Ties are broken by index, the first offered element winning, so that the selection
+ * is the same as the first k elements of a stable sort by decreasing metric.
+ * @author anonbnr
+ * @author Amandine Paillard
+ */
+public class TopK {
+
+	/* ATTRIBUTES */
+	private long[] heap; // heap[0] is the worst of the k best elements
+	private int size = 0;
+
+	/* CONSTRUCTOR */
+	/**
+	 * creates a selector of the k best elements.
+	 * @param k the maximum number of selected elements.
+	 */
+	public TopK(int k) {
+		this.heap = new long[Math.max(0, k)];
+	}
+
+	/* METHODS */
+	/**
+	 * Offers an element to the selection.
+	 * @param index the index of the element, between 0 and Integer.MAX_VALUE.
+	 * @param metric the metric of the element, the higher the better.
+	 */
+	public void offer(int index, int metric) {
+		long key = key(index, metric);
+
+		if (size < heap.length) {
+			heap[size] = key;
+			siftUp(size++);
+		}
+
+		else if (size > 0 && key > heap[0]) {
+			heap[0] = key;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * @return the number of selected elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Provides the selected elements, best first.
+	 * @return the indexes of the selected elements, by decreasing metric.
+	 */
+	public int[] getIndexes() {
+		long[] keys = Arrays.copyOf(heap, size);
+		Arrays.sort(keys);
+		int[] indexes = new int[size];
+
+		for (int i = 0; i < size; i++)
+			indexes[i] = index(keys[size - 1 - i]);
+
+		return indexes;
+	}
+
+	/**
+	 * Selects the k best elements of an array of metrics.
+	 * @param metrics the metric of every element.
+	 * @param k the maximum number of selected elements.
+	 * @return the indexes of the k best elements, by decreasing metric.
+	 */
+	public static int[] select(int[] metrics, int k) {
+		TopK topK = new TopK(Math.min(k, metrics.length));
+
+		for (int i = 0; i < metrics.length; i++)
+			topK.offer(i, metrics[i]);
+
+		return topK.getIndexes();
+	}
+
+	/*
+	 * (metric, index) packed so that a greater key is a better element:
+	 * higher metric first, then lower index.
+	 */
+	private static long key(int index, int metric) {
+		return ((long) metric << 32) | (0xFFFFFFFFL - index);
+	}
+
+	private static int index(long key) {
+		return (int) (0xFFFFFFFFL - (key & 0xFFFFFFFFL));
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+
+			if (heap[parent] <= heap[i])
+				return;
+
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int smallest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+
+			if (left < size && heap[left] < heap[smallest])
+				smallest = left;
+
+			if (right < size && heap[right] < heap[smallest])
+				smallest = right;
+
+			if (smallest == i)
+				return;
+
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+
+	private void swap(int i, int j) {
+		long tmp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = tmp;
+	}
+}
@@ -0,0 +1,170 @@
+package my_spoon.callgraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A binary trace of the invocations recorded by the DynamicCallGraph.<br>
+ * The trace starts with a magic number, followed by blocks of two kinds:
+ * <dl>
+ * <dt>call site block ('S')</dt>
+ * <dd>the id of a call site, then the names of its source and destination methods.
+ * A call site is written once, before the first counters block referring to it</dd>
+ * <dt>counters block ('C')</dt>
+ * <dd>a timestamp, a number n of call sites, then n (call site id, number of invocations)
+ * pairs. The numbers are cumulated since the start of the program, so the last
+ * counters block of a trace holds the final numbers of invocations</dd>
+ * </dl>
+ *
+ * @author anonbnr
+ * @author Amandine Paillard
+ * @see DynamicCallGraph
+ */
+public class CallTrace implements Closeable {
+
+	/* ATTRIBUTES */
+	private static final int MAGIC = 0x44434731; // "DCG1"
+	private static final byte CALL_SITE = 'S';
+	private static final byte COUNTERS = 'C';
+
+	private DataOutputStream out;
+	private BitSet writtenCallSites = new BitSet();
+
+	/* CONSTRUCTOR */
+	/**
+	 * creates a trace, overwriting the trace file if it already exists.
+	 * @param traceFile the trace file.
+	 * @throws IOException if the trace file cannot be written.
+	 */
+	public CallTrace(File traceFile) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(traceFile)));
+		this.out.writeInt(MAGIC);
+	}
+
+	/* METHODS */
+	// business logic
+	/**
+	 * Appends a counters block to the trace, preceded by the call sites
+	 * that have not been written yet.
+	 * @param sources the source method of every call site.
+	 * @param destinations the destination method of every call site.
+	 * @param counts the number of invocations of every call site.
+	 * @throws IOException if the trace file cannot be written.
+	 */
+	public void write(String[] sources, String[] destinations, long[] counts) throws IOException {
+		for (int callSite = 0; callSite < counts.length; callSite++) {
+			if (!writtenCallSites.get(callSite) && sources[callSite] != null) {
+				out.writeByte(CALL_SITE);
+				out.writeInt(callSite);
+				out.writeUTF(sources[callSite]);
+				out.writeUTF(destinations[callSite]);
+				writtenCallSites.set(callSite);
+			}
+		}
+
+		int nbCounted = 0;
+
+		for (long count: counts)
+			if (count > 0)
+				nbCounted++;
+
+		out.writeByte(COUNTERS);
+		out.writeLong(System.currentTimeMillis());
+		out.writeInt(nbCounted);
+
+		for (int callSite = 0; callSite < counts.length; callSite++) {
+			if (counts[callSite] > 0) {
+				out.writeInt(callSite);
+				out.writeLong(counts[callSite]);
+			}
+		}
+
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Reads the final numbers of invocations from a trace file.
+	 * A trace cut short (e.g. if the program was killed) is read up to its
+	 * last complete counters block.
+	 * @param traceFile the trace file.
+	 * @return the source -> destination -> inv invocations of the trace.
+	 * @throws IOException if the trace file cannot be read or is not a trace.
+	 */
+	public static Map<String, Map<String, Long>> read(File traceFile) throws IOException {
+		List<String> sources = new ArrayList<>();
+		List<String> destinations = new ArrayList<>();
+		Map<Integer, Long> counts = new HashMap<>();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(traceFile)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(traceFile + " is not a call trace");
+
+			while (true) {
+				byte block = in.readByte();
+
+				if (block == CALL_SITE) {
+					int callSite = in.readInt();
+
+					while (sources.size() <= callSite) {
+						sources.add(null);
+						destinations.add(null);
+					}
+
+					sources.set(callSite, in.readUTF());
+					destinations.set(callSite, in.readUTF());
+				}
+
+				else if (block == COUNTERS) {
+					in.readLong(); // timestamp
+					int nbCounted = in.readInt();
+					Map<Integer, Long> blockCounts = new HashMap<>();
+
+					for (int i = 0; i < nbCounted; i++)
+						blockCounts.put(in.readInt(), in.readLong());
+
+					counts = blockCounts;
+				}
+
+				else
+					throw new IOException(traceFile + " is corrupted");
+			}
+		} catch (EOFException e) {
+			// end of the trace
+		}
+
+		Map<String, Map<String, Long>> invocations = new HashMap<>();
+
+		for (Map.Entry<Integer, Long> count: counts.entrySet()) {
+			if (count.getKey() >= sources.size() || sources.get(count.getKey()) == null)
+				continue; // unknown call site
+
+			String source = sources.get(count.getKey());
+			String destination = destinations.get(count.getKey());
+
+			if (!invocations.containsKey(source))
+				invocations.put(source, new HashMap<String, Long>());
+
+			invocations.get(source).merge(destination, count.getValue(), Long::sum);
+		}
+
+		return invocations;
+	}
+}
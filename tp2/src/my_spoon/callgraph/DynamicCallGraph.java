@@ -1,9 +1,23 @@
 package my_spoon.callgraph;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import callgraph.CallGraphExporter;
+import callgraph.TextCallGraphExporter;
 
 /**
  * A dynamic call graph with static vertices and arrows.<br>
@@ -22,6 +36,14 @@ import java.util.Set;
  * <dd>The number of invocations between
  * the source and destination methods</dd>
  * </dl>
+ * The instrumented code records its invocations on call sites, whose integer
+ * ids are assigned at instrumentation time: every call site has its own
+ * striped counter, so recording an invocation from any thread is a lock-free
+ * increment instead of several map lookups. The names of the call sites are
+ * registered once, by the static initializer of the {@value #REGISTRY} class
+ * generated at instrumentation time, which is loaded with the DynamicCallGraph.
+ * The invocations recorded on the call sites can also be written periodically
+ * to a binary trace file.
  * 
  * @author anonbnr
  * @author Amandine Paillard
@@ -29,10 +51,197 @@ import java.util.Set;
 public class DynamicCallGraph {
 	
 	/* ATTRIBUTES */
-	private static Map<String, Map<String, Integer>> invocations = new HashMap<>();
+	/**
+	 * the class generated at instrumentation time, that registers every call site.
+	 */
+	public static final String REGISTRY = "my_spoon.callgraph.DynamicCallGraphRegistry";
+	
+	private static Map<String, Map<String, Long>> invocations = new HashMap<>();
+	
+	// call sites, whose ids are assigned at instrumentation time
+	private static int nbCallSites = 0;
+	private static String[] callSiteSources = new String[0];
+	private static String[] callSiteDestinations = new String[0];
+	private static volatile LongAdder[] counters = new LongAdder[0];
+	
+	// periodic binary trace, see startTrace()
+	private static CallTrace trace;
+	private static ScheduledExecutorService flusher;
+	private static Thread shutdownHook;
+	
+	static {
+		try {
+			Class.forName(REGISTRY); // registers the call sites of the instrumented code
+		} catch (ClassNotFoundException e) {
+			// the code is not instrumented, no call site to register
+		}
+		
+		String traceFile = System.getProperty("dcg.trace");
+		
+		if (traceFile != null) {
+			try {
+				startTrace(new File(traceFile), Long.getLong("dcg.trace.period", 1000));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
 	
 	/* METHODS */
 	// business logic
+	/**
+	 * Registers a call site, i.e. an instrumented invocation source -> destination.
+	 * @param callSite the id of the call site, assigned at instrumentation time.
+	 * @param source the source of the invocation.
+	 * @param destination the destination of the invocation.
+	 */
+	public static synchronized void registerCallSite(int callSite, String source, String destination) {
+		addCallSite(callSite);
+		callSiteSources[callSite] = source;
+		callSiteDestinations[callSite] = destination;
+	}
+	
+	/**
+	 * Records an invocation of a call site.<br>
+	 * This is the sensor instruction of the instrumented code: it takes no lock,
+	 * and the threads invoking it concurrently update different cells of the
+	 * call site's striped counter. A call site recorded before it is registered
+	 * is counted all the same, and appears in the call graph once registered.
+	 * @param callSite the id of the call site.
+	 */
+	public static void record(int callSite) {
+		LongAdder[] counters = DynamicCallGraph.counters;
+		
+		if (callSite >= counters.length)
+			counters = addCallSite(callSite);
+		
+		counters[callSite].increment();
+	}
+	
+	/**
+	 * Makes room for a call site, growing the call site arrays if needed.
+	 * @param callSite the id of the call site.
+	 * @return the counters of the call sites, the call site included.
+	 */
+	private static synchronized LongAdder[] addCallSite(int callSite) {
+		if (callSite >= counters.length) {
+			int capacity = Math.max(callSite + 1, 2 * counters.length);
+			LongAdder[] grown = Arrays.copyOf(counters, capacity); // the same counters, still incremented by record()
+			
+			for (int i = counters.length; i < capacity; i++)
+				grown[i] = new LongAdder();
+			
+			callSiteSources = Arrays.copyOf(callSiteSources, capacity);
+			callSiteDestinations = Arrays.copyOf(callSiteDestinations, capacity);
+			counters = grown; // publishes the new counters to the recording threads
+		}
+		
+		nbCallSites = Math.max(nbCallSites, callSite + 1);
+		return counters;
+	}
+	
+	/**
+	 * Provides the number of invocations of every call site so far.
+	 * @return the number of invocations, indexed by call site id.
+	 */
+	public static synchronized long[] getCounts() {
+		long[] counts = new long[nbCallSites];
+		
+		for (int callSite = 0; callSite < nbCallSites; callSite++)
+			counts[callSite] = counters[callSite].sum();
+		
+		return counts;
+	}
+	
+	/**
+	 * Provides the invocations of the call graph: the invocations added by name,
+	 * merged with the invocations recorded on the registered call sites so far.
+	 * @return a snapshot of the source -> destination -> inv invocations.
+	 */
+	public static synchronized Map<String, Map<String, Long>> getInvocations() {
+		Map<String, Map<String, Long>> snapshot = new HashMap<>();
+		long[] counts = getCounts();
+		
+		for (String source: invocations.keySet())
+			snapshot.put(source, new HashMap<>(invocations.get(source)));
+		
+		for (int callSite = 0; callSite < counts.length; callSite++) {
+			if (counts[callSite] == 0 || callSiteSources[callSite] == null) // not registered yet
+				continue;
+			
+			if (!snapshot.containsKey(callSiteSources[callSite]))
+				snapshot.put(callSiteSources[callSite], new HashMap<String, Long>());
+			
+			snapshot.get(callSiteSources[callSite])
+				.merge(callSiteDestinations[callSite], counts[callSite], Long::sum);
+		}
+		
+		return snapshot;
+	}
+	
+	/**
+	 * Starts writing the recorded invocations to a binary trace file,
+	 * every period and when the program ends.<br>
+	 * It is started automatically if the program is run with
+	 * -Ddcg.trace=traceFile (and optionally -Ddcg.trace.period=milliseconds).
+	 * A trace started again replaces the previous one, which is stopped.
+	 * @param traceFile the trace file, overwritten.
+	 * @param period the period between two writes, in milliseconds.
+	 * @throws IOException if the trace file cannot be written.
+	 * @see CallTrace
+	 */
+	public static synchronized void startTrace(File traceFile, long period) throws IOException {
+		stopTrace();
+		trace = new CallTrace(traceFile);
+		
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "DynamicCallGraph-trace");
+			thread.setDaemon(true); // does not keep the program alive
+			return thread;
+		});
+		
+		flusher.scheduleAtFixedRate(() -> {
+			try {
+				flushTrace();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+		
+		if (shutdownHook == null) { // stops whichever trace is started when the program ends
+			shutdownHook = new Thread(DynamicCallGraph::stopTrace);
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
+		}
+	}
+	
+	/**
+	 * Writes the invocations recorded so far to the trace file, if a trace is started.
+	 * @throws IOException if the trace file cannot be written.
+	 */
+	public static synchronized void flushTrace() throws IOException {
+		if (trace != null)
+			trace.write(callSiteSources, callSiteDestinations, getCounts());
+	}
+	
+	/**
+	 * Writes the final invocations to the trace file and closes it, if a trace is started.
+	 */
+	public static synchronized void stopTrace() {
+		if (trace == null)
+			return;
+		
+		flusher.shutdownNow();
+		
+		try {
+			flushTrace();
+			trace.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		trace = null;
+		flusher = null;
+	}
 	
 	/**
 	 * Adds an invocation source -> destination to the call graph.<br>
@@ -44,23 +253,23 @@ public class DynamicCallGraph {
 	 * @return the previous number of the invocation if it already exists,
 	 * or null if it's a new invocation.
 	 */
-	public static void addInvocation(String source, String destination) {
+	public static synchronized void addInvocation(String source, String destination) {
 		
 		if (invocations.containsKey(source)) {
 			
 			if (invocations.get(source).containsKey(destination)) {
-				int numberOfArrows = invocations.get(source).get(destination);
+				long numberOfArrows = invocations.get(source).get(destination);
 				invocations.get(source).put(destination, numberOfArrows + 1);
 			}
 			
 			else {
-				invocations.get(source).put(destination, 1);
+				invocations.get(source).put(destination, 1L);
 			}
 		}
 		
 		else {
-			invocations.put(source, new HashMap<String, Integer>());
-			invocations.get(source).put(destination, 1);
+			invocations.put(source, new HashMap<String, Long>());
+			invocations.get(source).put(destination, 1L);
 		}
 	}
 	
@@ -72,9 +281,9 @@ public class DynamicCallGraph {
 	 * @param destination the destination of the invocation.
 	 * @param occurrences the number of invocations source -> destination
 	 */
-	public static void addInvocation(String source, String destination, int occurrences) {
+	public static synchronized void addInvocation(String source, String destination, long occurrences) {
 		if (!invocations.containsKey(source))
-			invocations.put(source, new HashMap<String, Integer>());
+			invocations.put(source, new HashMap<String, Long>());
 		
 		invocations.get(source).put(destination, occurrences);
 	}
@@ -84,7 +293,7 @@ public class DynamicCallGraph {
 	 * to the invocations of the call graph.
 	 * @param map the map of the source -> destination -> inv invocations
 	 */
-	public static void addInvocations(Map<String, Map<String, Integer>> map) {
+	public static synchronized void addInvocations(Map<String, Map<String, Long>> map) {
 		for (String source: map.keySet())
 			for (String destination: map.get(source).keySet())
 				DynamicCallGraph.addInvocation(source, destination, map.get(source).get(destination));
@@ -99,21 +308,40 @@ public class DynamicCallGraph {
 	 * @return true if a source -> destination invocation exists in the call graph.
 	 */
 	public static boolean containsInvocations(String source, String destination) {
+		Map<String, Map<String, Long>> invocations = getInvocations();
 		return  invocations.containsKey(source) && 
 				invocations.get(source).containsKey(destination);
 	}
 	
-	public static void display() {
-		StringBuffer buf = new StringBuffer();
+	/**
+	 * Exports the call graph with the provided exporter.
+	 * The writer is flushed but not closed.
+	 * @param exporter the call graph exporter (DOT, GraphML, CSV...).
+	 * @param writer the writer.
+	 * @throws IOException if the writer cannot be written.
+	 */
+	public static void export(CallGraphExporter exporter, Writer writer) throws IOException {
+		Map<String, Map<String, Long>> invocations = getInvocations();
+		Set<String> methods = new LinkedHashSet<>(invocations.keySet());
 		
-		for (String source: invocations.keySet()) {
-			buf.append(source + ":\n");
-			
-			for (String destination: invocations.get(source).keySet())
-				buf.append("  ---> " + destination + 
-						" (" + invocations.get(source).get(destination) + " fois)\n");
-		}
+		for (Map<String, Long> destinations: invocations.values())
+			methods.addAll(destinations.keySet());
 		
-		System.out.println(buf.toString());
+		exporter.export(methods, invocations, writer);
+	}
+	
+	/**
+	 * Displays the call graph on the standard output, 
+	 * writing the invocations as they are gone through.
+	 */
+	public static void display() {
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+			new TextCallGraphExporter().export(Collections.<String>emptySet(), getInvocations(), writer);
+			writer.write("\n");
+			writer.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 }
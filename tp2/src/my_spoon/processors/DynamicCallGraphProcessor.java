@@ -1,7 +1,6 @@
 package my_spoon.processors;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,14 +8,18 @@ import java.util.Map;
 import my_spoon.callgraph.DynamicCallGraph;
 import spoon.processing.AbstractProcessor;
 import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtComment;
 import spoon.reflect.code.CtExpression;
 import spoon.reflect.code.CtInvocation;
 import spoon.reflect.code.CtStatement;
 import spoon.reflect.code.CtTypeAccess;
 import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtAnonymousExecutable;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.reflect.code.CtBlockImpl;
@@ -26,9 +29,14 @@ import spoon.support.reflect.code.CtBlockImpl;
  * The processor instruments the main method and the methods invoked in it. The
  * sensor instructions consists in using methods of the DynamicCallGraph
  * to construct the dynamic call graph of a given execution scenario.<br>
- * The instrumentation consists of adding DynamicCallGraph.addInvocation()
+ * The instrumentation consists of adding DynamicCallGraph.record(callSite)
  * before every method invoked in the main method and methods invoked within it,
- * to construct the invocations of the dynamic call graph.
+ * to construct the invocations of the dynamic call graph. Every invocation
+ * source -> destination is a call site, whose integer id is assigned here.
+ * Once every class is processed, all the call sites are registered by
+ * DynamicCallGraph.registerCallSite() in the static initializer of a generated
+ * registry class, loaded by the DynamicCallGraph before anything is recorded,
+ * since a main method can run code instrumented while processing another one.
  * The main method is also instrumented by an ending DynamicCallGraph.display()
  * that displays the call graph.
  * @author anonbnr
@@ -44,6 +52,20 @@ public class DynamicCallGraphProcessor extends AbstractProcessor<CtClass> {
 	 */
 	private Map<CtInvocation, List<SourcePosition>> map = new HashMap<>();
 	
+	/**
+	 * the call sites source -> destination, and their ids (their indexes 
+	 * in the sources and destinations lists).
+	 */
+	private Map<String, Integer> callSites = new HashMap<>();
+	private List<String> callSiteSources = new ArrayList<>();
+	private List<String> callSiteDestinations = new ArrayList<>();
+	
+	/**
+	 * the number of call sites registered by a method of the registry class,
+	 * far below the 64KB bytecode limit of a method.
+	 */
+	private static final int CALL_SITES_PER_METHOD = 1000;
+	
 	/* METHODS */
 	/**
 	 * Processes only classes that contain a main method.<br> 
@@ -80,6 +102,67 @@ public class DynamicCallGraphProcessor extends AbstractProcessor<CtClass> {
 		main.getBody().insertEnd(createGraphDisplaySensor());
 	}
 	
+	/**
+	 * generates the registry class, whose static initializer registers all the call sites
+	 * once. The invocations tagged while processing a main method are not instrumented
+	 * again for the next ones, so the call sites of every main method are registered
+	 * together, whichever main method is run.
+	 */
+	@Override
+	public void processingDone() {
+		Factory factory = getFactory();
+		
+		CtClass registry = factory.Class().create(DynamicCallGraph.REGISTRY);
+		registry.setVisibility(ModifierKind.PUBLIC); // visibility = public
+		
+		CtComment autoGenerate = factory.createComment();
+		autoGenerate.setContent("Automatically generated by Spoon");
+		registry.addComment(autoGenerate); // prefixing comment = "Automatically generated by Spoon"
+		
+		CtBlock initializerBody = factory.createBlock();
+		
+		for (int first = 0; first < callSiteSources.size(); first += CALL_SITES_PER_METHOD) {
+			CtMethod register = createRegisterMethod(registry, first, 
+					Math.min(first + CALL_SITES_PER_METHOD, callSiteSources.size()));
+			
+			initializerBody.addStatement(factory.createInvocation(
+					factory.createTypeAccess(registry.getReference()), 
+					register.getReference()));
+		}
+		
+		CtAnonymousExecutable initializer = factory.Core().createAnonymousExecutable();
+		initializer.addModifier(ModifierKind.STATIC); // static { ... }
+		initializer.setBody(initializerBody);
+		registry.addAnonymousExecutable(initializer);
+	}
+	
+	/**
+	 * creates a method of the registry class that registers a range of call sites.
+	 * @param registry the registry class.
+	 * @param first the id of the first call site of the range.
+	 * @param end the id following the last call site of the range.
+	 * @return the method registering the call sites first to end - 1.
+	 */
+	private CtMethod createRegisterMethod(CtClass registry, int first, int end) {
+		Factory factory = getFactory();
+		
+		CtMethod register = factory.createMethod();
+		register.setVisibility(ModifierKind.PRIVATE); // visibility = private
+		register.addModifier(ModifierKind.STATIC);
+		register.setSimpleName("registerCallSites" + first / CALL_SITES_PER_METHOD);
+		register.setType(factory.Type().voidPrimitiveType()); // type = void
+		
+		CtBlock body = factory.createBlock();
+		
+		for (int callSite = first; callSite < end; callSite++)
+			body.addStatement(createGraphRegisterSensor(callSite));
+		
+		register.setBody(body);
+		registry.addMethod(register);
+		
+		return register;
+	}
+	
 	/**
 	 * Gets method invocations in a class' main method
 	 * @param cls the target class
@@ -142,37 +225,48 @@ public class DynamicCallGraphProcessor extends AbstractProcessor<CtClass> {
 	}
 	
 	/**
-	 * creates a dynamic call graph instrumentation sensor instruction
-	 * consisting of an invocation of DynamicCallGraph.addInvocation(source, destination)
+	 * Provides the id of the call site source -> destination, 
+	 * assigning it a new id if it has not been instrumented yet.
 	 * @param source the name of the invocation's source method
 	 * @param destination the name of the invocation's destination method
-	 * @return an invocation of DynamicCallGraph.addInvocation(source, destination)
+	 * @return the id of the call site
 	 */
-	private CtInvocation createGraphAddInvocationSensor(String source, String destination) {
-		CtTypeAccess accessToGraph = 
-				getFactory().createTypeAccess(
-						getFactory().createCtTypeReference(DynamicCallGraph.class));
-		
-		CtExecutableReference refGraphAddInvocation = 
-				getFactory()
-				.Type()
-				.get(DynamicCallGraph.class)
-				.getMethodsByName("addInvocation")
-				.get(0)
-				.getReference();
-		
-		CtExpression sourceArg = getFactory()
-				.createLiteral(source);
-		CtExpression destinationArg = getFactory()
-				.createLiteral(destination);
+	private int getCallSite(String source, String destination) {
+		String key = source + " -> " + destination;
 		
-		List<CtExpression<?>> arguments = Arrays.asList(sourceArg, destinationArg);
+		if (!callSites.containsKey(key)) {
+			callSites.put(key, callSiteSources.size());
+			callSiteSources.add(source);
+			callSiteDestinations.add(destination);
+		}
 		
-		return getFactory().createInvocation(
-				accessToGraph, 
-				refGraphAddInvocation,
-				arguments
-		);
+		return callSites.get(key);
+	}
+	
+	/**
+	 * creates a dynamic call graph instrumentation sensor instruction
+	 * consisting of an invocation of DynamicCallGraph.record(callSite)
+	 * for the call site source -> destination
+	 * @param source the name of the invocation's source method
+	 * @param destination the name of the invocation's destination method
+	 * @return an invocation of DynamicCallGraph.record(callSite)
+	 */
+	private CtInvocation createGraphRecordSensor(String source, String destination) {
+		return createGraphSensor("record", 
+				getFactory().createLiteral(getCallSite(source, destination)));
+	}
+	
+	/**
+	 * creates a dynamic call graph instrumentation sensor instruction
+	 * consisting of an invocation of DynamicCallGraph.registerCallSite(callSite, source, destination)
+	 * @param callSite the id of the call site
+	 * @return an invocation of DynamicCallGraph.registerCallSite(callSite, source, destination)
+	 */
+	private CtInvocation createGraphRegisterSensor(int callSite) {
+		return createGraphSensor("registerCallSite", 
+				getFactory().createLiteral(callSite),
+				getFactory().createLiteral(callSiteSources.get(callSite)),
+				getFactory().createLiteral(callSiteDestinations.get(callSite)));
 	}
 	
 	/**
@@ -181,21 +275,32 @@ public class DynamicCallGraphProcessor extends AbstractProcessor<CtClass> {
 	 * @return an invocation of DynamicCallGraph.display()
 	 */
 	private CtInvocation createGraphDisplaySensor() {
+		return createGraphSensor("display");
+	}
+	
+	/**
+	 * creates an invocation of a static method of the DynamicCallGraph
+	 * @param methodName the name of the DynamicCallGraph method
+	 * @param arguments the arguments of the invocation
+	 * @return an invocation of DynamicCallGraph.methodName(arguments)
+	 */
+	private CtInvocation createGraphSensor(String methodName, CtExpression<?>... arguments) {
 		CtTypeAccess accessToGraph = 
 				getFactory().createTypeAccess(
 						getFactory().createCtTypeReference(DynamicCallGraph.class));
 		
-		CtExecutableReference refGraphAddInvocation = 
+		CtExecutableReference refGraphMethod = 
 				getFactory()
 				.Type()
 				.get(DynamicCallGraph.class)
-				.getMethodsByName("display")
+				.getMethodsByName(methodName)
 				.get(0)
 				.getReference();
 		
 		return getFactory().createInvocation(
 				accessToGraph, 
-				refGraphAddInvocation
+				refGraphMethod,
+				arguments
 		);
 	}
 	
@@ -234,7 +339,7 @@ public class DynamicCallGraphProcessor extends AbstractProcessor<CtClass> {
 	
 	/**
 	 * Instruments a method invocation in the main method of a class
-	 * with a DynamicCallGraph.addInvocation(source, destination)
+	 * with a DynamicCallGraph.record(callSite)
 	 * sensor instruction. The source designates the fully-qualified
 	 * name of the main method, while the destination designates
 	 * the fully qualified name of the invoked method in the main.
@@ -249,9 +354,9 @@ public class DynamicCallGraphProcessor extends AbstractProcessor<CtClass> {
 			String methodInMainName = methodInMain.getDeclaringType().getQualifiedName() +
 					"::" + methodInMain.getSimpleName();
 			
-			CtInvocation addInvocationSensor = createGraphAddInvocationSensor(mainName, methodInMainName);
+			CtInvocation recordSensor = createGraphRecordSensor(mainName, methodInMainName);
 			
-			this.insertSensor(invokedInMain, addInvocationSensor);
+			this.insertSensor(invokedInMain, recordSensor);
 			return true;
 		}
 		
@@ -260,7 +365,7 @@ public class DynamicCallGraphProcessor extends AbstractProcessor<CtClass> {
 	
 	/**
 	 * Instruments a method invocation in a method invoked in the main method of a class,
-	 * with a DynamicCallGraph.addInvocation(source, destination)
+	 * with a DynamicCallGraph.record(callSite)
 	 * sensor instruction. The source designates the fully-qualified
 	 * name of the method invoked in the main method, while the destination designates
 	 * the fully qualified name of the invoked method in the declaration of the 
@@ -276,8 +381,8 @@ public class DynamicCallGraphProcessor extends AbstractProcessor<CtClass> {
 			String methodInMethodName = methodInMethod.getDeclaringType().getQualifiedName() +
 					"::" + methodInMethod.getSimpleName();
 			
-			CtInvocation addInvocationSensor = createGraphAddInvocationSensor(methodInMainName, methodInMethodName);
-			this.insertSensor(invokedInMethod, addInvocationSensor);
+			CtInvocation recordSensor = createGraphRecordSensor(methodInMainName, methodInMethodName);
+			this.insertSensor(invokedInMethod, recordSensor);
 			this.tagInvocation(invokedInMethod);
 			
 			return true;
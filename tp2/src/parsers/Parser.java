@@ -138,7 +138,16 @@ public class Parser {
 	 * @throws IOException if the content of the source file cannot be read.
 	 */
 	public CompilationUnit parse(File sourceFile) throws IOException {
-		this.parser.setSource(FileUtils.readFileToString(sourceFile).toCharArray());
+		return this.parse(FileUtils.readFileToString(sourceFile).toCharArray());
+	}
+	
+	/**
+	 * Parses the provided source code.
+	 * @param source the source code to parse.
+	 * @return the compilation unit obtained from parsing the source code.
+	 */
+	public CompilationUnit parse(char[] source) {
+		this.parser.setSource(source);
 		
 		return (CompilationUnit) parser.createAST(null);
 	}
@@ -2,25 +2,16 @@ package processors;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
-import org.eclipse.jdt.core.dom.ASTVisitor;
-import org.eclipse.jdt.core.dom.CompilationUnit;
-import org.eclipse.jdt.core.dom.MethodDeclaration;
-import org.eclipse.jdt.core.dom.TypeDeclaration;
 
-import comparators.ClassAttributeNumberReverseComparator;
-import comparators.MethodStatementsNumberReverseComparator;
-import visitors.ClassDeclarationVisitor;
-import visitors.FieldDeclarationVisitor;
-import visitors.MethodDeclarationVisitor;
-import visitors.PackageDeclarationVisitor;
+import metrics.ClassMetrics;
+import metrics.MethodMetrics;
+import metrics.MetricsTable;
+import visitors.MetricsVisitor;
 
 /**
  * The processor of statistics about a project
@@ -31,6 +22,9 @@ import visitors.PackageDeclarationVisitor;
  */
 public class StatsProcessor extends BaseProcessor {
 	
+	/* ATTRIBUTES */
+	private MetricsTable metrics; // computed on the first query
+	
 	/* CONSTRUCTOR */
 	public StatsProcessor(String projectPath) {
 		super(projectPath);
@@ -38,18 +32,42 @@ public class StatsProcessor extends BaseProcessor {
 	
 	/* METHODS */
 	/**
-	 * The total number of classes per project using visitors and streams
+	 * The metrics table of the project, computed in a single pass on first use:
+	 * every source file is read and parsed once, and its AST visited once
+	 * by a composite metrics visitor.
+	 * @return the metrics table of the project identified by its path
+	 * @throws IOException if the project path is invalid
+	 */
+	public MetricsTable getMetrics() throws IOException {
+		if (this.metrics == null) {
+			MetricsVisitor metricsVisitor = new MetricsVisitor();
+			
+			for (File file: this.parser.listJavaFilesForProject()) {
+				String content = FileUtils.readFileToString(file);
+				metricsVisitor.getTable().addLines(content.lines().count());
+				this.parser.parse(content.toCharArray()).accept(metricsVisitor);
+			}
+			
+			this.metrics = metricsVisitor.getTable();
+		}
+		
+		return this.metrics;
+	}
+	
+	/**
+	 * Forgets the metrics table, so that the next query parses the project again
+	 */
+	public void clearMetrics() {
+		this.metrics = null;
+	}
+	
+	/**
+	 * The total number of classes per project
 	 * @return the total number of classes for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbClasses() throws IOException {
-		
-		ClassDeclarationVisitor classVisitor = new ClassDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(classVisitor);
-		
-		return classVisitor.getNbClasses();
+		return this.getMetrics().getNbClasses();
 	}
 	
 	/**
@@ -58,60 +76,34 @@ public class StatsProcessor extends BaseProcessor {
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbLines() throws IOException {
-		
-		String content = "";
-		long lines = 0;
-		
-		for (File file: this.parser.listJavaFilesForProject()) {
-			content = FileUtils.readFileToString(file);
-			lines += content.lines().count();
-		}
-		
-		return lines;
+		return this.getMetrics().getNbLines();
 	}
 	
 	/**
-	 * The total number of attributes per project using visitors and streams
+	 * The total number of attributes per project
 	 * @return the total number of attributes for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbAttributes() throws IOException {
-		FieldDeclarationVisitor fieldVisitor = new FieldDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(fieldVisitor);
-		
-		return fieldVisitor.getNbFields();
+		return this.getMetrics().getNbAttributes();
 	}
 	
 	/**
-	 * The total number of methods per project using visitors and streams
+	 * The total number of methods per project
 	 * @return the total number of methods for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbMethods() throws IOException {
-		
-		MethodDeclarationVisitor methodVisitor = new MethodDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(methodVisitor);
-		
-		return methodVisitor.getNbMethods();
+		return this.getMetrics().getNbMethods();
 	}
 	
 	/**
-	 * The total number of packages per project using visitors and streams
+	 * The total number of packages per project
 	 * @return the total number of packages for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbPackages() throws IOException {
-		
-		PackageDeclarationVisitor packageVisitor = new PackageDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(packageVisitor);
-		
-		return packageVisitor.getNbPackages();
+		return this.getMetrics().getNbPackages();
 	}
 	
 	/**
@@ -147,15 +139,9 @@ public class StatsProcessor extends BaseProcessor {
 	 * @return the percentage of classes with the highest number of methods for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
-	public List<TypeDeclaration> classesWithHighestMethods(double percentage) 
+	public List<ClassMetrics> classesWithHighestMethods(double percentage) 
 			throws IOException {
-		
-		ClassDeclarationVisitor classVisitor = new ClassDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(classVisitor);
-		
-		return classVisitor.getClassesWithHighestMethods(percentage);
+		return this.getMetrics().getClassesWithHighestMethods(percentage);
 	}
 	
 	/**
@@ -164,15 +150,9 @@ public class StatsProcessor extends BaseProcessor {
 	 * @return the percentage of classes with the highest number of attributes for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
-	public List<TypeDeclaration> classesWithHighestAttributes(double percentage) 
+	public List<ClassMetrics> classesWithHighestAttributes(double percentage) 
 			throws IOException{
-		
-		ClassDeclarationVisitor classVisitor = new ClassDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(classVisitor);
-		
-		return classVisitor.getClassesWithHighestAttributes(percentage);
+		return this.getMetrics().getClassesWithHighestAttributes(percentage);
 	}
 	
 	/**
@@ -181,29 +161,17 @@ public class StatsProcessor extends BaseProcessor {
 	 * @return the percentage of classes with the highest number of methods and attributes for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
-	public List<TypeDeclaration> classesWithHighestAttributesAndMethods(double percentage) 
+	public List<ClassMetrics> classesWithHighestAttributesAndMethods(double percentage) 
 			throws IOException {
 		
-		List<TypeDeclaration> clsHighestMethods = this.classesWithHighestMethods(percentage);
-		List<TypeDeclaration> clsHighestAttributes = this.classesWithHighestAttributes(percentage);
-		List<TypeDeclaration> target = new ArrayList<>();
-		
-		for (TypeDeclaration clsHighestMethod: clsHighestMethods) {
-			for (TypeDeclaration clsHighestAttribute: clsHighestAttributes) {
-				if (clsHighestMethod.getName().getFullyQualifiedName()
-						.equals(clsHighestAttribute.getName().getFullyQualifiedName()))
-					target.add(clsHighestAttribute);
-			}
-		}
+		List<ClassMetrics> clsHighestMethods = this.classesWithHighestMethods(percentage);
+		List<ClassMetrics> clsHighestAttributes = this.classesWithHighestAttributes(percentage);
+		List<ClassMetrics> target = MetricsTable.intersection(clsHighestMethods, clsHighestAttributes);
 		
 		// if no class has highest number of methods and attributes
 		// return the class with the highest number of attributes
-		if (target.isEmpty()) {
-			return Arrays.asList(clsHighestAttributes
-					.stream()
-					.max(new ClassAttributeNumberReverseComparator())
-					.get());
-		}
+		if (target.isEmpty() && !clsHighestAttributes.isEmpty())
+			return Arrays.asList(clsHighestAttributes.get(0));
 		
 		return target;
 	}
@@ -214,15 +182,9 @@ public class StatsProcessor extends BaseProcessor {
 	 * @return the classes with more than "nbMethods" methods for the project identified by its path 
 	 * @throws IOException if the project path is invalid
 	 */
-	public List<TypeDeclaration> classesWithMoreMethodsThan(int nbMethods)
+	public List<ClassMetrics> classesWithMoreMethodsThan(int nbMethods)
 			throws IOException {
-		
-		ClassDeclarationVisitor classVisitor = new ClassDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(classVisitor);
-		
-		return classVisitor.getClassesWithMoreMethodsThan(nbMethods);
+		return this.getMetrics().getClassesWithMoreMethodsThan(nbMethods);
 	}
 	
 	/**
@@ -232,15 +194,9 @@ public class StatsProcessor extends BaseProcessor {
 	 * for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
-	public Map<TypeDeclaration, List<MethodDeclaration>> methodsWithHighestStatements(double percentage) 
+	public Map<ClassMetrics, List<MethodMetrics>> methodsWithHighestStatements(double percentage) 
 			throws IOException {
-		
-		MethodDeclarationVisitor methodVisitor = new MethodDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(methodVisitor);
-		
-		return methodVisitor.methodsWithHighestStatements(percentage);
+		return this.getMetrics().getMethodsWithHighestStatements(percentage);
 	}
 	
 	/**
@@ -249,13 +205,7 @@ public class StatsProcessor extends BaseProcessor {
 	 * @throws IOException if the project path is invalid
 	 */
 	public long maxNbParamsPerMethod() throws IOException {
-		
-		MethodDeclarationVisitor methodVisitor = new MethodDeclarationVisitor();
-		
-		for (CompilationUnit cUnit: this.parser.parseProject())
-			cUnit.accept(methodVisitor);
-		
-		return methodVisitor.getMaxNbParamsPerMethod();
+		return this.getMetrics().getMaxNbParamsPerMethod();
 	}
 	
 	// display methods
@@ -265,11 +215,11 @@ public class StatsProcessor extends BaseProcessor {
 	 * @return <ul><li>class1</li><li>class2</li><li>...</li></ul>
 	 * 
 	 */
-	private static String newlineClassesFormat(List<TypeDeclaration> classes) {
+	private static String newlineClassesFormat(List<ClassMetrics> classes) {
 		StringBuffer buf = new StringBuffer();
 		
-		for (TypeDeclaration cls: classes)
-			buf.append("  " + PackageDeclarationVisitor.getFullName(cls) + "\n");
+		for (ClassMetrics cls: classes)
+			buf.append("  " + cls.getName() + "\n");
 		
 		return buf.toString();
 	}
@@ -280,11 +230,11 @@ public class StatsProcessor extends BaseProcessor {
 	 * @return method1, method2, ...
 	 * 
 	 */
-	public static String inlineMethodsFormat(List<MethodDeclaration> methods) {
+	public static String inlineMethodsFormat(List<MethodMetrics> methods) {
 		StringBuffer buf = new StringBuffer();
 		
 		if (!methods.isEmpty()) {
-			for (MethodDeclaration method: methods)
+			for (MethodMetrics method: methods)
 				buf.append(method.getName() + ", ");
 			
 			buf.delete(buf.toString().length() - 2, buf.toString().length());
@@ -341,10 +291,10 @@ public class StatsProcessor extends BaseProcessor {
 		
 		buf.append("10% des méthodes qui possèdent le plus grand nombre de statements par classe : \n");
 		
-		Map<TypeDeclaration, List<MethodDeclaration>> map = this.methodsWithHighestStatements(0.1);
+		Map<ClassMetrics, List<MethodMetrics>> map = this.methodsWithHighestStatements(0.1);
 		
-		for (TypeDeclaration cls: map.keySet()) {
-			buf.append(PackageDeclarationVisitor.getFullName(cls) + " : ");
+		for (ClassMetrics cls: map.keySet()) {
+			buf.append(cls.getName() + " : ");
 			
 			if (!map.get(cls).isEmpty())
 				buf.append(StatsProcessor.inlineMethodsFormat(map.get(cls)));
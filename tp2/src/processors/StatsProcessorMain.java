@@ -4,10 +4,8 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
 
-import org.eclipse.jdt.core.dom.MethodDeclaration;
-import org.eclipse.jdt.core.dom.TypeDeclaration;
-
-import visitors.PackageDeclarationVisitor;
+import metrics.ClassMetrics;
+import metrics.MethodMetrics;
 
 /**
  * Entry point for using the AST-based statistics processor (main method)
@@ -63,30 +61,30 @@ public class StatsProcessorMain {
 			case 8:
 				System.out.println(" > " + percentage*100 + " percent class(es) that have the highest number of methods:");
 				statsProcessor.classesWithHighestMethods(percentage)
-					.forEach(type -> System.out.println(PackageDeclarationVisitor.getFullName(type)));
+					.forEach(cls -> System.out.println(cls.getName()));
 				break;
 			case 9:
 				System.out.println(" > " + percentage*100 + " percent class(es) that have the highest number of attributes:");
 				statsProcessor.classesWithHighestAttributes(percentage)
-					.forEach(type -> System.out.println(PackageDeclarationVisitor.getFullName(type)));
+					.forEach(cls -> System.out.println(cls.getName()));
 				break;
 			case 10:
 				System.out.println(" > Class(es) that are in the " + percentage*100 + " percent of classes having the highest number of methods and " 
 						+ percentage*100 + " percent of classes having the highest number of fields:");
 				statsProcessor.classesWithHighestAttributesAndMethods(percentage)
-					.forEach(type -> System.out.println(PackageDeclarationVisitor.getFullName(type)));
+					.forEach(cls -> System.out.println(cls.getName()));
 				break;
 			case 11:
 				System.out.println("> X is set to " + x + ".");
 				System.out.println(" > Class(es) that have more than "+x+" methods:");
 				statsProcessor.classesWithMoreMethodsThan(x)
-					.forEach(type -> System.out.println(PackageDeclarationVisitor.getFullName(type)));
+					.forEach(cls -> System.out.println(cls.getName()));
 				break;
 			case 12:
 				System.out.println(" > " + percentage*100 + "% methods that have the highest number of statements for each class are:");
 				statsProcessor.methodsWithHighestStatements(percentage)
-					.forEach((TypeDeclaration type, List<MethodDeclaration> methods) -> {
-						System.out.print(PackageDeclarationVisitor.getFullName(type) + " : ");
+					.forEach((ClassMetrics cls, List<MethodMetrics> methods) -> {
+						System.out.print(cls.getName() + " : ");
 						if (!methods.isEmpty())
 							System.out.print(StatsProcessor.inlineMethodsFormat(methods));
 						else System.out.println();
@@ -0,0 +1,132 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import my_spoon.callgraph.DynamicCallGraph;
+import my_spoon.processors.DynamicCallGraphProcessor;
+import spoon.Launcher;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * A test class to test the instrumentation of the dynamic call graph processor
+ * @author anonbnr
+ * @author Amandine Paillard
+ */
+public class DynamicCallGraphTest {
+
+	@Test
+	public void testTwoMainsCallingTheSameMethod() {
+		try {
+
+			File project = Files.createTempDirectory("dynamic_callgraph").toFile();
+			write(project, "Util", "public class Util {\n"
+					+ "	public static void work() { helper(); }\n"
+					+ "	public static void helper() {}\n"
+					+ "}\n");
+			write(project, "First", "public class First {\n"
+					+ "	public static void main(String[] args) { Util.work(); }\n"
+					+ "}\n");
+			write(project, "Second", "public class Second {\n"
+					+ "	public static void main(String[] args) { Util.work(); }\n"
+					+ "}\n");
+
+			Launcher launcher = new Launcher();
+			launcher.addInputResource(project.getPath());
+			launcher.getEnvironment().setNoClasspath(true);
+			launcher.buildModel();
+			launcher.addProcessor(new DynamicCallGraphProcessor());
+			launcher.process();
+
+			// Util.work() -> Util.helper() is instrumented once, by the first main processed
+			CtClass<?> util = launcher.getFactory().Class().get("Util");
+			assertEquals(1, callSites(util.getMethodsByName("work").get(0), "record").size());
+
+			// but the generated registry registers every recorded call site once, that one included
+			Set<Integer> recorded = callSites(launcher.getModel().getRootPackage(), "record");
+			CtClass<?> registry = launcher.getFactory().Class().get(DynamicCallGraph.REGISTRY);
+			assertNotNull(registry);
+			assertEquals(recorded, callSites(registry, "registerCallSite"));
+			assertEquals(recorded.size(), 
+					countInvocations(launcher.getModel().getRootPackage(), "registerCallSite"));
+
+			// and no main registers them inline
+			for (String name: new String[] {"First", "Second"}) {
+				CtMethod<?> main = launcher.getFactory().Class().get(name).getMethodsByName("main").get(0);
+				assertTrue(name, callSites(main, "registerCallSite").isEmpty());
+			}
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes a class of the default package in a project
+	 * @param project the project's source directory
+	 * @param name the name of the class
+	 * @param source the source code of the class
+	 * @throws IOException
+	 */
+	private static void write(File project, String name, String source) throws IOException {
+		Files.write(new File(project, name + ".java").toPath(), source.getBytes());
+	}
+
+	/**
+	 * The ids of the call sites passed to a DynamicCallGraph method in an element
+	 * @param element the element to scan
+	 * @param methodName the name of the DynamicCallGraph method
+	 * @return the ids of the call sites, the first arguments of the invocations
+	 */
+	private static Set<Integer> callSites(CtElement element, String methodName) {
+		Set<Integer> callSites = new TreeSet<>();
+
+		for (CtInvocation<?> invocation: invocations(element, methodName))
+			callSites.add((Integer) ((CtLiteral<?>) invocation.getArguments().get(0)).getValue());
+
+		return callSites;
+	}
+
+	/**
+	 * The number of invocations of a DynamicCallGraph method in an element
+	 * @param element the element to scan
+	 * @param methodName the name of the DynamicCallGraph method
+	 * @return the number of invocations, duplicates included
+	 */
+	private static int countInvocations(CtElement element, String methodName) {
+		return invocations(element, methodName).size();
+	}
+
+	/**
+	 * The invocations of a DynamicCallGraph method in an element
+	 * @param element the element to scan
+	 * @param methodName the name of the DynamicCallGraph method
+	 * @return the invocations of the method
+	 */
+	private static List<CtInvocation<?>> invocations(CtElement element, String methodName) {
+		List<CtInvocation<?>> invocations = new ArrayList<>();
+
+		for (CtInvocation<?> invocation: element.getElements(new TypeFilter<CtInvocation<?>>(CtInvocation.class)))
+			if (invocation.getExecutable().getSimpleName().equals(methodName)
+					&& invocation.toString().contains("DynamicCallGraph"))
+				invocations.add(invocation);
+
+		return invocations;
+	}
+}
@@ -0,0 +1,222 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import callgraph.IncrementalCallGraph;
+import callgraph.StaticCallGraph;
+
+/**
+ * A test class to test the incremental update of the call graph (system test)
+ * @author anonbnr
+ * @author Amandine Paillard
+ */
+public class IncrementalCallGraphTest {
+	
+	private static final String projectPath = "/home/anonbnr/eclipse-workspace/design_patterns/src";
+	
+	@Test
+	public void testCreateCallGraph() {
+		try {
+			
+			File store = File.createTempFile("callgraph", ".store");
+			store.delete();
+			
+			// first run: the whole project is parsed
+			IncrementalCallGraph graph = IncrementalCallGraph.createCallGraph(projectPath, store);
+			StaticCallGraph expected = StaticCallGraph.createCallGraph(projectPath);
+			assertEquals(expected.getMethods(), graph.getMethods());
+			assertEquals(expected.getInvocations(), graph.getInvocations());
+			
+			// second run: nothing changed, the graph is loaded from the store
+			graph = new IncrementalCallGraph(projectPath, store);
+			graph.load();
+			assertEquals(0, graph.update());
+			assertEquals(expected.getInvocations(), graph.getInvocations());
+			
+			store.delete();
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	@Test
+	public void testCorruptStore() {
+		try {
+			
+			File store = File.createTempFile("callgraph", ".store");
+			store.delete();
+			IncrementalCallGraph.createCallGraph(projectPath, store);
+			
+			// truncate the store
+			byte[] content = Files.readAllBytes(store.toPath());
+			try (FileOutputStream out = new FileOutputStream(store)) {
+				out.write(Arrays.copyOf(content, content.length / 2));
+			}
+			
+			// the damaged store is discarded, and the whole project is parsed again
+			IncrementalCallGraph graph = IncrementalCallGraph.createCallGraph(projectPath, store);
+			StaticCallGraph expected = StaticCallGraph.createCallGraph(projectPath);
+			assertEquals(expected.getMethods(), graph.getMethods());
+			assertEquals(expected.getInvocations(), graph.getInvocations());
+			
+			store.delete();
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	@Test
+	public void testModifiedMethodBody() {
+		try {
+			
+			File project = createFixture();
+			File store = createStore(project);
+			
+			// B.run() no longer calls A.work(), but A.helper()
+			File b = new File(project, "fixture/B.java");
+			write(b, "package fixture;\n"
+					+ "public class B {\n"
+					+ "	public void run() { new A().helper(); new A().helper(); }\n"
+					+ "}\n");
+			
+			assertUpToDate(project, store);
+			deleteAll(project);
+			store.delete();
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	@Test
+	public void testAddedClass() {
+		try {
+			
+			File project = createFixture();
+			File store = createStore(project);
+			
+			write(new File(project, "fixture/C.java"), "package fixture;\n"
+					+ "public class C {\n"
+					+ "	public void start() { new B().run(); new A().helper(); }\n"
+					+ "}\n");
+			
+			assertUpToDate(project, store);
+			deleteAll(project);
+			store.delete();
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	@Test
+	public void testDeletedClass() {
+		try {
+			
+			File project = createFixture();
+			File store = createStore(project);
+			
+			// the invocations of B.run() are retracted, A.work() is still declared in A
+			new File(project, "fixture/B.java").delete();
+			
+			assertUpToDate(project, store);
+			deleteAll(project);
+			store.delete();
+			
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Creates a fixture project of two classes, B invoking the methods of A
+	 * @return the source folder of the fixture project
+	 * @throws IOException
+	 */
+	private static File createFixture() throws IOException {
+		File project = Files.createTempDirectory("incremental_callgraph").toFile();
+		new File(project, "fixture").mkdirs();
+		
+		write(new File(project, "fixture/A.java"), "package fixture;\n"
+				+ "public class A {\n"
+				+ "	public void work() { helper(); }\n"
+				+ "	public void helper() {}\n"
+				+ "}\n");
+		write(new File(project, "fixture/B.java"), "package fixture;\n"
+				+ "public class B {\n"
+				+ "	public void run() { new A().work(); }\n"
+				+ "}\n");
+		
+		return project;
+	}
+	
+	/**
+	 * Builds the incremental call graph of a project in a new store
+	 * @param project the source folder of the project
+	 * @return the store of the call graph
+	 * @throws IOException
+	 */
+	private static File createStore(File project) throws IOException {
+		File store = File.createTempFile("callgraph", ".store");
+		store.delete();
+		IncrementalCallGraph.createCallGraph(project.getPath(), store);
+		
+		return store;
+	}
+	
+	/**
+	 * Checks that the stored call graph of a project, once updated,
+	 * is the call graph of the project built from scratch
+	 * @param project the source folder of the project
+	 * @param store the store of the call graph
+	 * @throws IOException
+	 */
+	private static void assertUpToDate(File project, File store) throws IOException {
+		IncrementalCallGraph graph = IncrementalCallGraph.createCallGraph(project.getPath(), store);
+		StaticCallGraph expected = StaticCallGraph.createCallGraph(project.getPath());
+		
+		assertEquals(expected.getMethods(), graph.getMethods());
+		assertEquals(expected.getInvocations(), graph.getInvocations());
+	}
+	
+	/**
+	 * Writes a source file, making sure that its modification time changes
+	 * @param file the source file
+	 * @param source the source code
+	 * @throws IOException
+	 */
+	private static void write(File file, String source) throws IOException {
+		long lastModified = file.lastModified();
+		
+		Files.write(file.toPath(), source.getBytes());
+		
+		if (lastModified != 0)
+			file.setLastModified(lastModified + 2000);
+	}
+	
+	/**
+	 * Deletes a folder and its content
+	 * @param folder the folder
+	 * @throws IOException
+	 */
+	private static void deleteAll(File folder) throws IOException {
+		try (Stream<Path> paths = Files.walk(folder.toPath())) {
+			paths.sorted(Comparator.reverseOrder())
+				.map(Path::toFile)
+				.forEach(File::delete);
+		}
+	}
+}
@@ -8,8 +8,7 @@ import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
-import comparators.ClassAttributeNumberReverseComparator;
-import comparators.ClassMethodNumberReverseComparator;
+import metrics.TopK;
 
 /**
  * A TypeDeclaration and CompilationUnit node Visitor that only visits classes.
@@ -42,11 +41,12 @@ public class ClassDeclarationVisitor extends ASTVisitor {
 	 * @return the percentage of classes with the highest number of methods.
 	 */
 	public List<TypeDeclaration> getClassesWithHighestMethods(double percentage) {
-		return this.getClasses()
-				.stream()
-				.sorted(new ClassMethodNumberReverseComparator())
-				.limit((long) Math.floor(percentage * this.getNbClasses()))
-				.collect(Collectors.toList());
+		TopK topK = new TopK((int) Math.floor(percentage * this.getNbClasses()));
+		
+		for (int i = 0; i < classes.size(); i++)
+			topK.offer(i, classes.get(i).getMethods().length);
+		
+		return this.getClasses(topK.getIndexes());
 	}
 	
 	/**
@@ -55,11 +55,26 @@ public class ClassDeclarationVisitor extends ASTVisitor {
 	 * @return the percentage of classes with the highest number of attributes.
 	 */
 	public List<TypeDeclaration> getClassesWithHighestAttributes(double percentage) {
-		return this.getClasses()
-				.stream()
-				.sorted(new ClassAttributeNumberReverseComparator())
-				.limit((long) Math.floor(percentage * this.getNbClasses()))
-				.collect(Collectors.toList());
+		TopK topK = new TopK((int) Math.floor(percentage * this.getNbClasses()));
+		
+		for (int i = 0; i < classes.size(); i++)
+			topK.offer(i, classes.get(i).getFields().length);
+		
+		return this.getClasses(topK.getIndexes());
+	}
+	
+	/**
+	 * The visited classes at the provided indexes.
+	 * @param indexes the indexes of the classes, in their visit order.
+	 * @return the classes, in the order of the indexes.
+	 */
+	private List<TypeDeclaration> getClasses(int[] indexes) {
+		List<TypeDeclaration> selected = new ArrayList<>(indexes.length);
+		
+		for (int index: indexes)
+			selected.add(classes.get(index));
+		
+		return selected;
 	}
 	
 	/**
@@ -5,14 +5,13 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
 import comparators.MethodParamNumberComparator;
-import comparators.MethodStatementsNumberReverseComparator;
+import metrics.TopK;
 
 /**
  * A MethodDeclaration and ClassDeclaration nodes visitor.
@@ -103,13 +102,18 @@ public class MethodDeclarationVisitor extends ASTVisitor {
 		Map<TypeDeclaration, List<MethodDeclaration>> result = new HashMap<>();
 		
 		for (TypeDeclaration cls: map.keySet()) {
-			result.put(cls, map.get(cls)
-					.stream()
-					.filter(method -> method.getBody() != null)
-					.sorted(new MethodStatementsNumberReverseComparator())
-					.limit((long) Math.ceil(percentage * this.getNbMethods(cls)))
-					.collect(Collectors.toList())
-			);
+			List<MethodDeclaration> methods = map.get(cls);
+			TopK topK = new TopK((int) Math.ceil(percentage * methods.size()));
+			List<MethodDeclaration> highest = new ArrayList<>();
+			
+			for (int i = 0; i < methods.size(); i++)
+				if (methods.get(i).getBody() != null)
+					topK.offer(i, methods.get(i).getBody().statements().size());
+			
+			for (int index: topK.getIndexes())
+				highest.add(methods.get(index));
+			
+			result.put(cls, highest);
 		}
 		
 		return result;
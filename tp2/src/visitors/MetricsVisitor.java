@@ -0,0 +1,72 @@
+package visitors;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.PackageDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+import metrics.MetricsTable;
+
+/**
+ * A composite visitor computing all the metrics of the statistics in a single traversal.
+ * It plays the parts of the ClassDeclarationVisitor, MethodDeclarationVisitor,
+ * FieldDeclarationVisitor and PackageDeclarationVisitor at once, but only keeps
+ * numbers and names in its metrics table, not the visited nodes.
+ * @author anonbnr
+ * @author Amandine Paillard
+ * @see MetricsTable
+ */
+public class MetricsVisitor extends ASTVisitor {
+	private MetricsTable table;
+	
+	public MetricsVisitor() {
+		this(new MetricsTable());
+	}
+	
+	public MetricsVisitor(MetricsTable table) {
+		this.table = table;
+	}
+	
+	public MetricsTable getTable() {return table;}
+	
+	@Override
+	public boolean visit(PackageDeclaration node) {
+		table.addPackage(node.getName().toString());
+		return super.visit(node);
+	}
+	
+	/**
+	 * Stores the metrics of a class, followed by the metrics of its methods
+	 */
+	@Override
+	public boolean visit(TypeDeclaration node) {
+		if (!node.isInterface()) {
+			MethodDeclaration[] methods = node.getMethods();
+			table.addClass(PackageDeclarationVisitor.getFullName(node), methods.length, node.getFields().length);
+			
+			for (MethodDeclaration method: methods)
+				table.addMethod(method.getName().toString(), 
+						method.getBody() != null ? method.getBody().statements().size() : -1,
+						method.parameters().size());
+		}
+		
+		return super.visit(node);
+	}
+	
+	@Override
+	public boolean visit(FieldDeclaration node) {
+		table.addAttributes(node.fragments().size());
+		return super.visit(node);
+	}
+	
+	@Override
+	public boolean visit(MethodDeclaration node) {
+		if (!node.isConstructor()) {
+			table.addMethods(1);
+			table.addParams(node.parameters().size());
+		}
+		
+		return super.visit(node);
+	}
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import couple.Cluster;
+import couple.ClusteringEngine;
+import couple.Couple;
+import couple.CouplingParser;
+import couple.Dendrogram;
+
+/**
+ * Hierarchical clustering of the classes of the corpus, from its coupling graph
+ * computed once per trial.<br>
+ * CouplingParser.makeHierarchicalCluster prints every merge, so its cost is
+ * dominated by the console: the benchmarks measure the ClusteringEngine and
+ * the Dendrogram it delegates to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ClusteringBenchmark {
+	/*attributes*/
+	private List<Cluster> clusters;
+	private List<Couple> couples;
+
+	/*methods*/
+	@Setup
+	public void makeCouples(Corpus corpus) throws IOException {
+		CouplingParser parser = new CouplingParser(corpus.projectPath);
+		clusters = parser.initializeClusters();
+		couples = parser.makeCoupledWeightedGraph();
+	}
+
+	@Benchmark
+	public ClusteringEngine hierarchicalClustering() {
+		return new ClusteringEngine(new ArrayList<Cluster>(clusters), couples).run();
+	}
+
+	@Benchmark
+	public int[] partition() {
+		return new Dendrogram(clusters, new ClusteringEngine(new ArrayList<Cluster>(clusters), couples).run())
+				.partition();
+	}
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import parser.CompilationUnitCache;
+
+/**
+ * The fixed corpora of the benchmarks: the sources of the ArgoUML application
+ * bundled with the repository, in versions 0.34 and 0.32.2.<br>
+ * Paths are relative to the root of the repository, which must be the working
+ * directory of the benchmarks; they can be overridden with
+ * {@code -p projectPath=... -p previousProjectPath=...}.<br>
+ * The compilation units of both versions are parsed once per trial, so that
+ * the benchmarks which do not measure parsing run on a warm cache. The
+ * variability analyses release the units of a version once its class information
+ * or its token streams are collected: the {@link DiffBenchmark} benchmarks which
+ * collect them parse the version again on every invocation.
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+	/*attributes*/
+	@Param({"argouml/ArgoUML-0.34/argouml/src/argouml-app/src"})
+	public String projectPath;
+
+	@Param({"argouml/ArgoUML-0.32.2/argouml/src/argouml-app/src"})
+	public String previousProjectPath;
+
+	/*methods*/
+	@Setup
+	public void warmCaches() throws IOException {
+		CompilationUnitCache.forProject(projectPath).getCompilationUnits();
+		CompilationUnitCache.forProject(previousProjectPath).getCompilationUnits();
+	}
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import variability.ClassInfo;
+import variability.CloneDetector;
+import variability.VariabilityParser;
+import variability.VersionDiff;
+
+/**
+ * Comparison of ArgoUML 0.32.2 and 0.34 with the VariabilityParser of TP4:
+ * collection of the class information of a version, diff of both versions
+ * from their class information collected once per trial, and clone detection
+ * over both versions.<br>
+ * The collection and the clone detection clear the compilation unit cache of the
+ * versions they analyse, so they are measured from the sources: parsing included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DiffBenchmark {
+	/*attributes*/
+	private VariabilityParser parser;
+	private ArrayList<ClassInfo> infoV1;
+	private ArrayList<ClassInfo> infoV2;
+
+	/*methods*/
+	@Setup
+	public void collectClassInfo(Corpus corpus) throws IOException {
+		parser = new VariabilityParser(corpus.previousProjectPath, corpus.projectPath);
+		infoV1 = parser.getClassInfoFromFile(corpus.previousProjectPath);
+		infoV2 = parser.getClassInfoFromFile(corpus.projectPath);
+	}
+
+	@Benchmark
+	public ArrayList<ClassInfo> classInfoFromSources(Corpus corpus) throws IOException {
+		return parser.getClassInfoFromFile(corpus.projectPath);
+	}
+
+	@Benchmark
+	public VersionDiff versionDiff() {
+		return parser.diff(infoV1, infoV2);
+	}
+
+	@Benchmark
+	public List<CloneDetector.CloneClass> cloneDetectionFromSources(Corpus corpus) throws IOException {
+		CloneDetector detector = new CloneDetector();
+		detector.addProject("v1", corpus.previousProjectPath);
+		detector.addProject("v2", corpus.projectPath);
+		return detector.detect();
+	}
+}
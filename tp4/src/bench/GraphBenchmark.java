@@ -0,0 +1,66 @@
+package bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import callgraph.CallGraph;
+import couple.Couple;
+import couple.CouplingMatrix;
+import couple.CouplingParser;
+import couple.InvocationIndex;
+import couple.SpoonSession;
+import spoon.reflect.CtModel;
+
+/**
+ * Building of the graphs of the corpus from its cached compilation units
+ * (call graph, coupling graph and coupling matrix with JDT), and from its
+ * Spoon model, built once per trial (coupling graph with Spoon).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GraphBenchmark {
+	/*attributes*/
+	private CtModel model;
+
+	/*methods*/
+	@Setup
+	public void buildModel(Corpus corpus) {
+		model = new SpoonSession(corpus.projectPath, null).getModel();
+	}
+
+	@Benchmark
+	public CallGraph callGraph(Corpus corpus) throws IOException {
+		return CallGraph.constructGraph(corpus.projectPath);
+	}
+
+	@Benchmark
+	public ArrayList<Couple> couplingGraph(Corpus corpus) throws IOException {
+		return new CouplingParser(corpus.projectPath).makeCoupledWeightedGraph();
+	}
+
+	@Benchmark
+	public CouplingMatrix couplingMatrix(Corpus corpus) throws IOException {
+		return new CouplingParser(corpus.projectPath).makeCouplingMatrix();
+	}
+
+	@Benchmark
+	public ArrayList<Couple> spoonCouplingGraph() {
+		return new InvocationIndex(model).toCouplingGraph().toCouples();
+	}
+}
@@ -0,0 +1,33 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of the analysis toolchain on the ArgoUML corpora,
+ * with the GC profiler (the equivalent of {@code -prof gc}), so that every
+ * benchmark reports its allocation rate along with its throughput.<br>
+ * Needs jmh-core and jmh-generator-annprocess on the classpath, and the root of
+ * the repository as working directory. The results are also written to bench.json.
+ */
+public class Main {
+
+	/**
+	 * @param args an optional regexp selecting the benchmarks to run, e.g. "Graph"
+	 * @throws RunnerException
+	 */
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(Main.class.getPackage().getName() + "\\..*" + (args.length > 0 ? args[0] : ""))
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("bench.json")
+				.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,47 @@
+package bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parser.CompilationUnitCache;
+
+/**
+ * Parsing of the whole corpus, with bindings, on a cold cache:
+ * the cache of the project is emptied before every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParsingBenchmark {
+	/*attributes*/
+	private CompilationUnitCache cache;
+
+	/*methods*/
+	@Setup(Level.Invocation)
+	public void emptyCache(Corpus corpus) {
+		cache = CompilationUnitCache.forProject(corpus.projectPath);
+		cache.clear();
+	}
+
+	@Benchmark
+	public List<CompilationUnit> batchParse() throws IOException {
+		return cache.getCompilationUnits();
+	}
+}
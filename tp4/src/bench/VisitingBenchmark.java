@@ -0,0 +1,57 @@
+package bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parser.CompilationUnitCache;
+import stats.StatsParser;
+import visitors.TypeDeclarationVisitor;
+
+/**
+ * Visits of the cached compilation units of the corpus: a bare visitor,
+ * and the StatsParser metrics of TP2.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VisitingBenchmark {
+
+	@Benchmark
+	public int typeDeclarations(Corpus corpus) throws IOException {
+		int nbTypes = 0;
+		for (CompilationUnit cUnit : CompilationUnitCache.forProject(corpus.projectPath).getCompilationUnits()) {
+			TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
+			cUnit.accept(visitor);
+			nbTypes += visitor.getTypes().size();
+		}
+		return nbTypes;
+	}
+
+	@Benchmark
+	public long statsNbMethods(Corpus corpus) throws IOException {
+		return new StatsParser(corpus.projectPath).nbMethods();
+	}
+
+	@Benchmark
+	public long statsNbLines(Corpus corpus) throws IOException {
+		return new StatsParser(corpus.projectPath).nbLines();
+	}
+
+	@Benchmark
+	public List<TypeDeclaration> statsClassesWithHighestMethods(Corpus corpus) throws IOException {
+		return new StatsParser(corpus.projectPath).classesWithHighestMethods(0.1);
+	}
+}
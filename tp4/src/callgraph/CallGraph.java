@@ -2,6 +2,8 @@ package callgraph;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -9,7 +11,6 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 
-import org.apache.commons.io.FileUtils;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.ITypeBinding;
@@ -17,7 +18,8 @@ import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.MethodInvocation;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
-import stats.StatsParser;
+import parser.CompilationUnitCache;
+import parser.ParallelAnalyzer;
 import visitors.MethodDeclarationVisitor;
 import visitors.MethodInvocationVisitor;
 import visitors.TypeDeclarationVisitor;
@@ -81,12 +83,13 @@ public class CallGraph {
 	public static CallGraph constructGraph(String projectPath) 
 			throws IOException {
 		CallGraph graph = new CallGraph(projectPath);
-		ArrayList<File> javaFiles = StatsParser.listJavaFilesForProject(new File(projectPath));
-		StatsParser parser = new StatsParser(projectPath);
+		CompilationUnitCache cache = CompilationUnitCache.forProject(projectPath);
 		
-		for (File fileEntry: javaFiles) {
-			String content = FileUtils.readFileToString(fileEntry);
-			CompilationUnit parse = parser.parse(content.toCharArray());
+		for (File fileEntry: cache.getJavaFiles()) {
+			CompilationUnit parse = cache.getCompilationUnit(fileEntry);
+			
+			if (parse == null)
+				continue;
 			
 			CallGraph partialGraph = CallGraph.constructGraph(fileEntry.getAbsolutePath(), parse);
 			graph.vertices.addAll(partialGraph.vertices);
@@ -96,18 +99,60 @@ public class CallGraph {
 		return graph;
 	}
 	
-	@Override
-	public String toString() {
-		String result = "";
-		
-		result += "Vertices:\n=========\n";
+	/**
+	 * Constructs the call graph of the whole project on all cores: every partition 
+	 * of the project builds its own graph, and the graphs are merged at the end
+	 * @param projectPath the project path
+	 * @return the call graph of the project
+	 * @throws IOException if the project cannot be analysed
+	 */
+	public static CallGraph constructGraphInParallel(String projectPath) 
+			throws IOException {
+		return new ParallelAnalyzer(projectPath).analyze(
+				() -> new CallGraph(projectPath),
+				(graph, parse) -> graph.merge(CallGraph.constructGraph(projectPath, parse)),
+				CallGraph::merge);
+	}
+	
+	/**
+	 * Merges the vertices and arrows of another graph into this one
+	 * @param other the other graph
+	 * @return this graph
+	 */
+	private CallGraph merge(CallGraph other) {
+		this.vertices.addAll(other.vertices);
+		this.arrows.addAll(other.arrows);
+		return this;
+	}
+	
+	/**
+	 * Writes the vertices and arrows of the graph to a writer as they are gone through,
+	 * without building the whole text in memory
+	 * @param writer the writer, flushed but not closed
+	 * @throws IOException if the writer cannot be written
+	 */
+	public void write(Writer writer) throws IOException {
+		writer.write("Vertices:\n=========\n");
 		for (String vertex: this.vertices)
-			result += vertex + "\n";
+			writer.write(vertex + "\n");
 		
-		result += "\nArrows:\n======\n";
+		writer.write("\nArrows:\n======\n");
 		for (Entry<String, String> arrow: this.arrows)
-			result += arrow.getKey() + " -> " + arrow.getValue() + "\n";
+			writer.write(arrow.getKey() + " -> " + arrow.getValue() + "\n");
+		
+		writer.flush();
+	}
+	
+	@Override
+	public String toString() {
+		StringWriter writer = new StringWriter();
+		
+		try {
+			write(writer);
+		} catch (IOException e) {
+			// a StringWriter does not throw IOExceptions
+		}
 		
-		return result;
+		return writer.toString();
 	}
 }
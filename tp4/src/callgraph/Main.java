@@ -1,13 +1,15 @@
 package callgraph;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 
 public class Main {
 
 	public static void main(String[] args) throws IOException {
 		String pathToSource = args[0];
 		System.out.println("Here is the dependency graph of "+ pathToSource + "'s project.");
-		CallGraph graph = CallGraph.constructGraph(pathToSource);
-		System.out.println(graph);
+		CallGraph graph = CallGraph.constructGraphInParallel(pathToSource);
+		graph.write(new BufferedWriter(new OutputStreamWriter(System.out)));
 	}
 }
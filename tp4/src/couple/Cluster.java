@@ -2,6 +2,7 @@ package couple;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 /**
  * Self made cluster.
@@ -65,8 +66,9 @@ public class Cluster {
     }
 	
 	public void addClasses(ArrayList<String> classesToAdd) {
+		HashSet<String> known = new HashSet<String>(this.classes);
 		for(String classToAdd : classesToAdd) {
-			if(!getClasses().contains(classToAdd)) {
+			if(known.add(classToAdd)) {
 				this.classes.add(classToAdd);
 			}
 		}
@@ -0,0 +1,202 @@
+package couple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Agglomerative clustering engine based on coupling.<br>
+ * The initial clusters are numbered 0..n-1 and the cluster created by the k-th merge
+ * is numbered n+k. The engine keeps a sparse inter-cluster weight matrix
+ * (for each cluster, its neighbours and the number of calls between them) that is
+ * updated incrementally on each merge, and a heap of candidate pairs to pick the
+ * most coupled pair, instead of rescanning every pair of clusters and every couple.<br>
+ * The weight between two clusters is the number of calls among all the classes
+ * of the two clusters, whatever their direction (A <--> B is the same as B <--> A).
+ */
+public class ClusteringEngine {
+
+	private int numberOfLeaves;
+	private List<Map<Integer, Integer>> neighbours = new ArrayList<Map<Integer, Integer>>();
+	private boolean[] alive;
+	private PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>();
+
+	// merges, in order
+	private int[] firsts;
+	private int[] seconds;
+	private int[] weights;
+	private int numberOfMerges = 0;
+
+	/**
+	 * Prepares the clustering of the given clusters, coupled by the given couples.
+	 * Couples involving a class that is in none of the clusters are ignored.
+	 */
+	public ClusteringEngine(List<Cluster> clusters, List<Couple> couples) {
+		numberOfLeaves = clusters.size();
+		alive = new boolean[Math.max(1, 2 * numberOfLeaves - 1)];
+		firsts = new int[Math.max(0, numberOfLeaves - 1)];
+		seconds = new int[firsts.length];
+		weights = new int[firsts.length];
+
+		Map<String, Integer> leafOfClass = new HashMap<String, Integer>();
+		for(int i = 0 ; i < numberOfLeaves ; i++) {
+			for(String cls : clusters.get(i).getClasses()) {
+				leafOfClass.put(cls, i);
+			}
+			neighbours.add(new HashMap<Integer, Integer>());
+			alive[i] = true;
+		}
+
+		for(Couple c : couples) {
+			Integer source = leafOfClass.get(c.getSource());
+			Integer target = leafOfClass.get(c.getTarget());
+			if(source != null && target != null && !source.equals(target)) {
+				neighbours.get(source).merge(target, c.getCpt(), Integer::sum);
+				neighbours.get(target).merge(source, c.getCpt(), Integer::sum);
+			}
+		}
+
+		for(int i = 0 ; i < numberOfLeaves ; i++) {
+			for(Map.Entry<Integer, Integer> neighbour : neighbours.get(i).entrySet()) {
+				if(i < neighbour.getKey()) {
+					candidates.add(new Candidate(i, neighbour.getKey(), neighbour.getValue()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merges the most coupled pair of clusters.
+	 *
+	 * @return false if no pair of clusters is coupled anymore.
+	 */
+	public boolean mergeBestPair() {
+		Candidate best = candidates.poll();
+		while(best != null && !(alive[best.first] && alive[best.second])) {
+			best = candidates.poll(); // outdated candidate, one of its clusters has been merged
+		}
+		if(best == null || best.weight == 0)
+			return false;
+
+		int merged = numberOfLeaves + numberOfMerges;
+		firsts[numberOfMerges] = best.first;
+		seconds[numberOfMerges] = best.second;
+		weights[numberOfMerges] = best.weight;
+		numberOfMerges++;
+
+		// the merged cluster is coupled with the neighbours of both parts
+		Map<Integer, Integer> first = neighbours.get(best.first);
+		Map<Integer, Integer> second = neighbours.get(best.second);
+		Map<Integer, Integer> larger = first.size() >= second.size() ? first : second;
+		Map<Integer, Integer> smaller = larger == first ? second : first;
+		for(Map.Entry<Integer, Integer> neighbour : smaller.entrySet()) {
+			larger.merge(neighbour.getKey(), neighbour.getValue(), Integer::sum);
+		}
+		larger.remove(best.first);
+		larger.remove(best.second);
+
+		alive[best.first] = false;
+		alive[best.second] = false;
+		alive[merged] = true;
+		neighbours.set(best.first, null);
+		neighbours.set(best.second, null);
+		neighbours.add(larger);
+
+		for(Map.Entry<Integer, Integer> neighbour : larger.entrySet()) {
+			Map<Integer, Integer> other = neighbours.get(neighbour.getKey());
+			other.remove(best.first);
+			other.remove(best.second);
+			other.put(merged, neighbour.getValue());
+			candidates.add(new Candidate(neighbour.getKey(), merged, neighbour.getValue()));
+		}
+		return true;
+	}
+
+	/**
+	 * Merges clusters until no pair of clusters is coupled anymore.
+	 *
+	 * @return this engine.
+	 */
+	public ClusteringEngine run() {
+		while(mergeBestPair());
+		return this;
+	}
+
+	public int getNumberOfLeaves() {
+		return numberOfLeaves;
+	}
+
+	public int getNumberOfMerges() {
+		return numberOfMerges;
+	}
+
+	/**
+	 * Returns the id of the first cluster merged by the k-th merge.
+	 */
+	public int getFirst(int merge) {
+		return firsts[merge];
+	}
+
+	/**
+	 * Returns the id of the second cluster merged by the k-th merge.
+	 */
+	public int getSecond(int merge) {
+		return seconds[merge];
+	}
+
+	/**
+	 * Returns the number of calls between the two clusters merged by the k-th merge.
+	 */
+	public int getWeight(int merge) {
+		return weights[merge];
+	}
+
+	/**
+	 * Returns the ids of the first clusters of all merges, in order.
+	 */
+	public int[] getFirsts() {
+		return Arrays.copyOf(firsts, numberOfMerges);
+	}
+
+	/**
+	 * Returns the ids of the second clusters of all merges, in order.
+	 */
+	public int[] getSeconds() {
+		return Arrays.copyOf(seconds, numberOfMerges);
+	}
+
+	/**
+	 * Returns the weights of all merges, in order.
+	 */
+	public int[] getWeights() {
+		return Arrays.copyOf(weights, numberOfMerges);
+	}
+
+	/**
+	 * A pair of clusters that may be merged, ordered by decreasing weight
+	 * (then by increasing ids, so that the clustering is deterministic).
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		private int first;
+		private int second;
+		private int weight;
+
+		Candidate(int first, int second, int weight) {
+			this.first = Math.min(first, second);
+			this.second = Math.max(first, second);
+			this.weight = weight;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			if(weight != other.weight)
+				return Integer.compare(other.weight, weight);
+			if(first != other.first)
+				return Integer.compare(first, other.first);
+			return Integer.compare(second, other.second);
+		}
+	}
+}
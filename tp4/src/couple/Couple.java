@@ -51,8 +51,12 @@ public class Couple {
 		this.score = score;
 	}
 	
+	/**
+	 * The score of the couple: the share of its calls among all the calls
+	 * between two different classes (0 if there is no call at all).
+	 */
 	public float computeScore() {
-		this.score = this.cpt/this.totalNumberOfRelations;
+		this.score = this.totalNumberOfRelations == 0 ? 0 : (float) this.cpt/this.totalNumberOfRelations;
 		return this.score;
 	}
 	
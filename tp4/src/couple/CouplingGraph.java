@@ -0,0 +1,177 @@
+package couple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexed coupling graph between classes.<br>
+ * Class names are interned to integer ids, and every couple is indexed by the
+ * unordered pair of ids of its classes (A <--> B is the same as B <--> A) in a
+ * {@link PairIndex}, so adding a call is a hash lookup instead of a scan of all
+ * the known couples.
+ * Couples are stored in insertion order in primitive arrays (source id, target id, counter),
+ * and can be viewed as Couple objects through {@link #toCouples()}.
+ */
+public class CouplingGraph {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// class names <-> ids
+	private Map<String, Integer> ids = new HashMap<String, Integer>();
+	private List<String> names = new ArrayList<String>();
+
+	// couples, in insertion order
+	private int[] sources = new int[INITIAL_CAPACITY];
+	private int[] targets = new int[INITIAL_CAPACITY];
+	private int[] counters = new int[INITIAL_CAPACITY];
+	private int size = 0;
+	private int totalNumberOfRelations = 0;
+
+	// unordered pair key -> couple index
+	private PairIndex index = new PairIndex(INITIAL_CAPACITY * 2);
+
+	/**
+	 * Returns the id of a class, interning its name if it is not known yet.
+	 */
+	public int intern(String cls) {
+		Integer id = ids.get(cls);
+		if(id == null) {
+			id = names.size();
+			ids.put(cls, id);
+			names.add(cls);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the name of the class with the given id.
+	 */
+	public String getName(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * Returns the number of interned classes.
+	 */
+	public int getNumberOfClasses() {
+		return names.size();
+	}
+
+	/**
+	 * Counts one call between class A and B.
+	 */
+	public void addCall(String callingClass, String calledClass) {
+		addCalls(intern(callingClass), intern(calledClass), 1);
+	}
+
+	/**
+	 * Counts several calls between class A and B.
+	 * The first call between A and B decides the orientation of the couple.
+	 */
+	public void addCalls(int callingClass, int calledClass, int calls) {
+		long key = key(callingClass, calledClass);
+		int couple = index.get(key);
+
+		if(couple < 0) { // new couple
+			if(size == sources.length)
+				growCouples();
+			sources[size] = callingClass;
+			targets[size] = calledClass;
+			counters[size] = 0;
+			index.put(key, size);
+			couple = size++;
+		}
+		counters[couple] += calls;
+		totalNumberOfRelations += calls;
+	}
+
+	/**
+	 * Returns the number of calls between class A and B, whatever their order.
+	 */
+	public int getCpt(String classA, String classB) {
+		Integer a = ids.get(classA);
+		Integer b = ids.get(classB);
+		if(a == null || b == null)
+			return 0;
+		return getCpt(a, b);
+	}
+
+	/**
+	 * Returns the number of calls between the classes of ids A and B, whatever their order.
+	 */
+	public int getCpt(int classA, int classB) {
+		int couple = index.get(key(classA, classB));
+		return couple < 0 ? 0 : counters[couple];
+	}
+
+	/**
+	 * Returns the number of couples.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getSource(int couple) {
+		return sources[couple];
+	}
+
+	public int getTarget(int couple) {
+		return targets[couple];
+	}
+
+	public int getCpt(int couple) {
+		return counters[couple];
+	}
+
+	/**
+	 * Returns the number of calls between two different classes in the whole graph.
+	 */
+	public int getTotalNumberOfRelations() {
+		return totalNumberOfRelations;
+	}
+
+	/**
+	 * Adds all the couples of another graph (e.g. of another part of the project) to this one.
+	 */
+	public CouplingGraph merge(CouplingGraph other) {
+		for(int i = 0 ; i < other.size ; i++) {
+			addCalls(intern(other.getName(other.sources[i])),
+					intern(other.getName(other.targets[i])),
+					other.counters[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the couples of the graph, with their total number of relations and score set.
+	 */
+	public ArrayList<Couple> toCouples() {
+		ArrayList<Couple> couples = new ArrayList<Couple>(size);
+		for(int i = 0 ; i < size ; i++) {
+			Couple c = new Couple(getName(sources[i]), getName(targets[i]), counters[i], 0);
+			c.setTotalNumberOfRelations(totalNumberOfRelations);
+			c.computeScore();
+			couples.add(c);
+		}
+		return couples;
+	}
+
+	/*
+	 * Unordered pair key : A <--> B and B <--> A share the same key.
+	 */
+	private static long key(int classA, int classB) {
+		int min = Math.min(classA, classB);
+		int max = Math.max(classA, classB);
+		return ((long) min << 32) | (max & 0xFFFFFFFFL);
+	}
+
+	private void growCouples() {
+		int capacity = sources.length * 2;
+		sources = Arrays.copyOf(sources, capacity);
+		targets = Arrays.copyOf(targets, capacity);
+		counters = Arrays.copyOf(counters, capacity);
+	}
+}
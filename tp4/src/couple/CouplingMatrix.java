@@ -0,0 +1,235 @@
+package couple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse class x class matrix of the number of calls between the classes of a project.<br>
+ * It is filled in one pass over the project, then answers every coupling query
+ * without parsing again:
+ * <ul>
+ * <li>the number of calls from A to B, or between A and B, is an O(1) lookup in a
+ * {@link PairIndex} keyed by the ordered pair of class ids</li>
+ * <li>a row (the classes called by A) or a column (the classes calling B) is read
+ * from compressed rows and columns, built once on the first slice query</li>
+ * <li>the score of a couple is the share of its calls among all the calls between
+ * two different classes, as in {@link Couple#computeScore()}</li>
+ * </ul>
+ * Calls from a class to itself are not counted.
+ */
+public class CouplingMatrix {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// class names <-> ids
+	private Map<String, Integer> ids = new HashMap<String, Integer>();
+	private List<String> names = new ArrayList<String>();
+
+	// non-zero cells, in insertion order
+	private int[] callers = new int[INITIAL_CAPACITY];
+	private int[] callees = new int[INITIAL_CAPACITY];
+	private int[] calls = new int[INITIAL_CAPACITY];
+	private int size = 0;
+	private int totalNumberOfRelations = 0;
+
+	// ordered pair key -> cell index
+	private PairIndex index = new PairIndex(INITIAL_CAPACITY * 2);
+
+	// compressed rows and columns of cell indexes, null until the first slice query
+	private int[] rowOffsets, rowCells, columnOffsets, columnCells;
+
+	/**
+	 * Returns the id of a class, interning its name if it is not known yet.
+	 */
+	public int intern(String cls) {
+		Integer id = ids.get(cls);
+		if(id == null) {
+			id = names.size();
+			ids.put(cls, id);
+			names.add(cls);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the name of the class with the given id.
+	 */
+	public String getName(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * Returns the number of classes of the matrix.
+	 */
+	public int getNumberOfClasses() {
+		return names.size();
+	}
+
+	/**
+	 * Returns the number of non-zero cells of the matrix.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of calls between two different classes in the whole project.
+	 */
+	public int getTotalNumberOfRelations() {
+		return totalNumberOfRelations;
+	}
+
+	/**
+	 * Counts one call from class A to class B.
+	 */
+	public void addCall(String callingClass, String calledClass) {
+		addCalls(intern(callingClass), intern(calledClass), 1);
+	}
+
+	/**
+	 * Counts several calls from the class of id A to the class of id B.
+	 */
+	public void addCalls(int callingClass, int calledClass, int n) {
+		if(callingClass == calledClass) /* A == B */
+			return;
+
+		long key = key(callingClass, calledClass);
+		int cell = index.get(key);
+
+		if(cell < 0) { // new cell
+			if(size == callers.length)
+				growCells();
+			callers[size] = callingClass;
+			callees[size] = calledClass;
+			calls[size] = 0;
+			index.put(key, size);
+			cell = size++;
+			rowOffsets = null; // slices are outdated
+		}
+		calls[cell] += n;
+		totalNumberOfRelations += n;
+	}
+
+	/**
+	 * Returns the number of calls from class A to class B.
+	 */
+	public int getCalls(String callingClass, String calledClass) {
+		Integer a = ids.get(callingClass);
+		Integer b = ids.get(calledClass);
+		if(a == null || b == null)
+			return 0;
+		return getCalls(a, b);
+	}
+
+	/**
+	 * Returns the number of calls from the class of id A to the class of id B.
+	 */
+	public int getCalls(int callingClass, int calledClass) {
+		int cell = index.get(key(callingClass, calledClass));
+		return cell < 0 ? 0 : calls[cell];
+	}
+
+	/**
+	 * Returns the number of calls between class A and B, in both directions.
+	 */
+	public int getCoupling(String classA, String classB) {
+		return getCalls(classA, classB) + getCalls(classB, classA);
+	}
+
+	/**
+	 * Returns the coupling score of class A and B: the share of the calls between A and B,
+	 * in both directions, among all the calls between two different classes.
+	 */
+	public float getScore(String classA, String classB) {
+		if(totalNumberOfRelations == 0)
+			return 0;
+		return (float) getCoupling(classA, classB) / totalNumberOfRelations;
+	}
+
+	/**
+	 * Returns the classes called by class A, with their number of calls.
+	 */
+	public Map<String, Integer> getRow(String callingClass) {
+		Integer a = ids.get(callingClass);
+		Map<String, Integer> row = new LinkedHashMap<String, Integer>();
+		if(a == null)
+			return row;
+		buildSlices();
+		for(int i = rowOffsets[a] ; i < rowOffsets[a + 1] ; i++)
+			row.put(getName(callees[rowCells[i]]), calls[rowCells[i]]);
+		return row;
+	}
+
+	/**
+	 * Returns the classes calling class B, with their number of calls.
+	 */
+	public Map<String, Integer> getColumn(String calledClass) {
+		Integer b = ids.get(calledClass);
+		Map<String, Integer> column = new LinkedHashMap<String, Integer>();
+		if(b == null)
+			return column;
+		buildSlices();
+		for(int i = columnOffsets[b] ; i < columnOffsets[b + 1] ; i++)
+			column.put(getName(callers[columnCells[i]]), calls[columnCells[i]]);
+		return column;
+	}
+
+	/**
+	 * Returns the coupling graph of the matrix: A -> B and B -> A cells are merged
+	 * into one couple A <--> B.
+	 */
+	public CouplingGraph toCouplingGraph() {
+		CouplingGraph graph = new CouplingGraph();
+		for(int i = 0 ; i < size ; i++)
+			graph.addCalls(graph.intern(getName(callers[i])), graph.intern(getName(callees[i])), calls[i]);
+		return graph;
+	}
+
+	/*
+	 * Builds the compressed rows and columns by counting sort of the cells,
+	 * so that the cells of a row (or column) keep their insertion order.
+	 */
+	private void buildSlices() {
+		if(rowOffsets != null && rowOffsets.length == names.size() + 1)
+			return;
+
+		int n = names.size();
+		rowOffsets = new int[n + 1];
+		columnOffsets = new int[n + 1];
+		for(int i = 0 ; i < size ; i++) {
+			rowOffsets[callers[i] + 1]++;
+			columnOffsets[callees[i] + 1]++;
+		}
+		for(int id = 0 ; id < n ; id++) {
+			rowOffsets[id + 1] += rowOffsets[id];
+			columnOffsets[id + 1] += columnOffsets[id];
+		}
+
+		rowCells = new int[size];
+		columnCells = new int[size];
+		int[] rowFill = Arrays.copyOf(rowOffsets, n);
+		int[] columnFill = Arrays.copyOf(columnOffsets, n);
+		for(int i = 0 ; i < size ; i++) {
+			rowCells[rowFill[callers[i]]++] = i;
+			columnCells[columnFill[callees[i]]++] = i;
+		}
+	}
+
+	/*
+	 * Ordered pair key : A -> B and B -> A have different keys.
+	 */
+	private static long key(int callingClass, int calledClass) {
+		return ((long) callingClass << 32) | (calledClass & 0xFFFFFFFFL);
+	}
+
+	private void growCells() {
+		int capacity = callers.length * 2;
+		callers = Arrays.copyOf(callers, capacity);
+		callees = Arrays.copyOf(callees, capacity);
+		calls = Arrays.copyOf(calls, capacity);
+	}
+}
@@ -5,8 +5,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Stack;
+import java.util.function.BiConsumer;
 
-import org.apache.commons.io.FileUtils;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
@@ -15,12 +15,16 @@ import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.MethodInvocation;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
+import parser.CompilationUnitCache;
+import parser.ParallelAnalyzer;
 import visitors.MethodInvocationVisitor;
 import visitors.TypeDeclarationVisitor;
 
 public class CouplingParser {
 	/*attributes*/
 	private String projectPath;
+	private CompilationUnitCache cache;
+	private CouplingMatrix matrix; // null until the first coupling query
 	//*** Bachar's jrePath ***//
 	// public static final String jrePath = "/usr/lib/jvm/java-11-oracle";
 	//*** Amandine's jrePath ***//
@@ -29,6 +33,7 @@ public class CouplingParser {
 	/*constructors*/
 	public CouplingParser(String projectPath) {
 		this.projectPath = projectPath;
+		this.cache = CompilationUnitCache.forProject(projectPath);
 	}
 	
 	/*methods*/
@@ -95,49 +100,39 @@ public class CouplingParser {
 	 * Returns the number of call between class A and B.
 	 */
 	public int getCouplingBetween(String callingClassName, String calledClassName) throws IOException { // Exo3
-		ArrayList<File> javaFiles = CouplingParser.listJavaFilesForProject(new File(projectPath));
-		
-		int cpt =0;
 		if(callingClassName.equals(calledClassName)) { // check A != B
 			System.out.println("Can not compute coupling in same class");
 			return 0; 
 		}
-		for (File fileEntry : javaFiles) { 
-			String content = FileUtils.readFileToString(fileEntry);
-			CompilationUnit parse = parse(content.toCharArray());
-			TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
-			parse.accept(visitor);
-			
-			for (TypeDeclaration td : visitor.getTypes()) { // for each class
-			    if(callingClassName.equals(td.getName().toString())) {       // A -> B
-                    for(MethodDeclaration method : td.getMethods()){ // in each methods from td class
-                        MethodInvocationVisitor visitor2 = new MethodInvocationVisitor();
-                        method.accept(visitor2);
-                        for (MethodInvocation methodInvocation : visitor2.getMethods()) { // look for a call in that method
-                            if(methodInvocation.resolveMethodBinding()!= null) {
-                                if (calledClassName.equals(methodInvocation.resolveMethodBinding().getDeclaringClass().getName().toString()) ) {
-                                    cpt++;
-                                }
-                            }
-                        }
-                    }
-                }
-			    else if(calledClassName.equals(td.getName().toString())) {   // B -> A
-			        for(MethodDeclaration method : td.getMethods()){ // in each methods from td class
-			            MethodInvocationVisitor visitor2 = new MethodInvocationVisitor();
-			            method.accept(visitor2);
-			            for (MethodInvocation methodInvocation : visitor2.getMethods()) { // look for a call in that method
-			                if(methodInvocation.resolveMethodBinding()!= null) {
-			                    if (callingClassName.equals(methodInvocation.resolveMethodBinding().getDeclaringClass().getName().toString()) ) {
-			                        cpt++;
-			                    }
-			                }
-			            }
-			        }
-			    }
-			}
+		return getCouplingMatrix().getCoupling(callingClassName, calledClassName);
+	}
+	
+	/**
+	 * Returns the coupling matrix of the project, computed on the first call only.
+	 * Every pair lookup is then free, e.g. for a coupling heat map of all the classes.
+	 */
+	public CouplingMatrix getCouplingMatrix() throws IOException {
+		if(matrix == null)
+			matrix = makeCouplingMatrix();
+		return matrix;
+	}
+	
+	/**
+	 * Computes the number of calls between every pair of classes of the project, in one pass.
+	 */
+	public CouplingMatrix makeCouplingMatrix() throws IOException {
+		CouplingMatrix matrix = new CouplingMatrix();
+		for (CompilationUnit parse : cache.getCompilationUnits()) {
+			addCalls(parse, matrix::addCall);
 		}
-		return cpt;
+		return matrix;
+	}
+	
+	/**
+	 * Drops the coupling matrix, e.g. after the project has been edited.
+	 */
+	public void clearCouplingMatrix() {
+		matrix = null;
 	}
 	
 
@@ -145,44 +140,55 @@ public class CouplingParser {
 	 * Make an ArrayList of Couple (weight associated to 2 class). Used in exo 3 TP3.
 	 */
 	public ArrayList<Couple> makeCoupledWeightedGraph() throws IOException {
-		ArrayList<File> javaFiles = CouplingParser.listJavaFilesForProject(new File(projectPath));
-		
-		int numberOfMethods = 0;
-		ArrayList<Couple> couples = new ArrayList<Couple>();
+		CouplingGraph graph = new CouplingGraph();
+		for (CompilationUnit parse : cache.getCompilationUnits()) {
+			addCouples(parse, graph);
+		}
+		return graph.toCouples();
+	}
+	
+	/**
+	 * Parallel version of makeCoupledWeightedGraph(): every partition of the project
+	 * collects its own couples on its own core, and the couples are merged at the end.
+	 */
+	public ArrayList<Couple> makeCoupledWeightedGraphInParallel() throws IOException {
+		return new ParallelAnalyzer(projectPath).analyze(
+				CouplingGraph::new, 
+				(partial, parse) -> addCouples(parse, partial), 
+				CouplingGraph::merge)
+				.toCouples();
+	}
+	
+	/**
+	 * Adds the couples of the classes declared in a compilation unit to a coupling graph.
+	 */
+	private static void addCouples(CompilationUnit parse, CouplingGraph graph) {
+		addCalls(parse, graph::addCall);
+	}
+	
+	/**
+	 * Reports every call from a class declared in a compilation unit to another class.
+	 */
+	private static void addCalls(CompilationUnit parse, BiConsumer<String, String> calls) {
 		String source, target; 
-		for (File fileEntry : javaFiles) {
-			String content = FileUtils.readFileToString(fileEntry);
-			CompilationUnit parse = parse(content.toCharArray());
-			TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
-			parse.accept(visitor);
-			
-			for (TypeDeclaration td : visitor.getTypes()) { // for each class A
-				source =  td.getName().toString();//().getClass().getPackage().getName();//.getPackage().getName() + "." + td.toString();
-				for(MethodDeclaration method : td.getMethods()){ // for each methods M in A
-					MethodInvocationVisitor visitor2 = new MethodInvocationVisitor();
-					method.accept(visitor2);
-					for (MethodInvocation methodInvocation : visitor2.getMethods()) { // for each method's invocation Mi from M
-						if(methodInvocation.resolveMethodBinding()!= null) {						    
-							target = methodInvocation.resolveMethodBinding().getDeclaringClass().getName();
-							if (!source.equals(target) ) { /* A != B */
-	                            numberOfMethods++;
-								if(Couple.isCoupleAlreadyInArray(couples, source, target)) { // we already know the couple
-									Couple.incrementCoupleCounter(couples, source, target);
-								} else { // we add this new couple in the array
-									Couple c = new Couple(source, target, 1, 0);
-									couples.add(c);
-								}
-							}
-						} 
-					}
+		TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
+		parse.accept(visitor);
+		
+		for (TypeDeclaration td : visitor.getTypes()) { // for each class A
+			source =  td.getName().toString();//().getClass().getPackage().getName();//.getPackage().getName() + "." + td.toString();
+			for(MethodDeclaration method : td.getMethods()){ // for each methods M in A
+				MethodInvocationVisitor visitor2 = new MethodInvocationVisitor();
+				method.accept(visitor2);
+				for (MethodInvocation methodInvocation : visitor2.getMethods()) { // for each method's invocation Mi from M
+					if(methodInvocation.resolveMethodBinding()!= null) {						    
+						target = methodInvocation.resolveMethodBinding().getDeclaringClass().getName();
+						if (!source.equals(target) ) { /* A != B */
+							calls.accept(source, target);
+						}
+					} 
 				}
 			}
 		}
-		for(Couple c : couples) {
-			c.setTotalNumberOfRelations(numberOfMethods);
-			c.computeScore();
-		}
-		return couples;
 	}
 	
 	/**
@@ -192,13 +198,10 @@ public class CouplingParser {
 	 * @throws IOException
 	 */
 	public ArrayList<Cluster> initializeClusters() throws IOException{
-		ArrayList<File> javaFiles = CouplingParser.listJavaFilesForProject(new File(projectPath));
 		ArrayList<Cluster> clusters = new ArrayList<Cluster>();
 		
 		// read all java files to fetch classes.
-		for (File fileEntry : javaFiles) {
-			String content = FileUtils.readFileToString(fileEntry);
-			CompilationUnit parse = parse(content.toCharArray());
+		for (CompilationUnit parse : cache.getCompilationUnits()) {
 			TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
 			parse.accept(visitor);
 			
@@ -230,47 +233,30 @@ public class CouplingParser {
 	        ArrayList<Couple> couples) throws IOException {
 		// variables
 	    Stack<Cluster> hierarchicalCluster = new Stack<Cluster>();
-		Cluster sourceCluster, targetCluster, firstPart, secondPart, newCluster;
-		int bestScore, firstIndex, secondIndex;
+		Cluster firstPart, secondPart, newCluster;
+		int bestScore;
+		ClusteringEngine engine = new ClusteringEngine(clusters, couples);
+		ArrayList<Cluster> clustersById = new ArrayList<Cluster>(clusters); // engine's cluster ids
 		
 		// ouputs
 		System.out.println("Original classes are put in clusters: ");
 		clusters.forEach(c -> System.out.println(c));
 		System.out.println("\nCreation of hierarchical clusters:");
 		
-		// while we don't have one final cluster
-		while(clusters.size()>1) { 
-			bestScore = 0;
-			firstIndex = 0;
-			secondIndex = 0;
-			
-			// look for the best clusters to fusionned
-			for(int i = 0 ; i < clusters.size() ; i++) {
-				sourceCluster = clusters.get(i);
-				for(int j = 0 ; j < clusters.size() ; j++) {
-					targetCluster = clusters.get(j);
-					if(i != j) {
-						int coupleScore = sourceCluster.getScoreBetweenClusters(couples, targetCluster);
-						if(bestScore < coupleScore){
-							bestScore = coupleScore;
-							firstIndex = i;
-							secondIndex = j;
-						}
-					}					
-				}
-			}
-			
-			// break condition if there is no more call
-			if(bestScore == 0)
-				break;
+		// while we don't have one final cluster, fusion the best clusters
+		// (stops if there is no more call between clusters)
+		while(clusters.size()>1 && engine.mergeBestPair()) { 
+			int merge = engine.getNumberOfMerges() - 1;
+			bestScore = engine.getWeight(merge);
 			
 			// fusion best clusters
-			firstPart = clusters.get(firstIndex);
-			secondPart = clusters.get(secondIndex);
+			firstPart = clustersById.get(engine.getFirst(merge));
+			secondPart = clustersById.get(engine.getSecond(merge));
 			newCluster = new Cluster(firstPart.getClasses(),
 									bestScore + firstPart.getCouplingScore() + secondPart.getCouplingScore());
 			newCluster.addClasses(secondPart.getClasses());
 			newCluster.addClusters(firstPart, secondPart);
+			clustersById.add(newCluster);
 			clusters.remove(firstPart);				// remove the
 			clusters.remove(secondPart);			// composed clusters
 			clusters.add(newCluster);
@@ -342,39 +328,36 @@ public class CouplingParser {
 //		return hierarchicalCluster;
 //	}
 	
+	/**
+	 * Computes the dendrogram of the hierarchical cluster of a Java program, without outputs.
+	 * The partitions at any threshold or any number of clusters can then be read from it.
+	 */
+	public Dendrogram makeDendrogram() throws IOException {
+		ArrayList<Cluster> clusters = initializeClusters();
+		return new Dendrogram(clusters, new ClusteringEngine(clusters, makeCoupledWeightedGraph()).run());
+	}
+	
 	/**
 	 * Used in question 2b from TP3
 	 * Computes the partition of a program based on its hierarchical cluster.
 	 */
 	public ArrayList<Cluster> makePartition() throws IOException {
 		System.out.println("\nPartition construction");
-		Stack<Cluster> stackOfCluster = makeHierarchicalCluster(initializeClusters(), makeCoupledWeightedGraph());
+		Dendrogram dendrogram = makeDendrogram();
 		ArrayList<Cluster> partition = new ArrayList<Cluster>();
 		
-		while(!stackOfCluster.isEmpty()) {
-			
-		    Cluster father = stackOfCluster.pop();
-			Cluster secondSon = father.getClustersInside().get(1);
-			Cluster firstSon = father.getClustersInside().get(0);
-			//Cluster secondSon = stackOfCluster.pop();
-			//Cluster firstSon = stackOfCluster.pop();
-			System.out.println("\nFather weight: " + father.getCouplingScore());
-			//System.out.println("Father: "+father.toString()+"\nFirst son: "+ firstSon.toString()+"\nSecond son: "+ secondSon.toString()+"\n\n");
-			System.out.println("Average of sons weight: " + Math.ceil((firstSon.getCouplingScore()+secondSon.getCouplingScore())/2));
-			
-			if(father.getCouplingScore() > Math.ceil((firstSon.getCouplingScore()+secondSon.getCouplingScore())/2)){
-				partition.add(father);
-				System.out.println("We add father to partition.");
-			} else {
-				System.out.println("Weight inferior or equal, he is not part of the partition.");
-				if(firstSon.getCouplingScore()!=0) stackOfCluster.push(firstSon); 
-				if(secondSon.getCouplingScore()!=0) stackOfCluster.push(secondSon);
-				// we can not operate if coupling score == 0
-			}
-			
-			System.out.println("Partition(s):");
-			partition.forEach(p -> System.out.println(p));
+		for(int father : dendrogram.partition()) {
+			int firstSon = dendrogram.getLeft(father);
+			int secondSon = dendrogram.getRight(father);
+			System.out.println("\nFather weight: " + dendrogram.getCouplingScore(father));
+			System.out.println("Average of sons weight: " + Math.ceil((dendrogram.getCouplingScore(firstSon)
+					+ dendrogram.getCouplingScore(secondSon))/2));
+			System.out.println("We add father to partition.");
+			partition.add(dendrogram.toCluster(father));
 		}
+		
+		System.out.println("Partition(s):");
+		partition.forEach(p -> System.out.println(p));
 		return partition;
 	}
 }
@@ -0,0 +1,238 @@
+package couple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact dendrogram of a hierarchical clustering.<br>
+ * Nodes 0..n-1 are the initial clusters (leaves), node n+k is the cluster created
+ * by the k-th merge. The tree is stored in int arrays (parent, children, merge weight,
+ * coupling score), and the classes are stored once in a permutation array where
+ * the classes of any node form a contiguous range. Asking for the classes of a node,
+ * or for the partition at a threshold or at a number of clusters, needs neither to
+ * rebuild the hierarchy nor to copy lists of classes.
+ */
+public class Dendrogram {
+
+	private int numberOfLeaves;
+	private int numberOfNodes;
+	private int[] parents;
+	private int[] lefts;		// -1 for leaves
+	private int[] rights;		// -1 for leaves
+	private int[] weights;		// number of calls between the two merged clusters, 0 for leaves
+	private int[] scores;		// coupling score: weight + scores of the sons
+	private int[] minWeights;	// smallest merge weight in the subtree
+	private int[] starts;		// classes of node i are classes[starts[i] .. ends[i]-1]
+	private int[] ends;
+	private String[] classes;
+
+	/**
+	 * Builds the dendrogram of the merges made by a clustering engine on the given initial clusters.
+	 */
+	public Dendrogram(List<Cluster> leaves, ClusteringEngine engine) {
+		numberOfLeaves = leaves.size();
+		numberOfNodes = numberOfLeaves + engine.getNumberOfMerges();
+		parents = new int[numberOfNodes];
+		lefts = new int[numberOfNodes];
+		rights = new int[numberOfNodes];
+		weights = new int[numberOfNodes];
+		scores = new int[numberOfNodes];
+		minWeights = new int[numberOfNodes];
+		starts = new int[numberOfNodes];
+		ends = new int[numberOfNodes];
+		Arrays.fill(parents, -1);
+		Arrays.fill(lefts, -1);
+		Arrays.fill(rights, -1);
+
+		int numberOfClasses = 0;
+		for(int i = 0 ; i < numberOfLeaves ; i++) {
+			scores[i] = leaves.get(i).getCouplingScore();
+			minWeights[i] = Integer.MAX_VALUE;
+			numberOfClasses += leaves.get(i).getClasses().size();
+		}
+		for(int k = 0 ; k < engine.getNumberOfMerges() ; k++) {
+			int node = numberOfLeaves + k;
+			lefts[node] = engine.getFirst(k);
+			rights[node] = engine.getSecond(k);
+			weights[node] = engine.getWeight(k);
+			parents[lefts[node]] = node;
+			parents[rights[node]] = node;
+			scores[node] = weights[node] + scores[lefts[node]] + scores[rights[node]];
+			minWeights[node] = Math.min(weights[node],
+					Math.min(minWeights[lefts[node]], minWeights[rights[node]]));
+		}
+
+		// lay the classes out so that every subtree is a contiguous range
+		classes = new String[numberOfClasses];
+		int position = 0;
+		int[] stack = new int[numberOfNodes];
+		for(int root : getRoots()) {
+			int top = 0;
+			stack[top++] = root;
+			while(top > 0) {
+				int node = stack[--top];
+				if(node >= 0) {
+					starts[node] = position;
+					if(isLeaf(node)) {
+						for(String cls : leaves.get(node).getClasses()) {
+							classes[position++] = cls;
+						}
+						ends[node] = position;
+					} else {
+						stack[top++] = -node - 1;	// close the node once its sons are laid out
+						stack[top++] = rights[node];
+						stack[top++] = lefts[node];
+					}
+				} else {
+					ends[-node - 1] = position;
+				}
+			}
+		}
+	}
+
+	public int getNumberOfLeaves() {
+		return numberOfLeaves;
+	}
+
+	public int getNumberOfNodes() {
+		return numberOfNodes;
+	}
+
+	public boolean isLeaf(int node) {
+		return node < numberOfLeaves;
+	}
+
+	/**
+	 * Returns the parent of a node, or -1 if it has never been merged.
+	 */
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	public int getLeft(int node) {
+		return lefts[node];
+	}
+
+	public int getRight(int node) {
+		return rights[node];
+	}
+
+	/**
+	 * Returns the number of calls between the two sons of a node (its merge height).
+	 */
+	public int getWeight(int node) {
+		return weights[node];
+	}
+
+	/**
+	 * Returns the coupling score of a node, as computed by the hierarchical clustering.
+	 */
+	public int getCouplingScore(int node) {
+		return scores[node];
+	}
+
+	/**
+	 * Returns the classes of a node, as a read-only view (no copy).
+	 */
+	public List<String> getClasses(int node) {
+		return Collections.unmodifiableList(Arrays.asList(classes).subList(starts[node], ends[node]));
+	}
+
+	/**
+	 * Returns the number of classes of a node.
+	 */
+	public int getSize(int node) {
+		return ends[node] - starts[node];
+	}
+
+	/**
+	 * Returns the nodes that have never been merged (one for each final cluster).
+	 */
+	public int[] getRoots() {
+		return cut(numberOfNodes);
+	}
+
+	/**
+	 * Returns the partition into the largest clusters whose merges all have
+	 * at least the given number of calls.
+	 */
+	public int[] cutAtThreshold(int minWeight) {
+		ArrayList<Integer> partition = new ArrayList<Integer>();
+		for(int node = 0 ; node < numberOfNodes ; node++) {
+			boolean kept = isLeaf(node) || minWeights[node] >= minWeight;
+			boolean parentKept = parents[node] != -1 && minWeights[parents[node]] >= minWeight;
+			if(kept && !parentKept) {
+				partition.add(node);
+			}
+		}
+		return toArray(partition);
+	}
+
+	/**
+	 * Returns the partition obtained by stopping the clustering when the given number
+	 * of clusters is reached (or when no pair of clusters is coupled anymore).
+	 */
+	public int[] cutIntoClusters(int numberOfClusters) {
+		int numberOfMerges = Math.max(0, Math.min(numberOfNodes - numberOfLeaves,
+				numberOfLeaves - numberOfClusters));
+		return cut(numberOfLeaves + numberOfMerges);
+	}
+
+	/**
+	 * Returns the partition of the program (question 2b from TP3): going down from the roots,
+	 * a cluster is part of the partition if its coupling score is higher than the average
+	 * of the scores of its sons, otherwise its sons that have a coupling score are examined.
+	 */
+	public int[] partition() {
+		ArrayList<Integer> partition = new ArrayList<Integer>();
+		int[] stack = new int[numberOfNodes];
+		int top = 0;
+		for(int root : getRoots()) {
+			if(!isLeaf(root))
+				stack[top++] = root;
+		}
+		while(top > 0) {
+			int father = stack[--top];
+			int firstSon = lefts[father];
+			int secondSon = rights[father];
+			if(scores[father] > Math.ceil((scores[firstSon] + scores[secondSon]) / 2)) {
+				partition.add(father);
+			} else {
+				// we can not operate if coupling score == 0
+				if(!isLeaf(firstSon) && scores[firstSon] != 0) stack[top++] = firstSon;
+				if(!isLeaf(secondSon) && scores[secondSon] != 0) stack[top++] = secondSon;
+			}
+		}
+		return toArray(partition);
+	}
+
+	/**
+	 * Returns the node as a Cluster.
+	 */
+	public Cluster toCluster(int node) {
+		return new Cluster(new ArrayList<String>(getClasses(node)), scores[node]);
+	}
+
+	/*
+	 * Nodes created before the given node id whose parent is not.
+	 */
+	private int[] cut(int limit) {
+		ArrayList<Integer> partition = new ArrayList<Integer>();
+		for(int node = 0 ; node < limit ; node++) {
+			if(parents[node] == -1 || parents[node] >= limit) {
+				partition.add(node);
+			}
+		}
+		return toArray(partition);
+	}
+
+	private static int[] toArray(List<Integer> nodes) {
+		int[] array = new int[nodes.size()];
+		for(int i = 0 ; i < array.length ; i++) {
+			array[i] = nodes.get(i);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,150 @@
+package couple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Index of the invocations of a Spoon model, by calling and called type.<br>
+ * The model is scanned once: every invocation is attributed to the type that
+ * contains it (its methods, constructors, initializers and nested classes) and
+ * to the type of its target, and its position is recorded. The index maps
+ * calling type -> called type -> call sites, so the coupling between two
+ * types is a map lookup instead of a scan of the whole model.<br>
+ * Invocations are indexed where they are declared: an inherited method is
+ * scanned once, in the type that declares it, not once per subclass.
+ */
+public class InvocationIndex {
+
+	/*attributes*/
+	private List<String> types = new ArrayList<String>();
+	// calling type -> called type -> call sites, in the order of the model
+	private Map<String, Map<String, List<SourcePosition>>> calls = new LinkedHashMap<String, Map<String, List<SourcePosition>>>();
+	private int numberOfInvocations = 0;
+
+	/*constructors*/
+	/**
+	 * Indexes the invocations of every type of a model.
+	 */
+	public InvocationIndex(CtModel model) {
+		for (CtType<?> type : model.getAllTypes()) { // for each class A
+			String source = type.getQualifiedName();
+			types.add(source);
+
+			for (CtInvocation<?> invocation : Query.getElements(type, new TypeFilter<CtInvocation<?>>(CtInvocation.class))) {
+				String target = getCalledType(invocation);
+				if (target != null)
+					addCall(source, target, invocation.getPosition());
+			}
+		}
+	}
+
+	/*methods*/
+	/**
+	 * Returns the qualified names of the types of the model.
+	 */
+	public List<String> getTypes() {
+		return Collections.unmodifiableList(types);
+	}
+
+	/**
+	 * Returns the number of indexed invocations.
+	 */
+	public int getNumberOfInvocations() {
+		return numberOfInvocations;
+	}
+
+	/**
+	 * Returns the number of calls from class A to class B.
+	 */
+	public int getCalls(String callingClass, String calledClass) {
+		return getPositions(callingClass, calledClass).size();
+	}
+
+	/**
+	 * Returns the number of calls between class A and B, in both directions.
+	 */
+	public int getCouplingBetween(String classA, String classB) {
+		return getCalls(classA, classB) + getCalls(classB, classA);
+	}
+
+	/**
+	 * Returns the number of calls from a class to every class it calls.
+	 */
+	public Map<String, Integer> getCallees(String callingClass) {
+		Map<String, Integer> callees = new LinkedHashMap<String, Integer>();
+		Map<String, List<SourcePosition>> targets = calls.get(callingClass);
+		if (targets != null) {
+			for (Map.Entry<String, List<SourcePosition>> target : targets.entrySet())
+				callees.put(target.getKey(), target.getValue().size());
+		}
+		return callees;
+	}
+
+	/**
+	 * Returns the positions of the calls from class A to class B.
+	 */
+	public List<SourcePosition> getPositions(String callingClass, String calledClass) {
+		Map<String, List<SourcePosition>> targets = calls.get(callingClass);
+		if (targets == null || !targets.containsKey(calledClass))
+			return Collections.emptyList();
+		return Collections.unmodifiableList(targets.get(calledClass));
+	}
+
+	/**
+	 * Builds the coupling graph of the model: the calls between two different classes,
+	 * whatever their direction.
+	 */
+	public CouplingGraph toCouplingGraph() {
+		CouplingGraph graph = new CouplingGraph();
+		for (Map.Entry<String, Map<String, List<SourcePosition>>> source : calls.entrySet()) {
+			for (Map.Entry<String, List<SourcePosition>> target : source.getValue().entrySet()) {
+				if (!source.getKey().equals(target.getKey())) /* A != B */
+					graph.addCalls(graph.intern(source.getKey()), graph.intern(target.getKey()), target.getValue().size());
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Returns the qualified name of the static type of the target of an invocation,
+	 * or null if it is unknown (e.g. no target, or a type outside of the classpath).
+	 */
+	private static String getCalledType(CtInvocation<?> invocation) {
+		CtExpression<?> target = invocation.getTarget();
+		if (target == null)
+			return null;
+
+		CtTypeReference<?> type = target.getType();
+		if (type == null || type.getTypeDeclaration() == null)
+			return null;
+
+		return type.getTypeDeclaration().getQualifiedName();
+	}
+
+	private void addCall(String source, String target, SourcePosition position) {
+		Map<String, List<SourcePosition>> targets = calls.get(source);
+		if (targets == null) {
+			targets = new LinkedHashMap<String, List<SourcePosition>>();
+			calls.put(source, targets);
+		}
+		List<SourcePosition> positions = targets.get(target);
+		if (positions == null) {
+			positions = new ArrayList<SourcePosition>();
+			targets.put(target, positions);
+		}
+		positions.add(position);
+		numberOfInvocations++;
+	}
+}
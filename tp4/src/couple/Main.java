@@ -23,6 +23,7 @@ public class Main {
 				"\n2. Hierarchical coupling cluster algorithm output." +
 				"\n3. Partition algorithm output." +
 				"\n4. To have all those informations with Spoon." +
+				"\n5. Coupling matrix (calls and score) between all classes." +
 				"\n0 To quit.");
 		Scanner sc = new Scanner(System.in);
 		int choice = sc.nextInt();
@@ -46,6 +47,17 @@ public class Main {
 				break;
 			case 4:
 			    Spoon.main(args);
+			    break;
+			case 5:
+				System.out.println("Here is the coupling matrix between all classes from "+pathToSource);
+				CouplingMatrix matrix = parser.getCouplingMatrix();
+				for(int id = 0 ; id < matrix.getNumberOfClasses() ; id++) {
+					String caller = matrix.getName(id);
+					matrix.getRow(caller)
+						.forEach((callee, calls) -> System.out.println(caller+"-["+calls+"]->"+callee
+								+" (score "+matrix.getScore(caller, callee)+")"));
+				}
+				break;
 			case 0:
 				return;
 			default:
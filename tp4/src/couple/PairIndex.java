@@ -0,0 +1,88 @@
+package couple;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing index from a pair of class ids, packed in a long key, to the
+ * index of the cell that holds the pair.<br>
+ * Shared by {@link CouplingGraph} (unordered pairs) and {@link CouplingMatrix}
+ * (ordered pairs): the caller packs the key and stores the cells itself, the index
+ * only maps keys to cell indexes with linear probing, and doubles its table when
+ * it is half full.
+ */
+class PairIndex {
+
+	private static final long EMPTY = -1L;
+
+	private long[] keys;
+	private int[] cells;
+	private int size = 0;
+
+	/**
+	 * Creates an index of the given initial capacity, a power of two.
+	 */
+	PairIndex(int capacity) {
+		keys = newKeys(capacity);
+		cells = new int[capacity];
+	}
+
+	/**
+	 * Returns the cell index of the key, or -1 if the key is not indexed.
+	 */
+	int get(long key) {
+		int slot = find(key);
+		return keys[slot] == EMPTY ? -1 : cells[slot];
+	}
+
+	/**
+	 * Indexes a new key. Keys are pairs of non negative ids, so never EMPTY.
+	 */
+	void put(long key, int cell) {
+		int slot = find(key);
+		if(keys[slot] == EMPTY)
+			size++;
+		keys[slot] = key;
+		cells[slot] = cell;
+		if(size * 2 > keys.length)
+			rehash(keys.length * 2);
+	}
+
+	/*
+	 * Returns the slot of the key, or the empty slot where it should be inserted.
+	 */
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while(keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private static long[] newKeys(int capacity) {
+		long[] k = new long[capacity];
+		Arrays.fill(k, EMPTY);
+		return k;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldCells = cells;
+		keys = newKeys(capacity);
+		cells = new int[capacity];
+		for(int i = 0 ; i < oldKeys.length ; i++) {
+			if(oldKeys[i] != EMPTY) {
+				int slot = find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				cells[slot] = oldCells[i];
+			}
+		}
+	}
+}
@@ -4,17 +4,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Stack;
 
-import spoon.Launcher;
 import spoon.reflect.CtModel;
-import spoon.reflect.code.CtInvocation;
-import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtType;
-import spoon.reflect.visitor.Query;
-import spoon.reflect.visitor.filter.TypeFilter;
 
 public class Spoon {
     /*attributes*/
     private String projectPath;
+    private SpoonSession session;
     //*** Bachar's jrePath ***//
     // public static final String jrePath = "/usr/lib/jvm/java-11-oracle";
     //*** Amandine's jrePath ***//
@@ -22,14 +18,28 @@ public class Spoon {
 
     /*constructors*/
     public Spoon(String projectPath) {
+        this(projectPath, SpoonSession.forProject(projectPath));
+    }
+
+    public Spoon(String projectPath, SpoonSession session) {
         this.projectPath = projectPath;
+        this.session = session;
     }
 
+    /**
+     * The Spoon model of the project, built (or reloaded from disk) once
+     * and shared by all the queries.
+     */
     public CtModel getModel() {
-        Launcher launcher = new Launcher();
-        launcher.addInputResource(projectPath);
-        launcher.buildModel();
-        return launcher.getModel();
+        return session.getModel();
+    }
+
+    /**
+     * The invocations of the project by calling and called class,
+     * indexed once from the model and shared by all the coupling queries.
+     */
+    public InvocationIndex getInvocationIndex() {
+        return session.getInvocationIndex();
     }
 
     /**
@@ -43,12 +53,12 @@ public class Spoon {
 
         // Q1
         System.out.println("Here is the coupling weighted graph between all classes from "+pathToSource);
-        spoon.makeCoupledWeightedGraph()
-        .forEach(c -> System.out.println(c.getSource()+"<-["+c.getCpt()+"/"+c.getTotalNumberOfRelations()+"]->"+c.getTarget()));
+        ArrayList<Couple> couples = spoon.makeCoupledWeightedGraph();
+        couples.forEach(c -> System.out.println(c.getSource()+"<-["+c.getCpt()+"/"+c.getTotalNumberOfRelations()+"]->"+c.getTarget()));
 
         // Q2
         System.out.println("Here is the hierarchical coupling cluster process:");
-        spoon.makeHierarchicalCluster(spoon.initializeClusters(), spoon.makeCoupledWeightedGraph());
+        spoon.makeHierarchicalCluster(spoon.initializeClusters(), couples);
           //.forEach(c -> System.out.println("Final cluster: "+c));
 
         // Q3
@@ -68,72 +78,18 @@ public class Spoon {
      * Returns the number of call between class A and B.
      */
     public int getCouplingBetween(String callingClassName, String calledClassName) throws IOException { // Exo3
-        CtModel model = getModel();
-        
-        int cpt =0;
         if(callingClassName.equals(calledClassName)) { // check A != B
             System.out.println("Can not compute coupling in same class");
             return 0; 
         }
-        for (CtType<?> type : model.getAllTypes()) { // for each class
-            if(callingClassName.equals(type.getQualifiedName())) { // A -> B
-                for(CtMethod<?> method : type.getAllMethods()){ // in each methods from td class
-                    for (CtInvocation<?> methodInvocation : Query.getElements(method, new TypeFilter<CtInvocation<?>>(CtInvocation.class))) { // look for a call in that method
-                        if(methodInvocation.getTarget().getType() != null) {
-                            if (calledClassName.equals(methodInvocation.getTarget().getType().getTypeDeclaration().getQualifiedName())) {
-                                cpt++;
-                            }
-                        }
-                    }
-                }
-            } else if(calledClassName.equals(type.getQualifiedName())) { // B -> A
-                for(CtMethod<?> method : type.getAllMethods()){ // in each methods from td class
-                    for (CtInvocation<?> methodInvocation : Query.getElements(method, new TypeFilter<CtInvocation<?>>(CtInvocation.class))) { // look for a call in that method
-                        if(methodInvocation.getTarget().getType() != null) {
-                            if (callingClassName.equals(methodInvocation.getTarget().getType().getTypeDeclaration().getQualifiedName())) {
-                                cpt++;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return cpt;
+        return getInvocationIndex().getCouplingBetween(callingClassName, calledClassName);
     }
 
     /**
      * Draws a sort of "weighted-coupling graphs". Used in exo 3 TP3.
      */
     public ArrayList<Couple> makeCoupledWeightedGraph() throws IOException {
-        CtModel model = getModel();
-        int numberOfMethods = 0;
-        ArrayList<Couple> couples = new ArrayList<Couple>();
-        String source, target; 
-        for (CtType<?> type : model.getAllTypes()) { // for each class A
-            source = type.getQualifiedName();
-            for(CtMethod<?> method : type.getAllMethods()){ // for each methods M in A
-                for (CtInvocation<?> methodInvocation : Query.getElements(method, new TypeFilter<CtInvocation<?>>(CtInvocation.class))) { // for each method's invocation Mi from M
-                    if(methodInvocation.getTarget().getType() != null) { ;
-                        target = methodInvocation.getTarget().getType().getTypeDeclaration().getQualifiedName();
-                        if (!source.equals(target) ) { /* A != B */
-                            numberOfMethods++;
-                            if(Couple.isCoupleAlreadyInArray(couples, source, target)) { // we already know the couple
-                                Couple.incrementCoupleCounter(couples, source, target);
-                            } else { // we add this new couple in the array
-                                Couple c = new Couple(source, target, 1, 0);
-                                couples.add(c);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        for(Couple c : couples) {
-            c.setTotalNumberOfRelations(numberOfMethods);
-            c.computeScore();
-        }
-        return couples;
+        return getInvocationIndex().toCouplingGraph().toCouples();
     }
 
     /**
@@ -175,46 +131,29 @@ public class Spoon {
             ArrayList<Couple> couples) throws IOException {
         // variables
         Stack<Cluster> hierarchicalCluster = new Stack<Cluster>();
-        Cluster sourceCluster, targetCluster, firstPart, secondPart, newCluster;
-        int bestScore, firstIndex, secondIndex;
+        Cluster firstPart, secondPart, newCluster;
+        int bestScore;
+        ClusteringEngine engine = new ClusteringEngine(clusters, couples);
+        ArrayList<Cluster> clustersById = new ArrayList<Cluster>(clusters); // engine's cluster ids
 
         // ouputs
         System.out.println("Original classes are put in clusters: ");
         clusters.forEach(c -> System.out.println(c));
         System.out.println("\nCreation of hierarchical clusters:");
 
-        // while we don't have one final cluster
-        while(clusters.size()>1) { 
-            bestScore = 0;
-            firstIndex = 0;
-            secondIndex = 0;
-
-            // look for the best clusters to fusionned
-            for(int i = 0 ; i < clusters.size() ; i++) {
-                sourceCluster = clusters.get(i);
-                for(int j = 0 ; j < clusters.size() ; j++) {
-                    targetCluster = clusters.get(j);
-                    if(i != j) {
-                        int coupleScore = sourceCluster.getScoreBetweenClusters(couples, targetCluster);
-                        if(bestScore < coupleScore){
-                            bestScore = coupleScore;
-                            firstIndex = i;
-                            secondIndex = j;
-                        }
-                    }                   
-                }
-            }
-
-            // break condition if there is no more call
-            if(bestScore == 0)
-                break;
+        // while we don't have one final cluster, fusion the best clusters
+        // (stops if there is no more call between clusters)
+        while(clusters.size()>1 && engine.mergeBestPair()) { 
+            int merge = engine.getNumberOfMerges() - 1;
+            bestScore = engine.getWeight(merge);
 
             // fusion best clusters
-            firstPart = clusters.get(firstIndex);
-            secondPart = clusters.get(secondIndex);
+            firstPart = clustersById.get(engine.getFirst(merge));
+            secondPart = clustersById.get(engine.getSecond(merge));
             newCluster = new Cluster(firstPart.getClasses(),
                     bestScore + firstPart.getCouplingScore() + secondPart.getCouplingScore());
             newCluster.addClasses(secondPart.getClasses());
+            clustersById.add(newCluster);
             clusters.remove(firstPart);             // remove the
             clusters.remove(secondPart);            // composed clusters
             clusters.add(newCluster);
@@ -241,41 +180,24 @@ public class Spoon {
             ArrayList<Couple> couples) throws IOException {
         // variables
         Stack<Cluster> hierarchicalCluster = new Stack<Cluster>();
-        Cluster sourceCluster, targetCluster, firstPart, secondPart, newCluster;
-        int bestScore, firstIndex, secondIndex;
-
-        // while we don't have one final cluster
-        while(clusters.size()>1) { 
-            bestScore = 0;
-            firstIndex = 0;
-            secondIndex = 0;
-
-            // look for the best clusters to fusionned
-            for(int i = 0 ; i < clusters.size() ; i++) {
-                sourceCluster = clusters.get(i);
-                for(int j = 0 ; j < clusters.size() ; j++) {
-                    targetCluster = clusters.get(j);
-                    if(i != j) {
-                        int coupleScore = sourceCluster.getScoreBetweenClusters(couples, targetCluster);
-                        if(bestScore < coupleScore){
-                            bestScore = coupleScore;
-                            firstIndex = i;
-                            secondIndex = j;
-                        }
-                    }                   
-                }
-            }
+        Cluster firstPart, secondPart, newCluster;
+        int bestScore;
+        ClusteringEngine engine = new ClusteringEngine(clusters, couples);
+        ArrayList<Cluster> clustersById = new ArrayList<Cluster>(clusters); // engine's cluster ids
 
-            // break condition if there is no more call
-            if(bestScore == 0)
-                break;
+        // while we don't have one final cluster, fusion the best clusters
+        // (stops if there is no more call between clusters)
+        while(clusters.size()>1 && engine.mergeBestPair()) { 
+            int merge = engine.getNumberOfMerges() - 1;
+            bestScore = engine.getWeight(merge);
 
             // fusion best clusters
-            firstPart = clusters.get(firstIndex);
-            secondPart = clusters.get(secondIndex);
+            firstPart = clustersById.get(engine.getFirst(merge));
+            secondPart = clustersById.get(engine.getSecond(merge));
             newCluster = new Cluster(firstPart.getClasses(),
                     bestScore + firstPart.getCouplingScore() + secondPart.getCouplingScore());
             newCluster.addClasses(secondPart.getClasses());
+            clustersById.add(newCluster);
             clusters.remove(firstPart);             // remove the
             clusters.remove(secondPart);            // composed clusters
             clusters.add(newCluster);
@@ -286,30 +208,34 @@ public class Spoon {
         return hierarchicalCluster;
     }
 
+    /**
+     * Computes the dendrogram of the hierarchical cluster of a Java program, without outputs.
+     * The partitions at any threshold or any number of clusters can then be read from it.
+     */
+    public Dendrogram makeDendrogram() throws IOException {
+        ArrayList<Cluster> clusters = initializeClusters();
+        return new Dendrogram(clusters, new ClusteringEngine(clusters, makeCoupledWeightedGraph()).run());
+    }
+
     /**
      * Used in question 2b from TP3
      * Computes the partition of a program based on its hierarchical cluster.
      */
     public ArrayList<Cluster> makePartition() throws IOException {
         System.out.println("\nPartition construction");
-        Stack<Cluster> stackOfCluster = silentHierarchicalClusterMaker(initializeClusters(), makeCoupledWeightedGraph());
+        Dendrogram dendrogram = makeDendrogram();
         ArrayList<Cluster> partition = new ArrayList<Cluster>();
-        while(!stackOfCluster.isEmpty()) {
-
-            Cluster father = stackOfCluster.pop();
-            Cluster secondSon = stackOfCluster.pop();
-            Cluster firstSon = stackOfCluster.pop();
-            System.out.println("\nFather weight: " + father.getCouplingScore());
-            System.out.println("Average of sons weight: " + Math.ceil((firstSon.getCouplingScore()+secondSon.getCouplingScore())/2));
-            if(father.getCouplingScore() > Math.ceil((firstSon.getCouplingScore()+secondSon.getCouplingScore())/2)){
-                partition.add(father);
-                System.out.println("We add father to partition.");
-            } else {
-                System.out.println("Weight inferior or equal, his sons are not part of the partition.");
-            }
-            System.out.println("Partition(s):");
-            partition.forEach(p -> System.out.println(p));
+        for(int father : dendrogram.partition()) {
+            int firstSon = dendrogram.getLeft(father);
+            int secondSon = dendrogram.getRight(father);
+            System.out.println("\nFather weight: " + dendrogram.getCouplingScore(father));
+            System.out.println("Average of sons weight: " + Math.ceil((dendrogram.getCouplingScore(firstSon)
+                    + dendrogram.getCouplingScore(secondSon))/2));
+            System.out.println("We add father to partition.");
+            partition.add(dendrogram.toCluster(father));
         }
+        System.out.println("Partition(s):");
+        partition.forEach(p -> System.out.println(p));
         return partition;
     }
   
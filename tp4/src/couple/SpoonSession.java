@@ -0,0 +1,236 @@
+package couple;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import parser.Parser;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.reflect.factory.Factory;
+import spoon.support.SerializationModelStreamer;
+
+/**
+ * A reusable Spoon model of a project.<br>
+ * The model is built lazily, on the first call to {@link #getModel()}, then
+ * every query of the run shares it instead of building its own.<br>
+ * The model can also be serialized to a store file, along with a stamp of the
+ * project's java files (their paths, sizes and modification times): a later
+ * run on an unchanged project reloads the model from the store instead of
+ * building it. If the stamp does not match, the store is ignored, and
+ * overwritten once the model is rebuilt.<br>
+ * There is one session per project path, shared through {@link #forProject(String)}.
+ * Its store is kept in a cache directory outside of the project, so that the
+ * analyzed source tree is left untouched.
+ */
+public class SpoonSession {
+	/*attributes*/
+	public static final String STORE_EXTENSION = ".spoonmodel";
+	public static final File DEFAULT_STORE_DIRECTORY =
+			new File(System.getProperty("user.home"), ".cache" + File.separator + "spoonmodel");
+
+	private static Map<String, SpoonSession> sessions = new HashMap<>();
+
+	private String projectPath;
+	private File store; // null if the model is not persisted
+	private CtModel model;
+	private InvocationIndex invocationIndex;
+
+	/*constructors*/
+	/**
+	 * A session whose model is persisted in a store file
+	 * @param projectPath the path of the project
+	 * @param store the store file, or null to keep the model in memory only
+	 */
+	public SpoonSession(String projectPath, File store) {
+		this.projectPath = projectPath;
+		this.store = store;
+	}
+
+	/*methods*/
+	/**
+	 * The shared session of a project, persisted in the default store directory
+	 * @param projectPath the path of the project
+	 * @return the session of the project identified by its path
+	 */
+	public static synchronized SpoonSession forProject(String projectPath) {
+		String key = new File(projectPath).getAbsolutePath();
+
+		if (!sessions.containsKey(key))
+			sessions.put(key, new SpoonSession(projectPath, defaultStore(key)));
+
+		return sessions.get(key);
+	}
+
+	/**
+	 * The store of a project in the default store directory, named after the
+	 * project's folder and the hash of its absolute path
+	 * @param absolutePath the absolute path of the project
+	 * @return the store file of the project
+	 */
+	private static File defaultStore(String absolutePath) {
+		String name = new File(absolutePath).getName() + "-"
+				+ sha1(Collections.singletonList(absolutePath)).substring(0, 12);
+		return new File(DEFAULT_STORE_DIRECTORY, name + STORE_EXTENSION);
+	}
+
+	/**
+	 * The project path getter
+	 * @return the project path
+	 */
+	public String getProjectPath() {
+		return this.projectPath;
+	}
+
+	/**
+	 * The store getter
+	 * @return the file in which the model is persisted, or null
+	 */
+	public File getStore() {
+		return this.store;
+	}
+
+	/**
+	 * The model of the project, built or reloaded on the first call only
+	 * @return the Spoon model of the project
+	 */
+	public synchronized CtModel getModel() {
+		if (model != null)
+			return model;
+
+		String stamp = stamp();
+		model = load(stamp);
+
+		if (model == null) {
+			Launcher launcher = new Launcher();
+			launcher.addInputResource(projectPath);
+			launcher.buildModel();
+			model = launcher.getModel();
+			save(launcher.getFactory(), stamp);
+		}
+		return model;
+	}
+
+	/**
+	 * The invocation index of the model, built on the first call only
+	 * @return the invocations of the project, by calling and called type
+	 */
+	public synchronized InvocationIndex getInvocationIndex() {
+		if (invocationIndex == null)
+			invocationIndex = new InvocationIndex(getModel());
+		return invocationIndex;
+	}
+
+	/**
+	 * Whether the model has already been built or reloaded
+	 * @return true if the next call to getModel() is free
+	 */
+	public synchronized boolean isLoaded() {
+		return model != null;
+	}
+
+	/**
+	 * Drops the model and its index, e.g. after the project has been edited:
+	 * it will be reloaded or rebuilt by the next call to getModel()
+	 */
+	public synchronized void invalidate() {
+		model = null;
+		invocationIndex = null;
+	}
+
+	/**
+	 * Reloads the model from the store, if the store matches the project
+	 * @param stamp the stamp of the project
+	 * @return the stored model, or null if there is none or if it is outdated
+	 */
+	private CtModel load(String stamp) {
+		if (store == null || !store.isFile())
+			return null;
+
+		try (FileInputStream in = new FileInputStream(store)) {
+			if (!new DataInputStream(in).readUTF().equals(stamp))
+				return null; // the project changed since the model was stored
+
+			Factory factory = new SerializationModelStreamer().load(in);
+			return factory.getModel();
+		} catch (IOException | RuntimeException e) {
+			return null; // unreadable or outdated store, it will be overwritten
+		}
+	}
+
+	/**
+	 * Stores the model, preceded by the stamp of the project it was built from.
+	 * A model that cannot be stored is only kept in memory.
+	 * @param factory the factory of the model
+	 * @param stamp the stamp of the project
+	 */
+	private void save(Factory factory, String stamp) {
+		if (store == null)
+			return;
+
+		File tmp = new File(store.getAbsolutePath() + ".tmp");
+
+		try {
+			Files.createDirectories(store.getAbsoluteFile().getParentFile().toPath());
+			try (FileOutputStream out = new FileOutputStream(tmp)) {
+				new DataOutputStream(out).writeUTF(stamp);
+				new SerializationModelStreamer().save(factory, out);
+			}
+			Files.move(tmp.toPath(), store.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			System.err.println("Could not store the Spoon model in " + store + ": " + e.getMessage());
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * The stamp of the project: the SHA-1 hash of the path, size and
+	 * modification time of each of its java files
+	 * @return the hexadecimal stamp of the project
+	 */
+	private String stamp() {
+		List<String> entries = new ArrayList<>();
+
+		for (File javaFile : Parser.listJavaFilesForFolder(new File(projectPath)))
+			entries.add(javaFile.getAbsolutePath() + ":" + javaFile.length() + ":" + javaFile.lastModified());
+
+		Collections.sort(entries);
+		return sha1(entries);
+	}
+
+	/**
+	 * The SHA-1 hash of some lines
+	 * @param lines the lines to hash
+	 * @return the hexadecimal hash of the lines
+	 */
+	private static String sha1(List<String> lines) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+			for (String line : lines)
+				digest.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder hash = new StringBuilder();
+
+			for (byte b : digest.digest())
+				hash.append(String.format("%02x", b));
+
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package parser;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
+
+/**
+ * A batch parser for the java files of a project.<br>
+ * Instead of building a new ASTParser (and a new name environment) per file,
+ * all the files are handed to a single ASTParser.createASTs() call:
+ * JDT builds the name environment once for the whole project and resolves
+ * the bindings across files without re-reading the sources.
+ * The compilation units are streamed to the requestor as soon as they are produced.
+ */
+public class BatchParser {
+	/*attributes*/
+	private String projectPath;
+	//*** Bachar's jrePath ***//
+	// public static final String jrePath = "/usr/lib/jvm/java-11-oracle";
+	//*** Amandine's jrePath ***//
+	public static final String jrePath = "/usr/lib/jvm/java-8-openjdk-amd64/";
+
+	/*constructors*/
+	public BatchParser(String projectPath) {
+		this.projectPath = projectPath;
+	}
+
+	/*methods*/
+	/**
+	 * The project path getter
+	 * @return the project path
+	 */
+	public String getProjectPath() {
+		return this.projectPath;
+	}
+
+	/**
+	 * Parses all the java files of the project in one batch
+	 * @param requestor the requestor receiving each compilation unit as soon as it is produced
+	 */
+	public void parse(FileASTRequestor requestor) {
+		parse(Parser.listJavaFilesForFolder(new File(projectPath)), requestor);
+	}
+
+	/**
+	 * Parses the provided java files in one batch, sharing a single binding environment
+	 * @param javaFiles the java files to parse
+	 * @param requestor the requestor receiving each compilation unit as soon as it is produced
+	 */
+	public void parse(List<File> javaFiles, FileASTRequestor requestor) {
+		if (javaFiles.isEmpty())
+			return;
+
+		String[] sourceFilePaths = new String[javaFiles.size()];
+
+		for (int i = 0; i < sourceFilePaths.length; i++)
+			sourceFilePaths[i] = javaFiles.get(i).getAbsolutePath();
+
+		newParser().createASTs(sourceFilePaths, null, new String[0], requestor, null);
+	}
+
+	/**
+	 * The AST parser configured for the project
+	 * @return a binding-resolving AST parser whose environment is the project and the JRE
+	 */
+	private ASTParser newParser() {
+		ASTParser parser = ASTParser.newParser(AST.JLS4); // java +1.6
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+
+		parser.setResolveBindings(true);
+		parser.setBindingsRecovery(true);
+
+		Map options = JavaCore.getOptions();
+		parser.setCompilerOptions(options);
+
+		String[] sources = { projectPath };
+		String[] classpath = {jrePath};
+
+		parser.setEnvironment(classpath, sources, new String[] { "UTF-8"}, true);
+
+		return parser;
+	}
+}
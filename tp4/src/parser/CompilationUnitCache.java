@@ -0,0 +1,283 @@
+package parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
+
+/**
+ * A project-level cache of compilation units.<br>
+ * Every java file of the project is parsed at most once per run:
+ * entries are keyed by the file's absolute path and remember the hash
+ * of the content they were parsed from, so a file is only parsed again
+ * if its content changed on disk. Missing files are parsed together by a
+ * {@link BatchParser}, so bindings are resolved once per project.<br>
+ * The units of a same parse batch share their binding environment, which is
+ * not thread-safe: every cached unit remembers its batch, so that the units
+ * of a batch are never visited concurrently (see {@link #getCachedUnits(List, List)}).<br>
+ * There is one cache per project path, shared by all the parsers
+ * (StatsParser, CouplingParser, CallGraph, VariabilityParser) through
+ * {@link #forProject(String)}.
+ */
+public class CompilationUnitCache {
+	/*attributes*/
+	private static Map<String, CompilationUnitCache> caches = new HashMap<>();
+
+	private String projectPath;
+	private BatchParser batchParser;
+	private Map<String, CachedUnit> units = new HashMap<>();
+	// hashes of the files handed out as stale, until their unit is stored
+	private Map<String, byte[]> pendingHashes = new HashMap<>();
+
+	/*constructors*/
+	private CompilationUnitCache(String projectPath) {
+		this.projectPath = projectPath;
+		this.batchParser = new BatchParser(projectPath);
+	}
+
+	/*methods*/
+	/**
+	 * The shared cache of a project
+	 * @param projectPath the path of the project
+	 * @return the cache of the project identified by its path
+	 */
+	public static synchronized CompilationUnitCache forProject(String projectPath) {
+		String key = new File(projectPath).getAbsolutePath();
+
+		if (!caches.containsKey(key))
+			caches.put(key, new CompilationUnitCache(projectPath));
+
+		return caches.get(key);
+	}
+
+	/**
+	 * The project path getter
+	 * @return the project path
+	 */
+	public String getProjectPath() {
+		return this.projectPath;
+	}
+
+	/**
+	 * The java files of the project
+	 * @return the list of java files for the project identified by its path
+	 */
+	public ArrayList<File> getJavaFiles() {
+		return Parser.listJavaFilesForFolder(new File(projectPath));
+	}
+
+	/**
+	 * The compilation units of every java file of the project,
+	 * batch-parsing only the files that are not cached yet or whose content changed.
+	 * Files for which JDT delivers no compilation unit are reported and skipped.
+	 * @return the compilation units of the project identified by its path
+	 * @throws IOException if a java file of the project cannot be read
+	 */
+	public synchronized List<CompilationUnit> getCompilationUnits() throws IOException {
+		ArrayList<File> javaFiles = getJavaFiles();
+		List<CompilationUnit> cUnits = new ArrayList<>();
+
+		refresh(javaFiles, null);
+
+		for (File fileEntry: javaFiles) {
+			CompilationUnit unit = unitOf(fileEntry);
+
+			if (unit != null)
+				cUnits.add(unit);
+		}
+
+		return cUnits;
+	}
+
+	/**
+	 * The compilation unit of a java file, parsed only if it is not cached yet
+	 * or if its content changed since it was cached
+	 * @param file the java file
+	 * @return the compilation unit for the root node of the file's AST,
+	 * or null if JDT delivered no compilation unit for the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public synchronized CompilationUnit getCompilationUnit(File file) throws IOException {
+		refresh(Collections.singletonList(file), null);
+
+		return unitOf(file);
+	}
+
+	/**
+	 * Makes a visitor visit every compilation unit of the project.
+	 * Up-to-date cached units are visited first, then the other files are
+	 * batch-parsed and each of them is visited as soon as it is produced,
+	 * without waiting for the whole project to be parsed.
+	 * @param visitor the visitor to accept on every compilation unit
+	 * @throws IOException if a java file of the project cannot be read
+	 */
+	public synchronized void accept(ASTVisitor visitor) throws IOException {
+		refresh(getJavaFiles(), visitor);
+	}
+
+	/**
+	 * The up-to-date cached compilation units of some java files, grouped by the
+	 * parse batch they come from: the units of a group share a binding environment,
+	 * so they must be visited by a single thread. The other files are added to
+	 * staleFiles: their units are to be parsed by the caller and stored with
+	 * {@link #store(String, CompilationUnit, Object)}.
+	 * @param javaFiles the java files
+	 * @param staleFiles receives the files that are not cached yet or whose content changed
+	 * @return the cached compilation units of the up-to-date files, by parse batch
+	 * @throws IOException if a java file cannot be read
+	 */
+	public synchronized List<List<CompilationUnit>> getCachedUnits(List<File> javaFiles, List<File> staleFiles)
+			throws IOException {
+		List<CachedUnit> upToDate = new ArrayList<>();
+		Map<Object, List<CompilationUnit>> batches = new LinkedHashMap<>();
+
+		partition(javaFiles, upToDate, staleFiles, pendingHashes);
+
+		for (CachedUnit cached: upToDate)
+			batches.computeIfAbsent(cached.batch, batch -> new ArrayList<>()).add(cached.unit);
+
+		return new ArrayList<>(batches.values());
+	}
+
+	/**
+	 * Caches the compilation unit of a file handed out as stale by
+	 * {@link #getCachedUnits(List, List)}
+	 * @param sourceFilePath the absolute path of the file
+	 * @param unit the compilation unit parsed from the file
+	 * @param batch identifies the parse batch of the unit, shared by all the units of the batch
+	 */
+	public synchronized void store(String sourceFilePath, CompilationUnit unit, Object batch) {
+		byte[] hash = pendingHashes.remove(sourceFilePath);
+
+		if (hash != null)
+			units.put(sourceFilePath, new CachedUnit(hash, unit, batch));
+	}
+
+	/**
+	 * Drops every cached compilation unit of the project
+	 */
+	public synchronized void clear() {
+		units.clear();
+		pendingHashes.clear();
+	}
+
+	/**
+	 * The number of cached compilation units
+	 * @return the number of cached compilation units
+	 */
+	public synchronized int size() {
+		return units.size();
+	}
+
+	/**
+	 * Batch-parses the files that are not cached yet or whose content changed,
+	 * in a single binding environment, and caches them.
+	 * @param javaFiles the java files that must be cached
+	 * @param visitor the visitor to accept on every compilation unit, or null
+	 * @throws IOException if a java file cannot be read
+	 */
+	private void refresh(List<File> javaFiles, ASTVisitor visitor) throws IOException {
+		Map<String, byte[]> staleHashes = new HashMap<>();
+		List<CachedUnit> upToDate = new ArrayList<>();
+		List<File> staleFiles = new ArrayList<>();
+		Object batch = new Object();
+
+		partition(javaFiles, upToDate, staleFiles, staleHashes);
+
+		if (visitor != null)
+			for (CachedUnit cached: upToDate)
+				cached.unit.accept(visitor);
+
+		batchParser.parse(staleFiles, new FileASTRequestor() {
+			@Override
+			public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+				units.put(sourceFilePath, new CachedUnit(staleHashes.get(sourceFilePath), ast, batch));
+
+				if (visitor != null)
+					ast.accept(visitor);
+			}
+		});
+	}
+
+	/**
+	 * Splits some java files between the up-to-date cached ones and the stale ones,
+	 * i.e. those that are not cached yet or whose content changed
+	 * @param javaFiles the java files
+	 * @param upToDate receives the cache entries of the up-to-date files
+	 * @param stale receives the stale files
+	 * @param staleHashes receives the content hash of each stale file, by absolute path
+	 * @throws IOException if a java file cannot be read
+	 */
+	private void partition(List<File> javaFiles, List<CachedUnit> upToDate,
+			List<File> stale, Map<String, byte[]> staleHashes) throws IOException {
+		for (File fileEntry: javaFiles) {
+			String path = fileEntry.getAbsolutePath();
+			byte[] hash = hash(FileUtils.readFileToString(fileEntry));
+			CachedUnit cached = units.get(path);
+
+			if (cached != null && Arrays.equals(cached.hash, hash)) {
+				upToDate.add(cached);
+			} else {
+				staleHashes.put(path, hash);
+				stale.add(fileEntry);
+			}
+		}
+	}
+
+	/**
+	 * The cached compilation unit of a refreshed file
+	 * @param file the java file
+	 * @return the compilation unit of the file, or null (reported) if JDT delivered none
+	 */
+	private CompilationUnit unitOf(File file) {
+		CachedUnit cached = units.get(file.getAbsolutePath());
+
+		if (cached == null) {
+			System.err.println("No compilation unit was produced for " + file.getAbsolutePath());
+			return null;
+		}
+		return cached.unit;
+	}
+
+	/**
+	 * The SHA-1 hash of a file content
+	 * @param content the file content
+	 * @return the hash of the content
+	 */
+	private static byte[] hash(String content) {
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(content.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A compilation unit along with the hash of the content it was parsed from,
+	 * and the parse batch it comes from.
+	 */
+	private static class CachedUnit {
+		private byte[] hash;
+		private CompilationUnit unit;
+		private Object batch;
+
+		private CachedUnit(byte[] hash, CompilationUnit unit, Object batch) {
+			this.hash = hash;
+			this.unit = unit;
+			this.batch = batch;
+		}
+	}
+}
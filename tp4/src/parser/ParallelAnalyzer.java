@@ -0,0 +1,174 @@
+package parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
+
+/**
+ * A multi-core analysis pipeline for the java files of a project.<br>
+ * The file list is split into partitions, and every partition is batch-parsed
+ * and analysed on its own thread with its own partial result (a visitor, a graph,
+ * a list of couples...). The partial results are merged once all partitions are done.<br>
+ * Without a cache, the compilation units are not kept once analysed, so the pipeline
+ * also suits source trees too large to hold in a {@link CompilationUnitCache}.
+ * With a cache, only the files that are not cached yet are parsed, and their units
+ * are stored in the cache: the next analyses visit the cached units in parallel
+ * without parsing the project again. The cached units of a same parse batch share a
+ * binding environment, which JDT does not make thread-safe: every batch is visited
+ * by a single thread.
+ */
+public class ParallelAnalyzer {
+	/*attributes*/
+	private String projectPath;
+	private int parallelism;
+	private CompilationUnitCache cache;
+
+	/*constructors*/
+	public ParallelAnalyzer(String projectPath) {
+		this(projectPath, Runtime.getRuntime().availableProcessors());
+	}
+
+	public ParallelAnalyzer(String projectPath, int parallelism) {
+		this.projectPath = projectPath;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * An analyzer that feeds and reuses the compilation units of a cache
+	 * @param cache the cache of the project to analyse
+	 */
+	public ParallelAnalyzer(CompilationUnitCache cache) {
+		this(cache.getProjectPath());
+		this.cache = cache;
+	}
+
+	/*methods*/
+	/**
+	 * The project path getter
+	 * @return the project path
+	 */
+	public String getProjectPath() {
+		return this.projectPath;
+	}
+
+	/**
+	 * The number of threads used by the pipeline
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * Makes one visitor per partition visit the compilation units of its partition,
+	 * then merges the visitors
+	 * @param visitorFactory creates the visitor of a partition
+	 * @param merger merges the visitor of a partition into another one
+	 * @return the merged visitor
+	 * @throws IOException if the project cannot be analysed
+	 */
+	public <V extends ASTVisitor> V visit(Supplier<V> visitorFactory, BinaryOperator<V> merger)
+			throws IOException {
+		return analyze(visitorFactory, (visitor, parse) -> parse.accept(visitor), merger);
+	}
+
+	/**
+	 * Analyses every compilation unit of the project in parallel
+	 * @param partialFactory creates the partial result of a partition
+	 * @param accumulator adds the analysis of a compilation unit to a partial result
+	 * @param merger merges two partial results
+	 * @return the merged result of all the partitions
+	 * @throws IOException if the project cannot be analysed
+	 */
+	public <R> R analyze(Supplier<R> partialFactory, BiConsumer<R, CompilationUnit> accumulator,
+			BinaryOperator<R> merger) throws IOException {
+		List<File> javaFiles = Parser.listJavaFilesForFolder(new File(projectPath));
+		List<List<CompilationUnit>> batches = new ArrayList<>();
+
+		if (cache != null) {
+			List<File> staleFiles = new ArrayList<>();
+			batches = cache.getCachedUnits(javaFiles, staleFiles);
+			javaFiles = staleFiles;
+		}
+
+		List<List<File>> partitions = partition(javaFiles);
+		int nbPartitions = partitions.size() + batches.size();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, nbPartitions)));
+		List<Future<R>> futures = new ArrayList<>();
+
+		try {
+			for (List<File> partition: partitions)
+				futures.add(executor.submit(() -> {
+					R partial = partialFactory.get();
+					Object batch = new Object(); // shared by the units of the partition
+
+					new BatchParser(projectPath).parse(partition, new FileASTRequestor() {
+						@Override
+						public void acceptAST(String sourceFilePath, CompilationUnit parse) {
+							if (cache != null)
+								cache.store(sourceFilePath, parse, batch);
+							accumulator.accept(partial, parse);
+						}
+					});
+
+					return partial;
+				}));
+
+			for (List<CompilationUnit> batch: batches)
+				futures.add(executor.submit(() -> {
+					R partial = partialFactory.get();
+
+					for (CompilationUnit parse: batch)
+						accumulator.accept(partial, parse);
+
+					return partial;
+				}));
+
+			R result = partialFactory.get();
+
+			for (Future<R> future: futures)
+				result = merger.apply(result, future.get());
+
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Analysis of " + projectPath + " interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Analysis of " + projectPath + " failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Splits the java files into partitions of similar sizes, a few per thread
+	 * so that a partition of big files does not keep the other threads waiting
+	 * @param javaFiles the java files to split
+	 * @return the partitions of java files
+	 */
+	private List<List<File>> partition(List<File> javaFiles) {
+		int nbPartitions = Math.min(javaFiles.size(), parallelism * 4);
+		List<List<File>> partitions = new ArrayList<>();
+
+		for (int i = 0; i < nbPartitions; i++)
+			partitions.add(new ArrayList<>());
+
+		// round robin, so that the big files of a same package are spread out
+		for (int i = 0; i < javaFiles.size(); i++)
+			partitions.get(i % nbPartitions).add(javaFiles.get(i));
+
+		return partitions;
+	}
+}
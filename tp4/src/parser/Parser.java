@@ -5,13 +5,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Map;
 
-import org.apache.commons.io.FileUtils;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.MethodInvocation;
@@ -38,20 +38,17 @@ public class Parser {
 
 	public static void main(String[] args) throws IOException {
 
-		// read java files
-		final File folder = new File(projectSourcePath);
-		ArrayList<File> javaFiles = listJavaFilesForFolder(folder);
-
-		for (File fileEntry : javaFiles) {
-			String content = FileUtils.readFileToString(fileEntry);
-
-			CompilationUnit parse = parse(content.toCharArray());
-			
-//			printClassInfo(parse);
-//			printMethodInfo(parse);
-//			printMethodInvocationInfo(parse);
-			
-		}
+		// read java files, parsed in one batch sharing the same binding environment
+		new BatchParser(projectSourcePath).parse(new FileASTRequestor() {
+			@Override
+			public void acceptAST(String sourceFilePath, CompilationUnit parse) {
+				
+//				printClassInfo(parse);
+//				printMethodInfo(parse);
+//				printMethodInvocationInfo(parse);
+				
+			}
+		});
 	}
 
 	// read all java files from specific folder
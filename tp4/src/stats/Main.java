@@ -7,7 +7,7 @@ public class Main {
 
 	public static void main(String[] args) throws IOException {
 		String pathToSource = args[0];
-		StatsParser parser = new StatsParser(pathToSource);
+		StatsParser parser = new StatsParser(pathToSource, true);
 
 		//* stats parameters *//
 		double percentage = 0.1;
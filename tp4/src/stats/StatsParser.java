@@ -5,12 +5,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
@@ -19,8 +21,10 @@ import comparators.ClassAttributeNumberReverseComparator;
 import comparators.ClassMethodNumberReverseComparator;
 import comparators.MethodBodyLineNumberReverseComparator;
 import comparators.MethodParamNumberComparator;
-import parser.Parser;
+import parser.CompilationUnitCache;
+import parser.ParallelAnalyzer;
 import visitors.FieldDeclarationVisitor;
+import visitors.MergeableVisitor;
 import visitors.MethodDeclarationVisitor;
 import visitors.PackageDeclarationVisitor;
 import visitors.TypeDeclarationVisitor;
@@ -28,6 +32,8 @@ import visitors.TypeDeclarationVisitor;
 public class StatsParser {
 	/*attributes*/
 	private String projectPath;
+	private CompilationUnitCache cache;
+	private ParallelAnalyzer analyzer;
 	//*** Bachar's jrePath ***//
 	// public static final String jrePath = "/usr/lib/jvm/java-11-oracle";
 	//*** Amandine's jrePath ***//
@@ -35,7 +41,21 @@ public class StatsParser {
 	
 	/*constructors*/
 	public StatsParser(String projectPath) {
+		this(projectPath, false);
+	}
+	
+	/**
+	 * @param projectPath the project path
+	 * @param parallel true to analyse the project on all cores with a ParallelAnalyzer
+	 * instead of visiting the cached compilation units sequentially. The analyzer feeds
+	 * the cache, so the project is parsed only once for all the queries
+	 */
+	public StatsParser(String projectPath, boolean parallel) {
 		this.projectPath = projectPath;
+		this.cache = CompilationUnitCache.forProject(projectPath);
+		
+		if (parallel)
+			this.analyzer = new ParallelAnalyzer(cache);
 	}
 	
 	/*methods*/
@@ -94,24 +114,32 @@ public class StatsParser {
 		return (CompilationUnit) parser.createAST(null); // create and parse
 	}
 	
+	/**
+	 * Makes a visitor visit the whole project, either sequentially over the cached 
+	 * compilation units, or with one visitor per partition merged at the end in parallel mode.
+	 * Both modes parse the project only once, through the cache
+	 * @param visitorFactory creates a visitor
+	 * @return the visitor having visited the whole project
+	 * @throws IOException if the project path is invalid
+	 */
+	private <V extends ASTVisitor & MergeableVisitor<V>> V visitProject(Supplier<V> visitorFactory) 
+			throws IOException {
+		if (analyzer != null)
+			return analyzer.visit(visitorFactory, MergeableVisitor::merge);
+		
+		V visitor = visitorFactory.get();
+		cache.accept(visitor);
+		
+		return visitor;
+	}
+	
 	/**
 	 * The total number of classes per project using visitors and streams
 	 * @return the total number of classes for the project identified by its path
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbClasses() throws IOException {
-		ArrayList<File> javaFiles = StatsParser.listJavaFilesForProject(new File(projectPath));
-	
-		TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			
-			parse.accept(visitor);
-		}
+		TypeDeclarationVisitor visitor = visitProject(TypeDeclarationVisitor::new);
 		
 		return visitor.getTypes()
 				.stream()
@@ -143,17 +171,7 @@ public class StatsParser {
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbAttributes() throws IOException {
-		ArrayList<File> javaFiles = StatsParser.listJavaFilesForProject(new File(projectPath));
-		
-		FieldDeclarationVisitor visitor = new FieldDeclarationVisitor();
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			parse.accept(visitor);
-		}
+		FieldDeclarationVisitor visitor = visitProject(FieldDeclarationVisitor::new);
 		
 		return visitor.getFields()
 				.stream()
@@ -166,17 +184,7 @@ public class StatsParser {
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbMethods() throws IOException {
-		ArrayList<File> javaFiles = StatsParser.listJavaFilesForProject(new File(projectPath));
-		
-		MethodDeclarationVisitor visitor = new MethodDeclarationVisitor();
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			parse.accept(visitor);
-		}
+		MethodDeclarationVisitor visitor = visitProject(MethodDeclarationVisitor::new);
 		
 		return visitor.getMethods()
 				.stream()
@@ -189,17 +197,7 @@ public class StatsParser {
 	 * @throws IOException if the project path is invalid
 	 */
 	public long nbPackages() throws IOException {
-		ArrayList<File> javaFiles = StatsParser.listJavaFilesForProject(new File(projectPath));
-		
-		PackageDeclarationVisitor visitor = new PackageDeclarationVisitor();
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			parse.accept(visitor);
-		}
+		PackageDeclarationVisitor visitor = visitProject(PackageDeclarationVisitor::new);
 		
 		return visitor.getNames()
 				.stream()
@@ -241,17 +239,7 @@ public class StatsParser {
 	 */
 	public List<TypeDeclaration> classesWithHighestMethods(double percentage) 
 			throws IOException {
-		ArrayList<File> javaFiles = Parser.listJavaFilesForFolder(new File(projectPath));
-		
-		TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			parse.accept(visitor);
-		}
+		TypeDeclarationVisitor visitor = visitProject(TypeDeclarationVisitor::new);
 		
 		return visitor.getTypes()
 				.stream()
@@ -269,17 +257,7 @@ public class StatsParser {
 	 */
 	public List<TypeDeclaration> classesWithHighestAttributes(double percentage) 
 			throws IOException{
-		ArrayList<File> javaFiles = Parser.listJavaFilesForFolder(new File(projectPath));
-		
-		TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			parse.accept(visitor);
-		}
+		TypeDeclarationVisitor visitor = visitProject(TypeDeclarationVisitor::new);
 		
 		return visitor.getTypes()
 				.stream()
@@ -320,17 +298,7 @@ public class StatsParser {
 	 */
 	public List<TypeDeclaration> classesWithMoreMethodsThan(int nbMethods)
 			throws IOException {
-		ArrayList<File> javaFiles = StatsParser.listJavaFilesForProject(new File(projectPath));
-		
-		TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			parse.accept(visitor);
-		}
+		TypeDeclarationVisitor visitor = visitProject(TypeDeclarationVisitor::new);
 		
 		return visitor.getTypes()
 				.stream()
@@ -346,20 +314,9 @@ public class StatsParser {
 	 */
 	public List<MethodDeclaration> methodsWithHighestLines(double percentage) 
 			throws IOException {
-		ArrayList<File> javaFiles = StatsParser.listJavaFilesForProject(new File(projectPath));
-		
-		TypeDeclarationVisitor classVisitor = new TypeDeclarationVisitor();
+		TypeDeclarationVisitor classVisitor = visitProject(TypeDeclarationVisitor::new);
 		MethodDeclarationVisitor methodVisitor = new MethodDeclarationVisitor();
 		
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			parse.accept(classVisitor);
-		}
-		
 		classVisitor.getTypes()
 				.stream()
 				.filter(type -> !type.isInterface())
@@ -379,20 +336,9 @@ public class StatsParser {
 	 * @throws IOException if the project path is invalid
 	 */
 	public long maxNbMethodParams() throws IOException {
-		ArrayList<File> javaFiles = StatsParser.listJavaFilesForProject(new File(projectPath));
-		
-		TypeDeclarationVisitor classVisitor = new TypeDeclarationVisitor();
+		TypeDeclarationVisitor classVisitor = visitProject(TypeDeclarationVisitor::new);
 		MethodDeclarationVisitor methodVisitor = new MethodDeclarationVisitor();
 		
-		String content = "";
-		CompilationUnit parse = null;
-		
-		for (File fileEntry: javaFiles) {
-			content = FileUtils.readFileToString(fileEntry);
-			parse = parse(content.toCharArray());
-			parse.accept(classVisitor);
-		}
-		
 		classVisitor.getTypes()
 		.stream()
 		.filter(type -> !type.isInterface())
@@ -5,13 +5,20 @@ import java.util.ArrayList;
 public class ClassInfo {
     
     private String name;
+    private String qualifiedName;
     private ArrayList<MethodInfo> methods;
     private String heritsFrom;
     private ArrayList<String> exceptions;
     
     public ClassInfo(String name, ArrayList<MethodInfo> methods, String heritsFrom, ArrayList<String> exceptions) {
+        this(name, name, methods, heritsFrom, exceptions);
+    }
+    
+    public ClassInfo(String name, String qualifiedName, ArrayList<MethodInfo> methods, String heritsFrom,
+            ArrayList<String> exceptions) {
         super();
         this.name = name;
+        this.qualifiedName = qualifiedName;
         this.methods = methods;
         this.heritsFrom = heritsFrom;
         this.exceptions = exceptions;
@@ -23,6 +30,16 @@ public class ClassInfo {
     public void setName(String name) {
         this.name = name;
     }
+    /**
+     * The name of the class, qualified by its package and enclosing classes.
+     * Used as the key of the class when comparing versions.
+     */
+    public String getQualifiedName() {
+        return qualifiedName;
+    }
+    public void setQualifiedName(String qualifiedName) {
+        this.qualifiedName = qualifiedName;
+    }
     public ArrayList<MethodInfo> getMethods() {
         return methods;
     }
@@ -44,7 +61,7 @@ public class ClassInfo {
 
     @Override
     public String toString() {
-        return "ClassInfo [name=" + name + ", methods=" + methods + ", heritsFrom=" + heritsFrom + ", exceptions="
+        return "ClassInfo [name=" + name + ", qualifiedName=" + qualifiedName + ", methods=" + methods + ", heritsFrom=" + heritsFrom + ", exceptions="
                 + exceptions + "]";
     }
 
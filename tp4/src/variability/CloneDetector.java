@@ -0,0 +1,350 @@
+package variability;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+import parser.CompilationUnitCache;
+import visitors.TypeDeclarationVisitor;
+
+/**
+ * Detector of near-duplicate methods (type-3 clones), within and across versions.<br>
+ * Every method body is turned into its normalized token stream, with its
+ * variables renamed (see {@link MethodFingerprint}), then into the set of hashes
+ * of its windows of k consecutive tokens (its shingles). Two methods are clones
+ * if the Jaccard similarity of their shingle sets is above a threshold.<br>
+ * To avoid comparing all the pairs of methods:
+ * <ol>
+ * <li>methods with the same token stream are grouped first, and only one of
+ * them goes through the next steps</li>
+ * <li>every method gets a MinHash signature of bands * rows minima, and is put
+ * in one bucket per band, keyed by the hash of the minima of the band: only the
+ * methods sharing a bucket become candidate pairs</li>
+ * <li>every candidate pair is verified with the exact similarity of its shingle sets</li>
+ * </ol>
+ * Verified pairs are merged into clone classes with a union-find.
+ * Only the location, shingles and signature of a method are kept, not its AST.
+ */
+public class CloneDetector {
+
+    /*attributes*/
+    public static final int DEFAULT_SHINGLE_SIZE = 8;
+    public static final int DEFAULT_MIN_TOKENS = 60;
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS = 4;
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    private int shingleSize;
+    private int minTokens;
+    private int bands;
+    private int rows;
+    private double threshold;
+    private long[] seeds; // one per MinHash function
+
+    // methods, by index
+    private List<String> locations = new ArrayList<String>();
+    private List<long[]> shingles = new ArrayList<long[]>(); // sorted, without duplicates
+    private List<int[]> signatures = new ArrayList<int[]>();
+
+    // token stream hash -> index of the first method with this stream
+    private Map<Long, Integer> representatives = new HashMap<Long, Integer>();
+    private List<int[]> duplicates = new ArrayList<int[]>(); // (method, representative) pairs
+
+    /*constructors*/
+    public CloneDetector() {
+        this(DEFAULT_SHINGLE_SIZE, DEFAULT_MIN_TOKENS, DEFAULT_BANDS, DEFAULT_ROWS, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param shingleSize the number of consecutive tokens of a shingle
+     * @param minTokens the minimum number of tokens of a method body, smaller methods are ignored
+     * @param bands the number of LSH bands
+     * @param rows the number of MinHash minima per band
+     * @param threshold the minimum similarity of two clones, between 0 and 1
+     */
+    public CloneDetector(int shingleSize, int minTokens, int bands, int rows, double threshold) {
+        this.shingleSize = shingleSize;
+        this.minTokens = Math.max(minTokens, shingleSize);
+        this.bands = bands;
+        this.rows = rows;
+        this.threshold = threshold;
+        this.seeds = new long[bands * rows];
+
+        Random random = new Random(bands * 31 + rows); // deterministic signatures
+        for (int i = 0; i < seeds.length; i++)
+            seeds[i] = random.nextLong();
+    }
+
+    /*methods*/
+    /**
+     * The number of methods added to the detector (the ignored ones excluded).
+     */
+    public int getNumberOfMethods() {
+        return locations.size();
+    }
+
+    /**
+     * Adds every method of every class of a project.
+     *
+     * @param version the label of the project version, prefixed to the location of its methods
+     * @param projectPath the path of the project
+     * @throws IOException if a file of the project cannot be read
+     */
+    public void addProject(String version, String projectPath) throws IOException {
+        CompilationUnitCache cache = CompilationUnitCache.forProject(projectPath);
+        for (CompilationUnit cUnit : cache.getCompilationUnits()) {
+            TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
+            cUnit.accept(visitor);
+
+            for (TypeDeclaration td : visitor.getTypes()) {
+                String cls = VariabilityParser.getQualifiedName(td);
+                for (MethodDeclaration m : td.getMethods())
+                    addMethod(version + ":" + cls + "." + VariabilityParser.getSignature(m), m);
+            }
+        }
+        // only the token streams are kept, not the ASTs of the project
+        cache.clear();
+    }
+
+    /**
+     * Adds a method. Methods without body or with less than minTokens tokens are ignored.
+     *
+     * @param location the name under which the method is reported
+     * @param m the declaration of the method
+     * @return true if the method has been added
+     */
+    public boolean addMethod(String location, MethodDeclaration m) {
+        return addMethod(location, MethodFingerprint.tokens(m, true));
+    }
+
+    /**
+     * Adds a method by its normalized token stream.
+     * Methods with less than minTokens tokens are ignored.
+     *
+     * @param location the name under which the method is reported
+     * @param tokens the normalized token stream of the method body
+     * @return true if the method has been added
+     */
+    public boolean addMethod(String location, int[] tokens) {
+        if (tokens.length < minTokens)
+            return false;
+
+        int index = locations.size();
+        long hash = MethodFingerprint.hash(tokens);
+        locations.add(location);
+
+        Integer representative = representatives.get(hash);
+        if (representative != null) { // same normalized body: nothing more to compute
+            duplicates.add(new int[] {index, representative});
+            shingles.add(null);
+            signatures.add(null);
+            return true;
+        }
+
+        representatives.put(hash, index);
+        long[] methodShingles = shingle(tokens);
+        shingles.add(methodShingles);
+        signatures.add(minHash(methodShingles));
+        return true;
+    }
+
+    /**
+     * Detects the clone classes among the added methods.
+     *
+     * @return the clone classes, biggest first
+     */
+    public List<CloneClass> detect() {
+        int n = locations.size();
+        int[] parents = new int[n];
+        double[] similarities = new double[n]; // minimum verified similarity, per root
+        for (int i = 0; i < n; i++) {
+            parents[i] = i;
+            similarities[i] = 1.0;
+        }
+
+        for (int[] duplicate : duplicates)
+            union(parents, similarities, duplicate[0], duplicate[1], 1.0);
+
+        Set<Long> verified = new HashSet<Long>();
+        for (int band = 0; band < bands; band++) {
+            Map<Long, List<Integer>> buckets = new HashMap<Long, List<Integer>>();
+
+            for (int i = 0; i < n; i++) {
+                if (signatures.get(i) == null)
+                    continue;
+                long key = bucket(signatures.get(i), band);
+                List<Integer> bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<Integer>();
+                    buckets.put(key, bucket);
+                }
+                bucket.add(i);
+            }
+
+            for (List<Integer> bucket : buckets.values()) {
+                for (int a = 0; a < bucket.size(); a++) {
+                    for (int b = a + 1; b < bucket.size(); b++) {
+                        int i = bucket.get(a), j = bucket.get(b);
+                        if (!verified.add(((long) i << 32) | j))
+                            continue; // already verified through another band
+                        double similarity = jaccard(shingles.get(i), shingles.get(j));
+                        if (similarity >= threshold)
+                            union(parents, similarities, i, j, similarity);
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<String>> members = new HashMap<Integer, List<String>>();
+        for (int i = 0; i < n; i++) {
+            int root = find(parents, i);
+            List<String> cls = members.get(root);
+            if (cls == null) {
+                cls = new ArrayList<String>();
+                members.put(root, cls);
+            }
+            cls.add(locations.get(i));
+        }
+
+        List<CloneClass> clones = new ArrayList<CloneClass>();
+        for (Map.Entry<Integer, List<String>> cls : members.entrySet()) {
+            if (cls.getValue().size() > 1)
+                clones.add(new CloneClass(cls.getValue(), similarities[cls.getKey()]));
+        }
+        Collections.sort(clones, (c1, c2) -> c2.getMethods().size() - c1.getMethods().size());
+        return clones;
+    }
+
+    /**
+     * The sorted set of hashes of the windows of shingleSize consecutive tokens.
+     */
+    private long[] shingle(int[] tokens) {
+        long[] hashes = new long[tokens.length - shingleSize + 1];
+        for (int start = 0; start < hashes.length; start++) {
+            long h = 0;
+            for (int t = start; t < start + shingleSize; t++)
+                h = mix(h ^ (tokens[t] & 0xFFFFFFFFL));
+            hashes[start] = h;
+        }
+        Arrays.sort(hashes);
+
+        int size = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1])
+                hashes[size++] = hashes[i];
+        }
+        return Arrays.copyOf(hashes, size);
+    }
+
+    /**
+     * The MinHash signature of a shingle set: its minimum under every hash function.
+     */
+    private int[] minHash(long[] shingles) {
+        int[] signature = new int[seeds.length];
+        for (int f = 0; f < seeds.length; f++) {
+            long min = Long.MAX_VALUE;
+            for (long shingle : shingles)
+                min = Math.min(min, mix(shingle ^ seeds[f]));
+            signature[f] = (int) (min ^ (min >>> 32));
+        }
+        return signature;
+    }
+
+    /**
+     * The key of the bucket of a signature in a band.
+     */
+    private long bucket(int[] signature, int band) {
+        long h = band;
+        for (int r = band * rows; r < (band + 1) * rows; r++)
+            h = mix(h ^ (signature[r] & 0xFFFFFFFFL));
+        return h;
+    }
+
+    /**
+     * The Jaccard similarity of two sorted sets of shingles.
+     */
+    private static double jaccard(long[] s1, long[] s2) {
+        int i = 0, j = 0, common = 0;
+        while (i < s1.length && j < s2.length) {
+            if (s1[i] == s2[j]) {
+                common++;
+                i++;
+                j++;
+            }
+            else if (s1[i] < s2[j])
+                i++;
+            else
+                j++;
+        }
+        return (double) common / (s1.length + s2.length - common);
+    }
+
+    private static long mix(long h) {
+        h *= 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        return h ^ (h >>> 32);
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, double[] similarities, int i, int j, double similarity) {
+        int root1 = find(parents, i);
+        int root2 = find(parents, j);
+        if (root1 == root2)
+            return; // already in the same clone class
+        double min = Math.min(similarity, Math.min(similarities[root1], similarities[root2]));
+        parents[root2] = root1;
+        similarities[root1] = min;
+    }
+
+    /**
+     * A set of methods that are clones of each other.
+     */
+    public static class CloneClass {
+
+        private List<String> methods;
+        private double similarity;
+
+        public CloneClass(List<String> methods, double similarity) {
+            this.methods = methods;
+            this.similarity = similarity;
+        }
+
+        /**
+         * The locations of the cloned methods.
+         */
+        public List<String> getMethods() {
+            return methods;
+        }
+
+        /**
+         * The lowest similarity of the verified pairs that put the methods together.
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return "CloneClass [similarity=" + similarity + ", methods=" + methods + "]";
+        }
+    }
+}
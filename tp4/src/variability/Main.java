@@ -19,6 +19,8 @@ public class Main {
         String pathToSourceV1 = args[0];
         String pathToSourceV2 = args[1];
         VariabilityParser parser = new VariabilityParser(pathToSourceV1, pathToSourceV2);
+        // compare method bodies up to the names of their variables
+        parser.setRenameIdentifiers(args.length > 2 && args[2].equals("--rename"));
 
         System.out.println("Comparaisons will be on ArgoUML v0.32.2 and v0.34. " + 
                 "Which information do you want?"+
@@ -27,6 +29,8 @@ public class Main {
                 "\n3. Common and variant classes (different heritancy)." +
                 "\n4. Common and variant classes (different exceptions)." +
                 "\n5. Different methods for a given class." +
+                "\n6. Common, changed, removed and added classes (every criterion)." +
+                "\n7. Near-duplicate methods (clones) within and across versions." +
                 "\n0 To quit.");
         Scanner sc = new Scanner(System.in);
         int choice = sc.nextInt();
@@ -56,6 +60,12 @@ public class Main {
                 if(c1!=null && c2!=null)
                     parser.findDifferentMethodsInCls(c1, c2);
                 break;
+            case 6:
+                parser.findDifferentClasses(infoV1, infoV2);
+                break;
+            case 7:
+                parser.findClones();
+                break;
             case 0:
                 return;
             default:
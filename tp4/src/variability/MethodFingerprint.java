@@ -0,0 +1,231 @@
+package variability;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.BooleanLiteral;
+import org.eclipse.jdt.core.dom.CharacterLiteral;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.NumberLiteral;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.PrimitiveType;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.StringLiteral;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+/**
+ * Structural fingerprints of method bodies.<br>
+ * A body is turned into a normalized stream of int tokens by a preorder walk of
+ * its AST: every node contributes its type when it is entered and when it is left
+ * (so the shape of the tree is part of the stream), names contribute their
+ * identifier, literals their value, and operators and modifiers their keyword.
+ * Whitespace, comments and formatting are not part of the AST, so they do not
+ * change the stream.<br>
+ * With identifier renaming, the parameters and local variables of the method
+ * are replaced by their order of first appearance in the body: renaming a
+ * variable does not change the stream either.<br>
+ * The fingerprint of a method is a 64-bit hash of its stream, so comparing two
+ * bodies is comparing two longs, and no body text needs to be kept.
+ */
+public class MethodFingerprint {
+
+    /*attributes*/
+    /** The fingerprint of a method without body (abstract or interface method). */
+    public static final long NO_BODY = 0L;
+
+    private static final int RENAMED = Integer.MIN_VALUE; // followed by the ordinal of a renamed variable
+
+    /*methods*/
+    /**
+     * The fingerprint of a method body.
+     *
+     * @param m the declaration of the method
+     * @param renameIdentifiers true to ignore the names of parameters and local variables
+     * @return the 64-bit hash of the normalized body, or NO_BODY
+     */
+    public static long of(MethodDeclaration m, boolean renameIdentifiers) {
+        if (m.getBody() == null)
+            return NO_BODY;
+        return hash(tokens(m, renameIdentifiers));
+    }
+
+    /**
+     * The normalized token stream of a method body.
+     *
+     * @param m the declaration of the method
+     * @param renameIdentifiers true to replace parameters and local variables by their ordinal
+     * @return the tokens of the body, empty if the method has no body
+     */
+    public static int[] tokens(MethodDeclaration m, boolean renameIdentifiers) {
+        if (m.getBody() == null)
+            return new int[0];
+
+        Set<String> variables = new HashSet<String>();
+        if (renameIdentifiers) {
+            for (Object param : m.parameters())
+                variables.add(((SingleVariableDeclaration) param).getName().getIdentifier());
+            m.getBody().accept(new ASTVisitor() {
+                @Override
+                public boolean visit(VariableDeclarationFragment node) {
+                    variables.add(node.getName().getIdentifier());
+                    return true;
+                }
+
+                @Override
+                public boolean visit(SingleVariableDeclaration node) {
+                    variables.add(node.getName().getIdentifier());
+                    return true;
+                }
+            });
+        }
+
+        TokenVisitor visitor = new TokenVisitor(variables);
+        m.getBody().accept(visitor);
+        return visitor.getTokens();
+    }
+
+    /**
+     * The 64-bit hash of a token stream.
+     *
+     * @param tokens the token stream
+     * @return the hash of the stream, never NO_BODY
+     */
+    public static long hash(int[] tokens) {
+        long h = 0xCBF29CE484222325L ^ tokens.length;
+        for (int token : tokens) {
+            h ^= token & 0xFFFFFFFFL;
+            h *= 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h == NO_BODY ? 1L : h;
+    }
+
+    /**
+     * Walks an AST and records its normalized token stream.
+     */
+    private static class TokenVisitor extends ASTVisitor {
+
+        private Set<String> variables;
+        private Map<String, Integer> ordinals = new HashMap<String, Integer>();
+        private int[] tokens = new int[64];
+        private int size = 0;
+
+        private TokenVisitor(Set<String> variables) {
+            this.variables = variables;
+        }
+
+        @Override
+        public void preVisit(ASTNode node) {
+            add(node.getNodeType());
+        }
+
+        @Override
+        public void postVisit(ASTNode node) {
+            add(-node.getNodeType());
+        }
+
+        @Override
+        public boolean visit(SimpleName node) {
+            String identifier = node.getIdentifier();
+            if (variables.contains(identifier)) {
+                Integer ordinal = ordinals.get(identifier);
+                if (ordinal == null) {
+                    ordinal = ordinals.size();
+                    ordinals.put(identifier, ordinal);
+                }
+                add(RENAMED);
+                add(ordinal);
+            }
+            else
+                add(identifier.hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(NumberLiteral node) {
+            add(node.getToken().hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(StringLiteral node) {
+            add(node.getEscapedValue().hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(CharacterLiteral node) {
+            add(node.getEscapedValue().hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(BooleanLiteral node) {
+            add(node.booleanValue() ? 1 : 0);
+            return true;
+        }
+
+        @Override
+        public boolean visit(InfixExpression node) {
+            add(node.getOperator().toString().hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(PrefixExpression node) {
+            add(node.getOperator().toString().hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(PostfixExpression node) {
+            add(node.getOperator().toString().hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(Assignment node) {
+            add(node.getOperator().toString().hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(PrimitiveType node) {
+            add(node.getPrimitiveTypeCode().toString().hashCode());
+            return true;
+        }
+
+        @Override
+        public boolean visit(Modifier node) {
+            add(node.getKeyword().toString().hashCode());
+            return true;
+        }
+
+        private void add(int token) {
+            if (size == tokens.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(tokens, 0, grown, 0, size);
+                tokens = grown;
+            }
+            tokens[size++] = token;
+        }
+
+        private int[] getTokens() {
+            int[] stream = new int[size];
+            System.arraycopy(tokens, 0, stream, 0, size);
+            return stream;
+        }
+    }
+}
@@ -3,12 +3,14 @@ package variability;
 public class MethodInfo {
 
     private String name;
-    private String content;
+    private String signature;
+    private long fingerprint;
     
-    public MethodInfo(String name, String content) {
+    public MethodInfo(String name, String signature, long fingerprint) {
         super();
         this.name = name;
-        this.content = content;
+        this.signature = signature;
+        this.fingerprint = fingerprint;
     }
 
     public String getName() {
@@ -19,12 +21,36 @@ public class MethodInfo {
         this.name = name;
     }
 
-    public String getContent() {
-        return content;
+    /**
+     * The name and parameter types of the method, e.g. foo(int,String[]).
+     * Used as the key of the method when comparing two versions of a class.
+     */
+    public String getSignature() {
+        return signature;
     }
 
-    public void setContent(String content) {
-        this.content = content;
+    public void setSignature(String signature) {
+        this.signature = signature;
+    }
+
+    /**
+     * The structural fingerprint of the body of the method.
+     * @see MethodFingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Two bodies are the same if they have the same normalized AST,
+     * whatever their formatting and comments.
+     */
+    public boolean hasSameContentThan(MethodInfo m2) {
+        return this.getFingerprint() == m2.getFingerprint();
     }
 
     @Override
@@ -3,15 +3,22 @@ package variability;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.apache.commons.io.FileUtils;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
+
+import parser.CompilationUnitCache;
 import visitors.TypeDeclarationVisitor;
 
 public class VariabilityParser {
@@ -19,6 +26,7 @@ public class VariabilityParser {
     /*attributes*/
     private String projectPathV1;
     private String projectPathV2;
+    private boolean renameIdentifiers = false;
     //*** Bachar's jrePath ***//
     // public static final String jrePath = "/usr/lib/jvm/java-11-oracle";
     //*** Amandine's jrePath ***//
@@ -42,6 +50,17 @@ public class VariabilityParser {
         return this.projectPathV2;
     }
     
+    /**
+     * Whether method bodies are compared up to the names of their parameters and local variables
+     * @return true if parameters and local variables are renamed before fingerprinting
+     */
+    public boolean isRenameIdentifiers() {
+        return this.renameIdentifiers;
+    }
+    public void setRenameIdentifiers(boolean renameIdentifiers) {
+        this.renameIdentifiers = renameIdentifiers;
+    }
+    
     /**
      * Recursively returns the list of java files for a given folder
      * @param folder the folder whose files to list
@@ -101,28 +120,27 @@ public class VariabilityParser {
      */
     public ArrayList<ClassInfo> getClassInfoFromFile(String projectPathVersion) throws IOException{
         System.out.println(projectPathVersion);
-        ArrayList<File> javaFiles = VariabilityParser.listJavaFilesForProject(new File(projectPathVersion));
+        CompilationUnitCache cache = CompilationUnitCache.forProject(projectPathVersion);
         
         // return object
         ArrayList<ClassInfo> clsInfo = new ArrayList<ClassInfo>();
         
         // ClassInfo data we want to gather
         ClassInfo cInfo;
-        String name, heritsFrom, methodName, methodContent;
+        String name, qualifiedName, heritsFrom, methodName;
         ArrayList<MethodInfo> methods;
         MethodInfo method;
         ArrayList<String> exceptions;
         
         // parse files
-        for (File fileEntry : javaFiles) {
-            String content = FileUtils.readFileToString(fileEntry);
-            CompilationUnit parse = parse(projectPathVersion, content.toCharArray());
+        for (CompilationUnit parse : cache.getCompilationUnits()) {
             TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
             parse.accept(visitor);
             for (TypeDeclaration td : visitor.getTypes()) { // for each class A
 
                 // get name
                 name = td.getName().toString();
+                qualifiedName = getQualifiedName(td);
                 
                 // get heritancy
                 if(td.getSuperclassType()!=null)
@@ -132,27 +150,82 @@ public class VariabilityParser {
                 
                 // get exception(s)
                 exceptions = new ArrayList<String>();
+                Set<String> knownExceptions = new HashSet<String>();
                 
                 // get methods
                 methods = new ArrayList<MethodInfo>();
                 for(MethodDeclaration m : td.getMethods()){ // for each methods M in A
                     methodName = m.getName().toString();
-                    methodContent = m.getBody().toString();
-                    method = new MethodInfo(methodName, methodContent);
+                    // only a fingerprint of the body is kept, not its text
+                    method = new MethodInfo(methodName, getSignature(m),
+                            MethodFingerprint.of(m, renameIdentifiers));
                     methods.add(method);
                     
                     for (Object e : m.thrownExceptions()) {
-                        if(!exceptions.contains(e.toString()))
+                        if(knownExceptions.add(e.toString()))
                             exceptions.add(e.toString());
                     }                    
                 }
-                cInfo = new ClassInfo(name, methods, heritsFrom, exceptions);
+                cInfo = new ClassInfo(name, qualifiedName, methods, heritsFrom, exceptions);
                 clsInfo.add(cInfo);
             }         
         }
+        // only the ClassInfo are kept, not the ASTs of the version
+        cache.clear();
         return clsInfo;
     }
     
+    /**
+     * The name of a class, qualified by its package and enclosing classes.
+     * 
+     * @param td the declaration of the class
+     * @return the qualified name of the class, e.g. org.argouml.Foo.Bar
+     */
+    public static String getQualifiedName(TypeDeclaration td) {
+        StringBuilder qualifiedName = new StringBuilder(td.getName().getIdentifier());
+        
+        for (ASTNode parent = td.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof AbstractTypeDeclaration)
+                qualifiedName.insert(0, ((AbstractTypeDeclaration) parent).getName().getIdentifier() + ".");
+            else if (parent instanceof CompilationUnit && ((CompilationUnit) parent).getPackage() != null)
+                qualifiedName.insert(0, ((CompilationUnit) parent).getPackage().getName().getFullyQualifiedName() + ".");
+        }
+        return qualifiedName.toString();
+    }
+    
+    /**
+     * The signature of a method: its name and the types of its parameters.
+     * 
+     * @param m the declaration of the method
+     * @return the signature of the method, e.g. foo(int,String[])
+     */
+    public static String getSignature(MethodDeclaration m) {
+        StringBuilder signature = new StringBuilder(m.getName().getIdentifier()).append('(');
+        
+        for (int i = 0; i < m.parameters().size(); i++) {
+            SingleVariableDeclaration param = (SingleVariableDeclaration) m.parameters().get(i);
+            if (i > 0)
+                signature.append(',');
+            signature.append(param.getType().toString());
+            for (int d = 0; d < param.getExtraDimensions(); d++)
+                signature.append("[]");
+            if (param.isVarargs())
+                signature.append("...");
+        }
+        return signature.append(')').toString();
+    }
+    
+    /**
+     * Computes once the differences between two versions, by every criterion.
+     * 
+     * @param v1 array with data related to V1' software-to-compare.
+     * @param v2 array with data related to V2' software-to-compare.
+     * @return the differences between both versions.
+     */
+    public VersionDiff diff(ArrayList<ClassInfo> v1, ArrayList<ClassInfo> v2) {
+        return new VersionDiff(v1, v2);
+    }
+    
     /**
      * For now, produce the output to question :
      * "Identify common and variant classes (two classes are 
@@ -162,16 +235,9 @@ public class VariabilityParser {
      * @param v2 array with data related to V2' software-to-compare.
      */
     public void findDifferentClassesByName(ArrayList<ClassInfo> v1, ArrayList<ClassInfo> v2) {
-        ArrayList<String> commonCls = new ArrayList<String>();
-        
-        for (ClassInfo cls1 : v1) {
-            for (ClassInfo cls2 : v2) {
-                if(cls1.hasSameNameThan(cls2) && !commonCls.contains(cls1.getName()))
-                    commonCls.add(cls1.getName());
-            }
-        }
-        clssPrinter("common", commonCls);
-        clssPrinter("different", getDifferentClss(commonCls, v1, v2));
+        VersionDiff diff = diff(v1, v2);
+        clssPrinter("common", diff.getSameClasses());
+        clssPrinter("different", diff.getDifferentClasses());
     }
     
     /**
@@ -183,16 +249,9 @@ public class VariabilityParser {
      * @param v2 array with data related to V2' software-to-compare.
      */
     public void findDifferentClassesByMethods(ArrayList<ClassInfo> v1, ArrayList<ClassInfo> v2) {
-        ArrayList<String> commonCls = new ArrayList<String>();
-        
-        for (ClassInfo cls1 : v1) {
-            for (ClassInfo cls2 : v2) {
-                if(cls1.hasSameMethodsThan(cls2) && !commonCls.contains(cls1.getName()))
-                    commonCls.add(cls1.getName());
-            }
-        }
-        clssPrinter("common", commonCls);
-        clssPrinter("different", getDifferentClss(commonCls, v1, v2));
+        VersionDiff diff = diff(v1, v2);
+        clssPrinter("common", diff.getSameClasses(VersionDiff.Criterion.METHODS));
+        clssPrinter("different", diff.getDifferentClasses(VersionDiff.Criterion.METHODS));
     }
     
     /**
@@ -204,16 +263,9 @@ public class VariabilityParser {
      * @param v2 array with data related to V2' software-to-compare.
      */
     public void findDifferentClassesByHeritancy(ArrayList<ClassInfo> v1, ArrayList<ClassInfo> v2) {
-        ArrayList<String> commonCls = new ArrayList<String>();
-        
-        for (ClassInfo cls1 : v1) {
-            for (ClassInfo cls2 : v2) {
-                if(cls1.hasSameHeritancyNameThan(cls2) && !commonCls.contains(cls1.getName()))
-                    commonCls.add(cls1.getName());
-            }
-        }
-        clssPrinter("common", commonCls);
-        clssPrinter("different", getDifferentClss(commonCls, v1, v2));
+        VersionDiff diff = diff(v1, v2);
+        clssPrinter("common", diff.getSameClasses(VersionDiff.Criterion.HERITANCY));
+        clssPrinter("different", diff.getDifferentClasses(VersionDiff.Criterion.HERITANCY));
     }
     
     /**
@@ -225,16 +277,9 @@ public class VariabilityParser {
      * @param v2 array with data related to V2' software-to-compare.
      */
     public void findDifferentClassesByException(ArrayList<ClassInfo> v1, ArrayList<ClassInfo> v2) {
-        ArrayList<String> commonCls = new ArrayList<String>();
-        
-        for (ClassInfo cls1 : v1) {
-            for (ClassInfo cls2 : v2) {
-                if(cls1.hasSameExceptionsThan(cls2) && !commonCls.contains(cls1.getName())) 
-                    commonCls.add(cls1.getName());
-            }
-        }
-        clssPrinter("common", commonCls);
-        clssPrinter("different", getDifferentClss(commonCls, v1, v2));
+        VersionDiff diff = diff(v1, v2);
+        clssPrinter("common", diff.getSameClasses(VersionDiff.Criterion.EXCEPTIONS));
+        clssPrinter("different", diff.getDifferentClasses(VersionDiff.Criterion.EXCEPTIONS));
     }
     
     /**
@@ -245,36 +290,69 @@ public class VariabilityParser {
      * @param v2 array with data related to V2' software-to-compare.
      */
     public void findDifferentMethodsInCls(ClassInfo cls1, ClassInfo cls2) {
-        ArrayList<MethodInfo> differentMethods = new ArrayList<MethodInfo>();
+        methodsPrinter("different", VersionDiff.diffMethods(cls1, cls2));
+    }
+    
+    /**
+     * Produces the output to every question at once: common, changed (with the 
+     * criteria by which they differ), removed and added classes.
+     * 
+     * @param v1 array with data related to V1' software-to-compare.
+     * @param v2 array with data related to V2' software-to-compare.
+     */
+    public void findDifferentClasses(ArrayList<ClassInfo> v1, ArrayList<ClassInfo> v2) {
+        VersionDiff diff = diff(v1, v2);
+        clssPrinter("common", diff.getCommonClasses());
         
-        for(MethodInfo m1 : cls1.getMethods()) {
-            for(MethodInfo m2 : cls2.getMethods()) {
-                if(!m1.getContent().equals(m2.getContent()) && !differentMethods.contains(m1)) {
-                    differentMethods.add(m1);
-                }
-            }  
+        System.out.println("\n\nFollowing are changed classes.");
+        for (String cls : diff.getChangedClasses()) {
+            System.out.println(cls + " " + diff.getChanges(cls));
         }
-        methodsPrinter("different", differentMethods);
+        System.out.println();
+        
+        clssPrinter("removed", diff.getRemovedClasses());
+        clssPrinter("added", diff.getAddedClasses());
+    }
+    
+    /**
+     * Produces the output to question :
+     * "Identify near-duplicate methods (clones) within and across both versions"
+     * 
+     * @throws IOException 
+     */
+    public void findClones() throws IOException {
+        CloneDetector detector = new CloneDetector();
+        detector.addProject("v1", projectPathV1);
+        detector.addProject("v2", projectPathV2);
+        
+        List<CloneDetector.CloneClass> clones = detector.detect();
+        System.out.println("\n\nFollowing are " + clones.size() + " clone classes, among "
+                + detector.getNumberOfMethods() + " methods.");
+        for (CloneDetector.CloneClass clone : clones) {
+            System.out.println(String.format("%.2f", clone.getSimilarity()) + " " + clone.getMethods());
+        }
+        System.out.println();
     }
     
     /**
      * Determines different classes between 2 software's version knowing common classes.
      * 
-     * @param commonCls shared classes
+     * @param commonCls qualified names of the shared classes
      * @param v1 classes of v1' software
      * @param v2 classes of v2' software
-     * @return
+     * @return qualified names of the classes that are not shared
      */
     public ArrayList<String> getDifferentClss(ArrayList<String> commonCls, ArrayList<ClassInfo> v1,
             ArrayList<ClassInfo> v2) {
+        Set<String> seen = new HashSet<String>(commonCls);
         ArrayList<String> differentCls = new ArrayList<String>();
         for(ClassInfo c : v1) {
-            if(!commonCls.contains(c.getName()) && !differentCls.contains(c.getName()))
-                differentCls.add(c.getName());
+            if(seen.add(c.getQualifiedName()))
+                differentCls.add(c.getQualifiedName());
         }
         for(ClassInfo c : v2) {
-            if(!commonCls.contains(c.getName()) && !differentCls.contains(c.getName()))
-                differentCls.add(c.getName());
+            if(seen.add(c.getQualifiedName()))
+                differentCls.add(c.getQualifiedName());
         }
         return differentCls;
     }
@@ -284,7 +362,7 @@ public class VariabilityParser {
      * 
      * @param clss : array of element to print
      */
-    public void clssPrinter(String subject, ArrayList<String> clss) {
+    public void clssPrinter(String subject, List<String> clss) {
         System.out.println("\n\nFollowing are "+subject + " classes.");
         for (String cls : clss) {
             System.out.println(cls);
@@ -297,10 +375,10 @@ public class VariabilityParser {
      * 
      * @param mI : array of element to print
      */
-    public void methodsPrinter(String subject, ArrayList<MethodInfo> mI) {
+    public void methodsPrinter(String subject, List<MethodInfo> mI) {
         System.out.println("\n\nFollowing are "+subject + " methods.");
         for (MethodInfo methodInfo : mI) {
-            System.out.println(methodInfo.getName());
+            System.out.println(methodInfo.getSignature());
         }
         System.out.println();
     }
@@ -0,0 +1,246 @@
+package variability;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The differences between two versions of a software.<br>
+ * The classes of both versions are indexed by qualified name in hash maps,
+ * then every class is classified in one linear pass as:
+ * <ul>
+ * <li>common: in both versions, with the same methods, heritancy and exceptions</li>
+ * <li>changed: in both versions, but different by at least one criterion</li>
+ * <li>removed: only in the first version</li>
+ * <li>added: only in the second version</li>
+ * </ul>
+ * All the criteria are computed together, so the answer to every question
+ * of the TP (same name, same methods, same heritancy, same exceptions)
+ * is read from the same diff.
+ */
+public class VersionDiff {
+
+    /**
+     * The criteria by which two classes with the same name can differ.
+     */
+    public enum Criterion {
+        METHODS, HERITANCY, EXCEPTIONS
+    }
+
+    /*attributes*/
+    private Map<String, ClassInfo> v1 = new LinkedHashMap<String, ClassInfo>();
+    private Map<String, ClassInfo> v2 = new LinkedHashMap<String, ClassInfo>();
+
+    private List<String> commonCls = new ArrayList<String>();
+    private List<String> changedCls = new ArrayList<String>();
+    private List<String> removedCls = new ArrayList<String>();
+    private List<String> addedCls = new ArrayList<String>();
+    private Map<String, EnumSet<Criterion>> changes = new HashMap<String, EnumSet<Criterion>>();
+
+    /*constructors*/
+    /**
+     * Computes the differences between two versions.
+     * If a version declares the same qualified name twice, the first declaration is kept.
+     *
+     * @param v1 classes of v1' software
+     * @param v2 classes of v2' software
+     */
+    public VersionDiff(List<ClassInfo> v1, List<ClassInfo> v2) {
+        index(v1, this.v1);
+        index(v2, this.v2);
+
+        for (ClassInfo cls1 : this.v1.values()) {
+            ClassInfo cls2 = this.v2.get(cls1.getQualifiedName());
+
+            if (cls2 == null) {
+                removedCls.add(cls1.getQualifiedName());
+                continue;
+            }
+
+            EnumSet<Criterion> criteria = compare(cls1, cls2);
+            if (criteria.isEmpty())
+                commonCls.add(cls1.getQualifiedName());
+            else {
+                changedCls.add(cls1.getQualifiedName());
+                changes.put(cls1.getQualifiedName(), criteria);
+            }
+        }
+
+        for (String name : this.v2.keySet()) {
+            if (!this.v1.containsKey(name))
+                addedCls.add(name);
+        }
+    }
+
+    /*methods*/
+    /**
+     * Classes in both versions, identical by every criterion.
+     */
+    public List<String> getCommonClasses() {
+        return Collections.unmodifiableList(commonCls);
+    }
+
+    /**
+     * Classes in both versions, different by at least one criterion.
+     */
+    public List<String> getChangedClasses() {
+        return Collections.unmodifiableList(changedCls);
+    }
+
+    /**
+     * Classes of v1 that are not in v2.
+     */
+    public List<String> getRemovedClasses() {
+        return Collections.unmodifiableList(removedCls);
+    }
+
+    /**
+     * Classes of v2 that are not in v1.
+     */
+    public List<String> getAddedClasses() {
+        return Collections.unmodifiableList(addedCls);
+    }
+
+    /**
+     * The criteria by which a class differs between both versions.
+     *
+     * @param qualifiedName the qualified name of the class
+     * @return the criteria, empty if the class is common, added or removed
+     */
+    public EnumSet<Criterion> getChanges(String qualifiedName) {
+        EnumSet<Criterion> criteria = changes.get(qualifiedName);
+        return criteria == null ? EnumSet.noneOf(Criterion.class) : EnumSet.copyOf(criteria);
+    }
+
+    /**
+     * The class of the first version with a given qualified name.
+     */
+    public ClassInfo getClassV1(String qualifiedName) {
+        return v1.get(qualifiedName);
+    }
+
+    /**
+     * The class of the second version with a given qualified name.
+     */
+    public ClassInfo getClassV2(String qualifiedName) {
+        return v2.get(qualifiedName);
+    }
+
+    /**
+     * Classes in both versions that are the same by a criterion,
+     * i.e. common classes and classes changed by other criteria only.
+     * With no criterion, these are all the classes with the same name.
+     *
+     * @param criteria the criteria the classes must share
+     * @return the qualified names of these classes
+     */
+    public List<String> getSameClasses(Criterion... criteria) {
+        List<String> same = new ArrayList<String>(commonCls);
+        for (String name : changedCls) {
+            if (!intersects(changes.get(name), criteria))
+                same.add(name);
+        }
+        return same;
+    }
+
+    /**
+     * Classes that are different by a criterion, i.e. added and removed classes
+     * and classes changed by this criterion.
+     * With no criterion, these are the classes which are in one version only.
+     *
+     * @param criteria the criteria by which the classes differ
+     * @return the qualified names of these classes
+     */
+    public List<String> getDifferentClasses(Criterion... criteria) {
+        List<String> different = new ArrayList<String>(removedCls);
+        for (String name : changedCls) {
+            if (intersects(changes.get(name), criteria))
+                different.add(name);
+        }
+        different.addAll(addedCls);
+        return different;
+    }
+
+    /**
+     * Computes, by signature, the methods which differ between two versions of a class.
+     * Both classes are indexed once, so this is linear in their number of methods.
+     *
+     * @param cls1 the class in v1
+     * @param cls2 the class in v2
+     * @return the methods of cls1 which are removed or whose body changed,
+     * followed by the methods added in cls2
+     */
+    public static List<MethodInfo> diffMethods(ClassInfo cls1, ClassInfo cls2) {
+        Map<String, MethodInfo> methods2 = new HashMap<String, MethodInfo>();
+        for (MethodInfo m2 : cls2.getMethods())
+            methods2.put(m2.getSignature(), m2);
+
+        List<MethodInfo> differentMethods = new ArrayList<MethodInfo>();
+        Set<String> signatures1 = new HashSet<String>();
+
+        for (MethodInfo m1 : cls1.getMethods()) {
+            signatures1.add(m1.getSignature());
+            MethodInfo m2 = methods2.get(m1.getSignature());
+            if (m2 == null || !m1.hasSameContentThan(m2))
+                differentMethods.add(m1);
+        }
+
+        for (MethodInfo m2 : cls2.getMethods()) {
+            if (!signatures1.contains(m2.getSignature()))
+                differentMethods.add(m2);
+        }
+        return differentMethods;
+    }
+
+    /**
+     * Indexes the classes of a version by qualified name, keeping the first declaration.
+     */
+    private static void index(List<ClassInfo> classes, Map<String, ClassInfo> index) {
+        for (ClassInfo cls : classes) {
+            if (!index.containsKey(cls.getQualifiedName()))
+                index.put(cls.getQualifiedName(), cls);
+        }
+    }
+
+    /**
+     * Computes the criteria by which two classes with the same name differ.
+     * Methods are compared as sets of signatures, exceptions as sets of types,
+     * so that a declaration order change is not a difference.
+     */
+    private static EnumSet<Criterion> compare(ClassInfo cls1, ClassInfo cls2) {
+        EnumSet<Criterion> criteria = EnumSet.noneOf(Criterion.class);
+
+        if (!signatures(cls1).equals(signatures(cls2)))
+            criteria.add(Criterion.METHODS);
+
+        if (!Objects.equals(cls1.getHeritsFrom(), cls2.getHeritsFrom()))
+            criteria.add(Criterion.HERITANCY);
+
+        if (!new HashSet<String>(cls1.getExceptions()).equals(new HashSet<String>(cls2.getExceptions())))
+            criteria.add(Criterion.EXCEPTIONS);
+
+        return criteria;
+    }
+
+    private static Set<String> signatures(ClassInfo cls) {
+        Set<String> signatures = new HashSet<String>();
+        for (MethodInfo m : cls.getMethods())
+            signatures.add(m.getSignature());
+        return signatures;
+    }
+
+    private static boolean intersects(EnumSet<Criterion> changes, Criterion[] criteria) {
+        for (Criterion criterion : criteria) {
+            if (changes.contains(criterion))
+                return true;
+        }
+        return false;
+    }
+}
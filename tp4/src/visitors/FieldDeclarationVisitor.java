@@ -6,7 +6,7 @@ import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.FieldDeclaration;
 import org.eclipse.jdt.core.dom.SimpleName;
 
-public class FieldDeclarationVisitor extends ASTVisitor {
+public class FieldDeclarationVisitor extends ASTVisitor implements MergeableVisitor<FieldDeclarationVisitor> {
 	private ArrayList<FieldDeclaration> fields = new ArrayList<>();
 	private ArrayList<SimpleName> names = new ArrayList<>();
 	
@@ -24,4 +24,15 @@ public class FieldDeclarationVisitor extends ASTVisitor {
 	
 	public ArrayList<FieldDeclaration> getFields() {return fields;}
 	public ArrayList<SimpleName> getNames() {return names;}
+	
+	/**
+	 * Adds the fields and the names visited by another visitor
+	 * @see MergeableVisitor#merge(MergeableVisitor)
+	 */
+	@Override
+	public FieldDeclarationVisitor merge(FieldDeclarationVisitor other) {
+		fields.addAll(other.fields);
+		names.addAll(other.names);
+		return this;
+	}
 }
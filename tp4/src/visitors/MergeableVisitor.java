@@ -0,0 +1,17 @@
+package visitors;
+
+/**
+ * A visitor whose results can be merged with those of another visitor of the same kind.<br>
+ * The parallel analyses give one visitor to each partition of the project, then merge
+ * them: merging never visits anything again, it only adds the nodes collected by the
+ * other visitor to those of this one, and the other visitor is not to be used afterwards.
+ * @param <V> the type of the visitor
+ */
+public interface MergeableVisitor<V extends MergeableVisitor<V>> {
+	/**
+	 * Merges the nodes visited by another visitor into this one
+	 * @param other the other visitor, e.g. the visitor of another partition of the project
+	 * @return this visitor
+	 */
+	V merge(V other);
+}
@@ -5,7 +5,7 @@ import java.util.ArrayList;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 
-public class MethodDeclarationVisitor extends ASTVisitor {
+public class MethodDeclarationVisitor extends ASTVisitor implements MergeableVisitor<MethodDeclarationVisitor> {
 	
 	private ArrayList<MethodDeclaration> methods = new ArrayList<>();
 	
@@ -16,4 +16,14 @@ public class MethodDeclarationVisitor extends ASTVisitor {
 	}
 	
 	public ArrayList<MethodDeclaration> getMethods(){return methods;}
+	
+	/**
+	 * Adds the method declarations visited by another visitor
+	 * @see MergeableVisitor#merge(MergeableVisitor)
+	 */
+	@Override
+	public MethodDeclarationVisitor merge(MethodDeclarationVisitor other) {
+		methods.addAll(other.methods);
+		return this;
+	}
 }
@@ -6,7 +6,7 @@ import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.MethodInvocation;
 import org.eclipse.jdt.core.dom.SuperMethodInvocation;
 
-public class MethodInvocationVisitor extends ASTVisitor {
+public class MethodInvocationVisitor extends ASTVisitor implements MergeableVisitor<MethodInvocationVisitor> {
 	private ArrayList<MethodInvocation> methods = new ArrayList<>();
 	private ArrayList<SuperMethodInvocation> superMethods = new ArrayList<>();
 	
@@ -24,4 +24,15 @@ public class MethodInvocationVisitor extends ASTVisitor {
 	
 	public ArrayList<MethodInvocation> getMethods(){return methods;}
 	public ArrayList<SuperMethodInvocation> getSuperMethods(){return superMethods;}
+	
+	/**
+	 * Adds the method and super method invocations visited by another visitor
+	 * @see MergeableVisitor#merge(MergeableVisitor)
+	 */
+	@Override
+	public MethodInvocationVisitor merge(MethodInvocationVisitor other) {
+		methods.addAll(other.methods);
+		superMethods.addAll(other.superMethods);
+		return this;
+	}
 }
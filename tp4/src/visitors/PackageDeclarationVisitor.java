@@ -6,7 +6,7 @@ import java.util.HashSet;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.PackageDeclaration;
 
-public class PackageDeclarationVisitor extends ASTVisitor {
+public class PackageDeclarationVisitor extends ASTVisitor implements MergeableVisitor<PackageDeclarationVisitor> {
 	private ArrayList<PackageDeclaration> packages = new ArrayList<>();
 	private HashSet<String> names = new HashSet<>();
 	
@@ -23,4 +23,16 @@ public class PackageDeclarationVisitor extends ASTVisitor {
 	
 	public ArrayList<PackageDeclaration> getPackages() {return packages;}
 	public HashSet<String> getNames() {return names;}
+	
+	/**
+	 * Adds the package declarations visited by another visitor,
+	 * and the package names that this one has not seen yet
+	 * @see MergeableVisitor#merge(MergeableVisitor)
+	 */
+	@Override
+	public PackageDeclarationVisitor merge(PackageDeclarationVisitor other) {
+		packages.addAll(other.packages);
+		names.addAll(other.names);
+		return this;
+	}
 }
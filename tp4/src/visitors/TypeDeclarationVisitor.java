@@ -5,7 +5,7 @@ import java.util.ArrayList;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
-public class TypeDeclarationVisitor extends ASTVisitor {
+public class TypeDeclarationVisitor extends ASTVisitor implements MergeableVisitor<TypeDeclarationVisitor> {
 	private ArrayList<TypeDeclaration> types = new ArrayList<>();
 	
 	@Override
@@ -15,4 +15,14 @@ public class TypeDeclarationVisitor extends ASTVisitor {
 	}
 	
 	public ArrayList<TypeDeclaration> getTypes() {return types;}
+	
+	/**
+	 * Adds the type declarations visited by another visitor
+	 * @see MergeableVisitor#merge(MergeableVisitor)
+	 */
+	@Override
+	public TypeDeclarationVisitor merge(TypeDeclarationVisitor other) {
+		types.addAll(other.types);
+		return this;
+	}
 }